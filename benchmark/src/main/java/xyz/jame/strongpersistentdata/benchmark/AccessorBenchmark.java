@@ -0,0 +1,126 @@
+package xyz.jame.strongpersistentdata.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.jame.strongpersistentdata.AccessorEngine;
+import xyz.jame.strongpersistentdata.MemoryPersistentDataContainer;
+import xyz.jame.strongpersistentdata.StrongPersistentData;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures each kind of method of a wrapped {@link Profile}, with each {@link AccessorEngine}. Every benchmark here has a
+ * counterpart of the same name in {@link ContainerBenchmark}, which does the same thing to the container directly.
+ * </p>
+ *
+ * <p>
+ * The engine is a {@link Param}, so it can be narrowed from the command line, for example {@code -p engine=GENERATED}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessorBenchmark
+{
+    @Param({"PROXY", "GENERATED"})
+    public AccessorEngine engine;
+
+    private StrongPersistentData strongPersistentData;
+    private MemoryPersistentDataContainer container;
+    private Profile profile;
+    private Profile child;
+
+    @Setup
+    public void setUp()
+    {
+        strongPersistentData = new StrongPersistentData(Fixture.PLUGIN);
+        strongPersistentData.setAccessorEngine(engine);
+        strongPersistentData.register(Profile.class);
+
+        container = Fixture.createContainer();
+        profile = strongPersistentData.wrap(container, Profile.class);
+        child = profile.child();
+    }
+
+    @Benchmark
+    public Profile wrap()
+    {
+        return strongPersistentData.wrap(container, Profile.class);
+    }
+
+    @Benchmark
+    public String get()
+    {
+        return profile.name();
+    }
+
+    @Benchmark
+    public int getPrimitive()
+    {
+        return profile.health();
+    }
+
+    @Benchmark
+    public void set()
+    {
+        profile.health(20);
+    }
+
+    @Benchmark
+    public boolean has()
+    {
+        return profile.hasHealth();
+    }
+
+    @Benchmark
+    public OptionalInt getOptionalInt()
+    {
+        return profile.level();
+    }
+
+    @Benchmark
+    public Optional<String> getOptional()
+    {
+        return profile.title();
+    }
+
+    @Benchmark
+    public int getDefaultValue()
+    {
+        return profile.maxHealth();
+    }
+
+    @Benchmark
+    public void setAndRemove()
+    {
+        profile.title("Builder");
+        profile.removeTitle();
+    }
+
+    @Benchmark
+    public int getWrapped()
+    {
+        return profile.child().health();
+    }
+
+    @Benchmark
+    public void setWrapped()
+    {
+        child.health(10);
+    }
+}
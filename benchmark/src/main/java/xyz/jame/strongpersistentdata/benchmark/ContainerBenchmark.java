@@ -0,0 +1,108 @@
+package xyz.jame.strongpersistentdata.benchmark;
+
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.jame.strongpersistentdata.MemoryPersistentDataContainer;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The baseline for {@link AccessorBenchmark}: the same operations, written by hand against the container with the keys
+ * from {@link Fixture}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContainerBenchmark
+{
+    private MemoryPersistentDataContainer container;
+
+    @Setup
+    public void setUp()
+    {
+        container = Fixture.createContainer();
+    }
+
+    @Benchmark
+    public String get()
+    {
+        return container.get(Fixture.NAME, PersistentDataType.STRING);
+    }
+
+    @Benchmark
+    public int getPrimitive()
+    {
+        var value = container.get(Fixture.HEALTH, PersistentDataType.INTEGER);
+        return value != null ? value : 0;
+    }
+
+    @Benchmark
+    public void set()
+    {
+        container.set(Fixture.HEALTH, PersistentDataType.INTEGER, 20);
+    }
+
+    @Benchmark
+    public boolean has()
+    {
+        return container.has(Fixture.HEALTH, PersistentDataType.INTEGER);
+    }
+
+    @Benchmark
+    public OptionalInt getOptionalInt()
+    {
+        var value = container.get(Fixture.LEVEL, PersistentDataType.INTEGER);
+        return value != null ? OptionalInt.of(value) : OptionalInt.empty();
+    }
+
+    @Benchmark
+    public Optional<String> getOptional()
+    {
+        return Optional.ofNullable(container.get(Fixture.TITLE, PersistentDataType.STRING));
+    }
+
+    @Benchmark
+    public int getDefaultValue()
+    {
+        return container.getOrDefault(Fixture.MAX_HEALTH, PersistentDataType.INTEGER, 20);
+    }
+
+    @Benchmark
+    public void setAndRemove()
+    {
+        container.set(Fixture.TITLE, PersistentDataType.STRING, "Builder");
+        container.remove(Fixture.TITLE);
+    }
+
+    @Benchmark
+    public int getWrapped()
+    {
+        var child = container.get(Fixture.CHILD, PersistentDataType.TAG_CONTAINER);
+        var value = child != null ? child.get(Fixture.HEALTH, PersistentDataType.INTEGER) : null;
+        return value != null ? value : 0;
+    }
+
+    @Benchmark
+    public void setWrapped()
+    {
+        // The nested container is a copy, so it has to be set again for the change to be kept, as a wrapped child does.
+        PersistentDataContainer child = container.get(Fixture.CHILD, PersistentDataType.TAG_CONTAINER);
+        child.set(Fixture.HEALTH, PersistentDataType.INTEGER, 10);
+        container.set(Fixture.CHILD, PersistentDataType.TAG_CONTAINER, child);
+    }
+}
@@ -0,0 +1,40 @@
+package xyz.jame.strongpersistentdata.benchmark;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+import xyz.jame.strongpersistentdata.MemoryPersistentDataContainer;
+
+/**
+ * The data every benchmark starts with, written with hand-built keys so both wrapped and raw benchmarks read the same
+ * container.
+ */
+final class Fixture
+{
+    static final Plugin PLUGIN = BenchmarkPlugin.create("benchmark");
+
+    static final NamespacedKey NAME = new NamespacedKey(PLUGIN, "name");
+    static final NamespacedKey HEALTH = new NamespacedKey(PLUGIN, "health");
+    static final NamespacedKey LEVEL = new NamespacedKey(PLUGIN, "level");
+    static final NamespacedKey TITLE = new NamespacedKey(PLUGIN, "title");
+    static final NamespacedKey MAX_HEALTH = new NamespacedKey(PLUGIN, "max_health");
+    static final NamespacedKey CHILD = new NamespacedKey(PLUGIN, "child");
+
+    private Fixture()
+    {
+    }
+
+    static MemoryPersistentDataContainer createContainer()
+    {
+        var child = new MemoryPersistentDataContainer();
+        child.set(HEALTH, PersistentDataType.INTEGER, 10);
+
+        var container = new MemoryPersistentDataContainer();
+        container.set(NAME, PersistentDataType.STRING, "Steve");
+        container.set(HEALTH, PersistentDataType.INTEGER, 20);
+        container.set(LEVEL, PersistentDataType.INTEGER, 5);
+        container.set(TITLE, PersistentDataType.STRING, "Builder");
+        container.set(CHILD, PersistentDataType.TAG_CONTAINER, child);
+        return container;
+    }
+}
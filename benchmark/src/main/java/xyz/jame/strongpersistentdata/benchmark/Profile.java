@@ -0,0 +1,43 @@
+package xyz.jame.strongpersistentdata.benchmark;
+
+import xyz.jame.strongpersistentdata.DefaultValue;
+import xyz.jame.strongpersistentdata.Wrap;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * The interface every benchmark wraps, which has one method of each kind being measured.
+ */
+public interface Profile
+{
+    String name();
+
+    void name(String value);
+
+    int health();
+
+    void health(int value);
+
+    boolean hasHealth();
+
+    OptionalInt level();
+
+    void level(int value);
+
+    Optional<String> title();
+
+    void title(String value);
+
+    void removeTitle();
+
+    // Never set, so it always falls back to its default value.
+    @DefaultValue.Numeric(20)
+    int maxHealth();
+
+    @Wrap
+    Profile child();
+
+    @Wrap
+    void child(Profile value);
+}
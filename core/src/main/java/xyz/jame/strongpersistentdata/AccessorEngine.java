@@ -0,0 +1,24 @@
+package xyz.jame.strongpersistentdata;
+
+/**
+ * How {@link StrongPersistentData#wrap(org.bukkit.persistence.PersistentDataContainer, Class)} implements an interface.
+ */
+public enum AccessorEngine
+{
+    /**
+     * Use a {@link java.lang.reflect.Proxy}. This works for every interface.
+     */
+    PROXY,
+    /**
+     * Generate a class implementing the interface at runtime, which avoids the argument arrays and dispatch of a
+     * {@link java.lang.reflect.Proxy}. Plain getters, setters and has methods read and write the container themselves,
+     * with their key and type as constants of the class.
+     *
+     * <p>
+     * The interface, and the return types of its methods, must be public, and visible to the class loader of
+     * StrongPersistentData (which is the case when it is shaded into your plugin). Interfaces that do not meet this
+     * fall back to {@link #PROXY}.
+     * </p>
+     */
+    GENERATED
+}
@@ -0,0 +1,774 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates a class implementing a wrapped interface, which is a subclass of {@link GeneratedAccessor}. This also finds
+ * the classes generated at compile time by the annotation processor, for {@link GenerateAccessor} interfaces, and the
+ * plans it deduced for them.
+ *
+ * <p>
+ * A class is generated for each {@link InterfacePlan}, as the keys and types of its methods are static final fields of
+ * the class. Plain getters, setters and has methods call {@link PersistentDataContainer#get}, {@code set} or {@code has}
+ * of {@link GeneratedAccessor#direct} with them, so they don't box their index, or go through the switch of the
+ * handler. Setters then call {@link GeneratedAccessor#written(NamespacedKey)}.
+ * </p>
+ *
+ * <p>
+ * Every other method, and the plain ones when {@link GeneratedAccessor#direct} is null (or a getter finds nothing),
+ * pushes its index (of {@link InterfacePlan#methodsOf(Class)}), boxes its parameter (or an array of its parameters, if
+ * it has more than one), and calls {@link GeneratedAccessor#invoke(int, Object)}. The result is then cast, or unboxed,
+ * to the return type. Only the plain methods branch, and the stack map frames at their branch targets always have the
+ * locals of the method, and at most the value read from the container on the stack.
+ * </p>
+ */
+final class AccessorGenerator
+{
+    private static final String SUPER_NAME = internalNameOf(GeneratedAccessor.class);
+    private static final String INVOKE_DESCRIPTOR = "(ILjava/lang/Object;)Ljava/lang/Object;";
+    private static final String CONTAINER_NAME = internalNameOf(PersistentDataContainer.class);
+    private static final String KEY_DESCRIPTOR = InterfacePlan.descriptorOf(NamespacedKey.class);
+    private static final String TYPE_DESCRIPTOR = InterfacePlan.descriptorOf(PersistentDataType.class);
+    /**
+     * Appended to the binary name of an interface (with {@code $} replaced by {@code _}) for the name of the class
+     * generated by the annotation processor.
+     */
+    private static final String COMPILED_SUFFIX = "_StrongPersistentData";
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    /**
+     * The keys and types of each generated class, by its name, until its static initializer takes them with
+     * {@link #constantsOf(Class)}.
+     */
+    private static final ConcurrentHashMap<String, Object[]> CONSTANTS = new ConcurrentHashMap<>();
+
+    /**
+     * The class generated by the annotation processor for each interface, or empty if there is none.
+     */
+    private static final ClassValue<Optional<Compiled>> COMPILED = new ClassValue<>()
+    {
+        @Override
+        protected Optional<Compiled> computeValue(Class<?> type)
+        {
+            return Optional.ofNullable(findCompiled(type));
+        }
+    };
+
+    private AccessorGenerator()
+    {
+    }
+
+    /**
+     * @return a new, unbound, instance of the class generated for {@code plan}, or null if one cannot be generated
+     */
+    static GeneratedAccessor create(InterfacePlan plan)
+    {
+        var constructor = plan.generatedConstructor;
+        if (constructor == null)
+        {
+            // Two threads may both generate a class, in which case only one of them is kept.
+            constructor = Optional.ofNullable(generate(plan));
+            plan.generatedConstructor = constructor;
+        }
+
+        return construct(constructor, plan.interfaceType);
+    }
+
+    /**
+     * Called by the static initializer of a generated class.
+     *
+     * @return the key and type of each plain method of {@code generated}, in the order of its fields
+     */
+    static Object[] constantsOf(Class<?> generated)
+    {
+        var constants = CONSTANTS.remove(generated.getName());
+        if (constants == null)
+            throw new IllegalStateException("No constants for " + generated.getName());
+
+        return constants;
+    }
+
+    /**
+     * @return a new, unbound, instance of the class generated by the annotation processor for {@code interfaceType}, or
+     * null if there is none
+     */
+    static GeneratedAccessor createCompiled(Class<?> interfaceType)
+    {
+        return construct(COMPILED.get(interfaceType).map(compiled -> compiled.constructor), interfaceType);
+    }
+
+    /**
+     * @return the plans the annotation processor deduced for the methods of {@code interfaceType}, by their index, or
+     * null if there is no class generated by it
+     */
+    static GeneratedAccessor.Plan[] compiledPlansOf(Class<?> interfaceType)
+    {
+        return COMPILED.get(interfaceType).map(compiled -> compiled.plans).orElse(null);
+    }
+
+    private static GeneratedAccessor construct(Optional<MethodHandle> constructor, Class<?> interfaceType)
+    {
+        if (constructor.isEmpty())
+            return null;
+
+        try
+        {
+            return (GeneratedAccessor) constructor.get().invokeExact();
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException("Couldn't construct generated accessor for " + interfaceType, t);
+        }
+    }
+
+    private static MethodHandle generate(InterfacePlan plan)
+    {
+        var interfaceType = plan.interfaceType;
+        if (!isAccessible(interfaceType))
+            return null;
+
+        var plans = plan.plans();
+        var constants = new ArrayList<>();
+        for (var methodPlan : plans)
+        {
+            if (!isAccessible(methodPlan.method.getReturnType()))
+                return null;
+
+            if (methodPlan.isPlain())
+            {
+                constants.add(methodPlan.key);
+                constants.add(methodPlan.persistentType);
+            }
+        }
+
+        var name = SUPER_NAME + "$" + interfaceType.getSimpleName() + "$" + COUNTER.incrementAndGet();
+        var className = name.replace('/', '.');
+        CONSTANTS.put(className, constants.toArray());
+
+        try
+        {
+            var lookup = MethodHandles.lookup();
+            var generated = lookup.defineClass(writeClass(name, interfaceType, plans));
+
+            // Run the static initializer now, so the constants aren't left behind if the class is never constructed.
+            Class.forName(className, true, generated.getClassLoader());
+            return lookup.findConstructor(generated, MethodType.methodType(Void.TYPE)).asType(MethodType.methodType(GeneratedAccessor.class));
+        }
+        catch (LinkageError | ReflectiveOperationException e)
+        {
+            // Visibility rules we didn't think of. The proxy will have to do.
+            return null;
+        }
+        finally
+        {
+            CONSTANTS.remove(className);
+        }
+    }
+
+    private static Compiled findCompiled(Class<?> interfaceType)
+    {
+        var packageName = interfaceType.getPackageName();
+        var binaryName = interfaceType.getName().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        var name = (packageName.isEmpty() ? "" : packageName + ".") + binaryName.replace('$', '_') + COMPILED_SUFFIX;
+
+        try
+        {
+            var compiled = Class.forName(name, false, interfaceType.getClassLoader());
+            if (!GeneratedAccessor.class.isAssignableFrom(compiled) || !interfaceType.isAssignableFrom(compiled))
+                return null;
+
+            // The generated class refers to methods by index, which is only right if it was generated from this
+            // version of the interface.
+            var signatures = (String[]) compiled.getField("SIGNATURES").get(null);
+            var methods = InterfacePlan.methodsOf(interfaceType);
+            if (signatures.length != methods.length)
+                return null;
+
+            for (var i = 0; i < methods.length; i++)
+            {
+                if (!signatures[i].equals(methods[i].getName() + InterfacePlan.descriptorOf(methods[i])))
+                    return null;
+            }
+
+            var plans = (GeneratedAccessor.Plan[]) compiled.getField("PLANS").get(null);
+            if (plans.length != methods.length)
+                return null;
+
+            var constructor = MethodHandles.publicLookup().findConstructor(compiled, MethodType.methodType(Void.TYPE)).asType(MethodType.methodType(GeneratedAccessor.class));
+            return new Compiled(constructor, plans);
+        }
+        catch (ReflectiveOperationException | LinkageError | ClassCastException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the generated class, which lives in this package and class loader, can refer to {@code type}
+     */
+    private static boolean isAccessible(Class<?> type)
+    {
+        while (type.isArray())
+            type = type.getComponentType();
+
+        if (type.isPrimitive())
+            return true;
+
+        if (!Modifier.isPublic(type.getModifiers()))
+            return false;
+
+        try
+        {
+            return Class.forName(type.getName(), false, AccessorGenerator.class.getClassLoader()) == type;
+        }
+        catch (ClassNotFoundException e)
+        {
+            return false;
+        }
+    }
+
+    private static byte[] writeClass(String name, Class<?> interfaceType, MethodPlan[] plans)
+    {
+        var constantPool = new ConstantPool();
+        var thisClass = constantPool.classInfo(name);
+        var superClass = constantPool.classInfo(SUPER_NAME);
+        var interfaceClass = constantPool.classInfo(internalNameOf(interfaceType));
+        var code = constantPool.utf8("Code");
+        var stackMapTable = constantPool.utf8("StackMapTable");
+        var objectClass = constantPool.classInfo("java/lang/Object");
+        var invoke = constantPool.methodRef(SUPER_NAME, "invoke", INVOKE_DESCRIPTOR);
+        var direct = constantPool.fieldRef(SUPER_NAME, "direct", InterfacePlan.descriptorOf(PersistentDataContainer.class));
+
+        var fieldBytes = new ByteArrayOutputStream();
+        var fieldOut = new DataOutputStream(fieldBytes);
+        var methodBytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(methodBytes);
+
+        try
+        {
+            // GeneratedAccessor has a no-args constructor, so do we.
+            var constructorCode = new Code();
+            constructorCode.write(0x2a); // aload_0
+            writeInstruction(constructorCode, 0xb7, constantPool.methodRef(SUPER_NAME, "<init>", "()V")); // invokespecial
+            constructorCode.write(0xb1); // return
+            writeMethod(out, 0x0001, constantPool.utf8("<init>"), constantPool.utf8("()V"), code, 1, 1, constructorCode, stackMapTable, objectClass);
+
+            // The static initializer takes the key and type of every plain method from constantsOf.
+            var initializerCode = new Code();
+            writeInstruction(initializerCode, 0x13, thisClass); // ldc_w
+            writeInstruction(initializerCode, 0xb8, constantPool.methodRef(internalNameOf(AccessorGenerator.class), "constantsOf", "(Ljava/lang/Class;)[Ljava/lang/Object;")); // invokestatic
+            initializerCode.write(0x4b); // astore_0
+
+            var fieldCount = 0;
+            var methodCount = 1;
+            for (var methodPlan : plans)
+            {
+                var method = methodPlan.method;
+                var i = methodPlan.index;
+                var parameterTypes = method.getParameterTypes();
+                var returnType = method.getReturnType();
+                var methodCode = new Code();
+
+                if (methodPlan.isPlain())
+                {
+                    var key = constantPool.fieldRef(name, "key$" + i, KEY_DESCRIPTOR);
+                    var type = constantPool.fieldRef(name, "type$" + i, TYPE_DESCRIPTOR);
+                    writeField(fieldOut, constantPool.utf8("key$" + i), constantPool.utf8(KEY_DESCRIPTOR));
+                    writeField(fieldOut, constantPool.utf8("type$" + i), constantPool.utf8(TYPE_DESCRIPTOR));
+                    writeConstant(initializerCode, constantPool, fieldCount++, NamespacedKey.class, key);
+                    writeConstant(initializerCode, constantPool, fieldCount++, PersistentDataType.class, type);
+
+                    // Then the generic path, which they branch to when they can't use the container themselves.
+                    writePlain(methodCode, constantPool, methodPlan, direct, key, type);
+                    methodCode.frame(false);
+                }
+
+                methodCode.write(0x2a); // aload_0
+                writeIndex(methodCode, constantPool, i);
+
+                if (parameterTypes.length == 0)
+                    methodCode.write(0x01); // aconst_null
+                else if (parameterTypes.length == 1)
+                    writeLoadAndBox(methodCode, constantPool, parameterTypes[0], 1);
+                else
+                {
+                    writeIndex(methodCode, constantPool, parameterTypes.length);
+                    writeInstruction(methodCode, 0xbd, constantPool.classInfo("java/lang/Object")); // anewarray
+
+                    var slot = 1;
+                    for (var parameter = 0; parameter < parameterTypes.length; parameter++)
+                    {
+                        methodCode.write(0x59); // dup
+                        writeIndex(methodCode, constantPool, parameter);
+                        writeLoadAndBox(methodCode, constantPool, parameterTypes[parameter], slot);
+                        methodCode.write(0x53); // aastore
+                        slot += parameterTypes[parameter] == Long.TYPE || parameterTypes[parameter] == Double.TYPE ? 2 : 1;
+                    }
+                }
+
+                writeInstruction(methodCode, 0xb6, invoke); // invokevirtual
+                writeReturn(methodCode, constantPool, returnType);
+
+                var maxLocals = 1;
+                for (var parameterType : parameterTypes)
+                    maxLocals += parameterType == Long.TYPE || parameterType == Double.TYPE ? 2 : 1;
+
+                writeMethod(out, 0x0001, constantPool.utf8(method.getName()), constantPool.utf8(InterfacePlan.descriptorOf(method)), code, 7, maxLocals, methodCode, stackMapTable, objectClass);
+                methodCount++;
+            }
+
+            if (fieldCount != 0)
+            {
+                initializerCode.write(0xb1); // return
+                writeMethod(out, 0x0008, constantPool.utf8("<clinit>"), constantPool.utf8("()V"), code, 2, 1, initializerCode, stackMapTable, objectClass);
+                methodCount++;
+            }
+
+            var classBytes = new ByteArrayOutputStream();
+            var classOut = new DataOutputStream(classBytes);
+            classOut.writeInt(0xCAFEBABE);
+            classOut.writeShort(0); // minor version
+            classOut.writeShort(55); // major version, Java 11
+            constantPool.write(classOut);
+            classOut.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+            classOut.writeShort(thisClass);
+            classOut.writeShort(superClass);
+            classOut.writeShort(1);
+            classOut.writeShort(interfaceClass);
+            classOut.writeShort(fieldCount);
+            classOut.write(fieldBytes.toByteArray());
+            classOut.writeShort(methodCount);
+            classOut.write(methodBytes.toByteArray());
+            classOut.writeShort(0); // attributes
+
+            return classBytes.toByteArray();
+        }
+        catch (IOException impossible)
+        {
+            throw new IllegalStateException(impossible);
+        }
+    }
+
+    /**
+     * Write the part of a plain method which uses {@link GeneratedAccessor#direct} itself, branching to the code
+     * written after it when it can't.
+     */
+    private static void writePlain(Code code, ConstantPool constantPool, MethodPlan plan, int direct, int key, int type)
+    {
+        var method = plan.method;
+        var toGeneric = new ArrayList<Integer>();
+
+        code.write(0x2a); // aload_0
+        writeInstruction(code, 0xb4, direct); // getfield
+        toGeneric.add(code.branch(0xc6)); // ifnull
+
+        if (plan.kind == MethodPlan.Kind.SET && !method.getParameterTypes()[0].isPrimitive())
+        {
+            // Null may remove the key, or throw.
+            code.write(0x2b); // aload_1
+            toGeneric.add(code.branch(0xc6)); // ifnull
+        }
+
+        code.write(0x2a); // aload_0
+        writeInstruction(code, 0xb4, direct); // getfield
+        writeInstruction(code, 0xb2, key); // getstatic
+        writeInstruction(code, 0xb2, type); // getstatic
+
+        switch (plan.kind)
+        {
+            case GET:
+            {
+                writeInterfaceCall(code, constantPool.interfaceMethodRef(CONTAINER_NAME, "get", "(" + KEY_DESCRIPTOR + TYPE_DESCRIPTOR + ")Ljava/lang/Object;"), 3);
+
+                // Nothing there: the generic path returns the default value, or throws.
+                code.write(0x59); // dup
+                var toPop = code.branch(0xc6); // ifnull
+                writeReturn(code, constantPool, method.getReturnType());
+
+                code.target(toPop);
+                code.frame(true);
+                code.write(0x57); // pop
+                break;
+            }
+            case SET:
+                writeLoadAndBox(code, constantPool, method.getParameterTypes()[0], 1);
+                writeInterfaceCall(code, constantPool.interfaceMethodRef(CONTAINER_NAME, "set", "(" + KEY_DESCRIPTOR + TYPE_DESCRIPTOR + "Ljava/lang/Object;)V"), 4);
+
+                code.write(0x2a); // aload_0
+                writeInstruction(code, 0xb2, key); // getstatic
+                writeInstruction(code, 0xb6, constantPool.methodRef(SUPER_NAME, "written", "(" + KEY_DESCRIPTOR + ")V")); // invokevirtual
+                code.write(0xb1); // return
+                break;
+            default:
+                writeInterfaceCall(code, constantPool.interfaceMethodRef(CONTAINER_NAME, "has", "(" + KEY_DESCRIPTOR + TYPE_DESCRIPTOR + ")Z"), 3);
+                code.write(0xac); // ireturn
+                break;
+        }
+
+        for (var branch : toGeneric)
+            code.target(branch);
+    }
+
+    /**
+     * Store element {@code index} of the constants, which is in local 0 of the static initializer, to {@code field}.
+     */
+    private static void writeConstant(Code code, ConstantPool constantPool, int index, Class<?> type, int field)
+    {
+        code.write(0x2a); // aload_0
+        writeIndex(code, constantPool, index);
+        code.write(0x32); // aaload
+        writeInstruction(code, 0xc0, constantPool.classInfo(internalNameOf(type))); // checkcast
+        writeInstruction(code, 0xb3, field); // putstatic
+    }
+
+    private static void writeField(DataOutputStream out, int name, int descriptor) throws IOException
+    {
+        out.writeShort(0x0002 | 0x0008 | 0x0010); // private static final
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(0); // attributes
+    }
+
+    private static void writeMethod(DataOutputStream out, int access, int name, int descriptor, int code, int maxStack, int maxLocals, Code instructions, int stackMapTable, int objectClass) throws IOException
+    {
+        var frames = instructions.frames(stackMapTable, objectClass);
+
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(code);
+        out.writeInt(12 + instructions.size() + frames.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(instructions.size());
+        instructions.writeTo(out);
+        out.writeShort(0); // exception table
+        out.writeShort(frames.length != 0 ? 1 : 0); // attributes
+        out.write(frames);
+    }
+
+    private static void writeInterfaceCall(ByteArrayOutputStream code, int interfaceMethodRef, int argumentSlots)
+    {
+        writeInstruction(code, 0xb9, interfaceMethodRef); // invokeinterface
+        code.write(argumentSlots);
+        code.write(0);
+    }
+
+    private static void writeIndex(ByteArrayOutputStream code, ConstantPool constantPool, int index)
+    {
+        if (index <= 5)
+            code.write(0x03 + index); // iconst_<n>
+        else if (index <= Byte.MAX_VALUE)
+        {
+            code.write(0x10); // bipush
+            code.write(index);
+        }
+        else if (index <= Short.MAX_VALUE)
+            writeInstruction(code, 0x11, index); // sipush
+        else
+            writeInstruction(code, 0x13, constantPool.integer(index)); // ldc_w
+    }
+
+    private static void writeLoadAndBox(ByteArrayOutputStream code, ConstantPool constantPool, Class<?> type, int slot)
+    {
+        if (!type.isPrimitive())
+        {
+            code.write(0x19); // aload
+            code.write(slot);
+            return;
+        }
+
+        if (type == Long.TYPE)
+            code.write(0x16); // lload
+        else if (type == Float.TYPE)
+            code.write(0x17); // fload
+        else if (type == Double.TYPE)
+            code.write(0x18); // dload
+        else
+            code.write(0x15); // iload
+
+        code.write(slot);
+
+        var boxType = boxOf(type);
+        var valueOf = constantPool.methodRef(internalNameOf(boxType), "valueOf", "(" + InterfacePlan.descriptorOf(type) + ")" + InterfacePlan.descriptorOf(boxType));
+        writeInstruction(code, 0xb8, valueOf); // invokestatic
+    }
+
+    private static void writeReturn(ByteArrayOutputStream code, ConstantPool constantPool, Class<?> type)
+    {
+        if (type == Void.TYPE)
+        {
+            code.write(0x57); // pop
+            code.write(0xb1); // return
+            return;
+        }
+
+        if (!type.isPrimitive())
+        {
+            if (type != Object.class)
+                writeInstruction(code, 0xc0, constantPool.classInfo(type.isArray() ? InterfacePlan.descriptorOf(type) : internalNameOf(type))); // checkcast
+
+            code.write(0xb0); // areturn
+            return;
+        }
+
+        var boxType = boxOf(type);
+        writeInstruction(code, 0xc0, constantPool.classInfo(internalNameOf(boxType))); // checkcast
+        writeInstruction(code, 0xb6, constantPool.methodRef(internalNameOf(boxType), type.getName() + "Value", "()" + InterfacePlan.descriptorOf(type))); // invokevirtual
+
+        if (type == Long.TYPE)
+            code.write(0xad); // lreturn
+        else if (type == Float.TYPE)
+            code.write(0xae); // freturn
+        else if (type == Double.TYPE)
+            code.write(0xaf); // dreturn
+        else
+            code.write(0xac); // ireturn
+    }
+
+    private static void writeInstruction(ByteArrayOutputStream code, int opcode, int operand)
+    {
+        code.write(opcode);
+        code.write(operand >>> 8);
+        code.write(operand);
+    }
+
+    private static Class<?> boxOf(Class<?> primitive)
+    {
+        if (primitive == Boolean.TYPE)
+            return Boolean.class;
+        if (primitive == Byte.TYPE)
+            return Byte.class;
+        if (primitive == Short.TYPE)
+            return Short.class;
+        if (primitive == Character.TYPE)
+            return Character.class;
+        if (primitive == Integer.TYPE)
+            return Integer.class;
+        if (primitive == Long.TYPE)
+            return Long.class;
+        if (primitive == Float.TYPE)
+            return Float.class;
+
+        return Double.class;
+    }
+
+    private static String internalNameOf(Class<?> type)
+    {
+        return type.getName().replace('.', '/');
+    }
+
+    /**
+     * A class generated by the annotation processor.
+     */
+    private static final class Compiled
+    {
+        final MethodHandle constructor;
+        /**
+         * See {@link GeneratedAccessor.Plan}.
+         */
+        final GeneratedAccessor.Plan[] plans;
+
+        Compiled(MethodHandle constructor, GeneratedAccessor.Plan[] plans)
+        {
+            this.constructor = constructor;
+            this.plans = plans;
+        }
+    }
+
+    /**
+     * The instructions of a method, with the branches to patch and the stack map frames of their targets.
+     */
+    private static final class Code extends ByteArrayOutputStream
+    {
+        /**
+         * The offset of each frame, and whether the value read from the container is on the stack there.
+         */
+        private final ArrayList<Integer> frameOffsets = new ArrayList<>();
+        private final ArrayList<Boolean> frameValues = new ArrayList<>();
+
+        /**
+         * Write a branch to be patched by {@link #target(int)}.
+         *
+         * @return the offset of the branch
+         */
+        int branch(int opcode)
+        {
+            var offset = count;
+            write(opcode);
+            write(0);
+            write(0);
+            return offset;
+        }
+
+        /**
+         * Make the branch at {@code offset} jump to the next instruction.
+         */
+        void target(int offset)
+        {
+            var jump = count - offset;
+            buf[offset + 1] = (byte) (jump >>> 8);
+            buf[offset + 2] = (byte) jump;
+        }
+
+        /**
+         * Record the frame of the next instruction, which something branches to. The locals are always those of the
+         * method, and the stack is either empty, or has the value read from the container.
+         */
+        void frame(boolean value)
+        {
+            frameOffsets.add(count);
+            frameValues.add(value);
+        }
+
+        /**
+         * @return the StackMapTable attribute of the branch targets, or nothing if there are none
+         */
+        byte[] frames(int attributeName, int objectClass) throws IOException
+        {
+            if (frameOffsets.isEmpty())
+                return new byte[0];
+
+            var entries = new ByteArrayOutputStream();
+            var entriesOut = new DataOutputStream(entries);
+            var previous = -1;
+            for (var i = 0; i < frameOffsets.size(); i++)
+            {
+                var delta = frameOffsets.get(i) - previous - 1;
+                previous = frameOffsets.get(i);
+
+                if (frameValues.get(i))
+                {
+                    entriesOut.writeByte(247); // same_locals_1_stack_item_frame_extended
+                    entriesOut.writeShort(delta);
+                    entriesOut.writeByte(7); // Object_variable_info
+                    entriesOut.writeShort(objectClass);
+                }
+                else
+                {
+                    entriesOut.writeByte(251); // same_frame_extended
+                    entriesOut.writeShort(delta);
+                }
+            }
+
+            var attribute = new ByteArrayOutputStream();
+            var attributeOut = new DataOutputStream(attribute);
+            attributeOut.writeShort(attributeName);
+            attributeOut.writeInt(2 + entries.size());
+            attributeOut.writeShort(frameOffsets.size());
+            attributeOut.write(entries.toByteArray());
+            return attribute.toByteArray();
+        }
+    }
+
+    private static final class ConstantPool
+    {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final HashMap<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value)
+        {
+            return entry("U" + value, () -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        int integer(int value)
+        {
+            return entry("I" + value, () -> {
+                out.writeByte(3);
+                out.writeInt(value);
+            });
+        }
+
+        int classInfo(String internalName)
+        {
+            var name = utf8(internalName);
+            return entry("C" + internalName, () -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor)
+        {
+            return memberRef(10, owner, name, descriptor);
+        }
+
+        int interfaceMethodRef(String owner, String name, String descriptor)
+        {
+            return memberRef(11, owner, name, descriptor);
+        }
+
+        int fieldRef(String owner, String name, String descriptor)
+        {
+            return memberRef(9, owner, name, descriptor);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor)
+        {
+            var ownerClass = classInfo(owner);
+            var nameIndex = utf8(name);
+            var descriptorIndex = utf8(descriptor);
+            var nameAndType = entry("N" + name + ":" + descriptor, () -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+
+            return entry("M" + tag + owner + "." + name + ":" + descriptor, () -> {
+                out.writeByte(tag);
+                out.writeShort(ownerClass);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        void write(DataOutputStream classOut) throws IOException
+        {
+            classOut.writeShort(count);
+            classOut.write(bytes.toByteArray());
+        }
+
+        private int entry(String id, Writer writer)
+        {
+            var existing = entries.get(id);
+            if (existing != null)
+                return existing;
+
+            try
+            {
+                writer.write();
+            }
+            catch (IOException impossible)
+            {
+                throw new IllegalStateException(impossible);
+            }
+
+            entries.put(id, count);
+            return count++;
+        }
+
+        private interface Writer
+        {
+            void write() throws IOException;
+        }
+    }
+}
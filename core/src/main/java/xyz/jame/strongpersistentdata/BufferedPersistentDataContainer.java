@@ -0,0 +1,229 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A {@link PersistentDataContainer} that buffers sets and removes, and reads through to the buffer before the
+ * container it wraps. Nothing is written to the wrapped container until {@link #commit()}.
+ *
+ * <p>
+ * The keys of the wrapped interface are buffered in arrays, indexed by their slot in the {@link InterfacePlan}. Any
+ * other key is buffered in a map.
+ * </p>
+ *
+ * <p>
+ * Like a real container, values are converted to their primitive type when they are set, and arrays and containers
+ * are copied on the way in and out, so changing a value after setting it (or one that was read) changes nothing.
+ * </p>
+ */
+final class BufferedPersistentDataContainer implements PersistentDataContainer
+{
+    private static final byte UNTOUCHED = 0;
+    private static final byte SET = 1;
+    private static final byte REMOVED = 2;
+
+    private final PersistentDataContainer container;
+    private final InterfacePlan interfacePlan;
+    private final byte[] states;
+    private final PersistentDataType[] types;
+    private final Object[] values;
+    private HashMap<NamespacedKey, Entry> others;
+
+    BufferedPersistentDataContainer(PersistentDataContainer container, InterfacePlan interfacePlan)
+    {
+        this.container = container;
+        this.interfacePlan = interfacePlan;
+        this.states = new byte[interfacePlan.keys.length];
+        this.types = new PersistentDataType[interfacePlan.keys.length];
+        this.values = new Object[interfacePlan.keys.length];
+    }
+
+    @Override
+    public <T, Z> void set(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type, @NotNull Z value)
+    {
+        var primitive = PersistentDataContainers.copyOf(type.toPrimitive(value, getAdapterContext()), getAdapterContext());
+        var primitiveType = PersistentDataContainers.typeOfPrimitive(primitive);
+        var slot = interfacePlan.slotOf(key);
+        if (slot == -1)
+        {
+            others().put(key, new Entry(SET, primitiveType, primitive));
+            return;
+        }
+
+        states[slot] = SET;
+        types[slot] = primitiveType;
+        values[slot] = primitive;
+    }
+
+    @Override
+    public <T, Z> boolean has(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type)
+    {
+        var slot = interfacePlan.slotOf(key);
+        if (slot == -1)
+        {
+            var entry = others != null ? others.get(key) : null;
+            if (entry == null)
+                return container.has(key, type);
+
+            return entry.state == SET && entry.type.getPrimitiveType() == type.getPrimitiveType();
+        }
+
+        if (states[slot] == UNTOUCHED)
+            return container.has(key, type);
+
+        return states[slot] == SET && types[slot].getPrimitiveType() == type.getPrimitiveType();
+    }
+
+    @Override
+    public <T, Z> Z get(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type)
+    {
+        var slot = interfacePlan.slotOf(key);
+        if (slot == -1)
+        {
+            var entry = others != null ? others.get(key) : null;
+            if (entry == null)
+                return container.get(key, type);
+
+            return entry.state == SET ? convert(entry.value, type) : null;
+        }
+
+        if (states[slot] == UNTOUCHED)
+            return container.get(key, type);
+
+        return states[slot] == SET ? convert(values[slot], type) : null;
+    }
+
+    @NotNull
+    @Override
+    public <T, Z> Z getOrDefault(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type, @NotNull Z defaultValue)
+    {
+        var value = get(key, type);
+        return value != null ? value : defaultValue;
+    }
+
+    @NotNull
+    @Override
+    public Set<NamespacedKey> getKeys()
+    {
+        var keys = new HashSet<>(container.getKeys());
+        for (var slot = 0; slot < states.length; slot++)
+        {
+            if (states[slot] == SET)
+                keys.add(interfacePlan.keys[slot]);
+            else if (states[slot] == REMOVED)
+                keys.remove(interfacePlan.keys[slot]);
+        }
+
+        if (others != null)
+        {
+            for (var entry : others.entrySet())
+            {
+                if (entry.getValue().state == SET)
+                    keys.add(entry.getKey());
+                else
+                    keys.remove(entry.getKey());
+            }
+        }
+
+        return keys;
+    }
+
+    @Override
+    public void remove(@NotNull NamespacedKey key)
+    {
+        var slot = interfacePlan.slotOf(key);
+        if (slot == -1)
+        {
+            others().put(key, new Entry(REMOVED, null, null));
+            return;
+        }
+
+        states[slot] = REMOVED;
+        types[slot] = null;
+        values[slot] = null;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return getKeys().isEmpty();
+    }
+
+    @NotNull
+    @Override
+    public PersistentDataAdapterContext getAdapterContext()
+    {
+        return container.getAdapterContext();
+    }
+
+    /**
+     * Apply every buffered set and remove to the wrapped container, once per key.
+     */
+    void commit()
+    {
+        for (var slot = 0; slot < states.length; slot++)
+        {
+            if (states[slot] == SET)
+                container.set(interfacePlan.keys[slot], types[slot], values[slot]);
+            else if (states[slot] == REMOVED)
+                container.remove(interfacePlan.keys[slot]);
+        }
+
+        if (others != null)
+        {
+            for (var entry : others.entrySet())
+            {
+                if (entry.getValue().state == SET)
+                    container.set(entry.getKey(), entry.getValue().type, entry.getValue().value);
+                else
+                    container.remove(entry.getKey());
+            }
+        }
+    }
+
+    private HashMap<NamespacedKey, Entry> others()
+    {
+        if (others == null)
+            others = new HashMap<>();
+
+        return others;
+    }
+
+    /**
+     * Read a buffered primitive value as {@code getType}.
+     */
+    private <Z> Z convert(Object primitive, PersistentDataType<?, Z> getType)
+    {
+        if (!getType.getPrimitiveType().isInstance(primitive))
+            throw new IllegalArgumentException("The buffered value cannot be read as " + getType.getPrimitiveType().getSimpleName() + " as it is a " + primitive.getClass().getSimpleName());
+
+        return fromPrimitive(getType, PersistentDataContainers.copyOf(primitive, getAdapterContext()));
+    }
+
+    private <T, Z> Z fromPrimitive(PersistentDataType<T, Z> type, Object primitive)
+    {
+        return type.fromPrimitive(type.getPrimitiveType().cast(primitive), getAdapterContext());
+    }
+
+    private static final class Entry
+    {
+        final byte state;
+        final PersistentDataType type;
+        final Object value;
+
+        Entry(byte state, PersistentDataType type, Object value)
+        {
+            this.state = state;
+            this.type = type;
+            this.value = value;
+        }
+    }
+}
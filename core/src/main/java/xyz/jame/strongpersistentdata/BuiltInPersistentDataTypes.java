@@ -0,0 +1,43 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The types of common classes that Bukkit has no type for, which are all stored as a single primitive, rather than as
+ * a string.
+ *
+ * <p>
+ * {@link UUID}s are stored as a {@code long[]} of their most and least significant bits, booleans as a
+ * {@link PersistentDataType#BYTE} of 1 or 0, and {@link Instant}s and {@link Duration}s as a
+ * {@link PersistentDataType#LONG} of milliseconds (since the epoch, for instants). Precision finer than a millisecond
+ * is lost. Enums use {@link EnumPersistentDataType}.
+ * </p>
+ */
+final class BuiltInPersistentDataTypes
+{
+    static final PersistentDataType<long[], UUID> UUID = new CollectionPersistentDataTypes.Adapter<>(long[].class, java.util.UUID.class, BuiltInPersistentDataTypes::toLongArray, BuiltInPersistentDataTypes::toUuid);
+    static final PersistentDataType<Byte, Boolean> BOOLEAN = new CollectionPersistentDataTypes.Adapter<>(Byte.class, Boolean.class, value -> value ? (byte) 1 : (byte) 0, value -> value != 0);
+    static final PersistentDataType<Long, Instant> INSTANT = new CollectionPersistentDataTypes.Adapter<>(Long.class, Instant.class, Instant::toEpochMilli, Instant::ofEpochMilli);
+    static final PersistentDataType<Long, Duration> DURATION = new CollectionPersistentDataTypes.Adapter<>(Long.class, Duration.class, Duration::toMillis, Duration::ofMillis);
+
+    private BuiltInPersistentDataTypes()
+    {
+    }
+
+    private static long[] toLongArray(UUID uuid)
+    {
+        return new long[]{uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()};
+    }
+
+    private static UUID toUuid(long[] array)
+    {
+        if (array.length != 2)
+            throw new IllegalStateException("A UUID needs 2 longs, not " + array.length);
+
+        return new UUID(array[0], array[1]);
+    }
+}
@@ -0,0 +1,107 @@
+package xyz.jame.strongpersistentdata;
+
+import java.util.Arrays;
+
+/**
+ * Reads what was written by a {@link ByteOutput}, throwing if it is truncated.
+ */
+final class ByteInput
+{
+    private final byte[] bytes;
+    private int position;
+
+    ByteInput(byte[] bytes)
+    {
+        this.bytes = bytes;
+    }
+
+    byte readByte()
+    {
+        checkLength(1);
+        return bytes[position++];
+    }
+
+    byte[] readBytes(int length)
+    {
+        checkLength(length);
+        var value = Arrays.copyOfRange(bytes, position, position + length);
+        position += length;
+        return value;
+    }
+
+    int readVarInt()
+    {
+        var value = 0;
+        for (var shift = 0; shift < 35; shift += 7)
+        {
+            var b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new IllegalStateException("Encoded variable-length int is too long");
+    }
+
+    long readVarLong()
+    {
+        var value = 0L;
+        for (var shift = 0; shift < 70; shift += 7)
+        {
+            var b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new IllegalStateException("Encoded variable-length long is too long");
+    }
+
+    int readInt()
+    {
+        var value = 0;
+        for (var i = 0; i < 4; i++)
+            value = (value << 8) | (readByte() & 0xFF);
+
+        return value;
+    }
+
+    long readLong()
+    {
+        var value = 0L;
+        for (var i = 0; i < 8; i++)
+            value = (value << 8) | (readByte() & 0xFF);
+
+        return value;
+    }
+
+    /**
+     * @return how many bytes have yet to be read
+     */
+    int remaining()
+    {
+        return bytes.length - position;
+    }
+
+    /**
+     * @return {@code length}, if there are at least that many bytes left. Each element of an array is at least a
+     * byte, so this also stops a corrupt length from allocating a huge array.
+     */
+    int checkLength(int length)
+    {
+        if (length < 0 || length > bytes.length - position)
+            throw new IllegalStateException("Encoded value is truncated");
+
+        return length;
+    }
+
+    static int unzigzag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,84 @@
+package xyz.jame.strongpersistentdata;
+
+import java.util.Arrays;
+
+/**
+ * A growable {@code byte[]}, written with fixed-length and variable-length integers.
+ */
+final class ByteOutput
+{
+    private byte[] bytes = new byte[32];
+    private int size;
+
+    void writeByte(int value)
+    {
+        ensure(1);
+        bytes[size++] = (byte) value;
+    }
+
+    void writeBytes(byte[] value)
+    {
+        ensure(value.length);
+        System.arraycopy(value, 0, bytes, size, value.length);
+        size += value.length;
+    }
+
+    void writeVarInt(int value)
+    {
+        ensure(5);
+        while ((value & ~0x7F) != 0)
+        {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        bytes[size++] = (byte) value;
+    }
+
+    void writeVarLong(long value)
+    {
+        ensure(10);
+        while ((value & ~0x7FL) != 0)
+        {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        bytes[size++] = (byte) value;
+    }
+
+    void writeInt(int value)
+    {
+        ensure(4);
+        for (var shift = 24; shift >= 0; shift -= 8)
+            bytes[size++] = (byte) (value >>> shift);
+    }
+
+    void writeLong(long value)
+    {
+        ensure(8);
+        for (var shift = 56; shift >= 0; shift -= 8)
+            bytes[size++] = (byte) (value >>> shift);
+    }
+
+    byte[] toByteArray()
+    {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void ensure(int length)
+    {
+        if (size + length > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+    }
+
+    static int zigzag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+}
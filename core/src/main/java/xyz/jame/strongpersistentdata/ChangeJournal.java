@@ -0,0 +1,311 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>
+ * The format of the changes drained from a {@link Tracked} object. It starts with the fingerprint of the interface as
+ * four bytes, and the number of changes as a variable-length integer. Each change is the slot of its key in the
+ * {@link InterfacePlan}, a tag byte for the type of the key, and the value, if the tag isn't {@link #REMOVED}.
+ * </p>
+ *
+ * <p>
+ * Values are written like {@link Encoded} fields: integers as zigzag variable-length integers, and strings and arrays
+ * after their length. Nested containers are their number of keys, followed by the namespace, name, tag and value of
+ * each key.
+ * </p>
+ *
+ * <p>
+ * An instance is a journal that has been read, so every change is known to be valid before any of them are applied.
+ * </p>
+ */
+final class ChangeJournal
+{
+    private static final byte REMOVED = 0;
+    private static final byte BYTE = 1;
+    private static final byte SHORT = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte STRING = 7;
+    private static final byte BYTE_ARRAY = 8;
+    private static final byte INTEGER_ARRAY = 9;
+    private static final byte LONG_ARRAY = 10;
+    private static final byte TAG_CONTAINER = 11;
+    private static final byte TAG_CONTAINER_ARRAY = 12;
+
+    private final NamespacedKey[] keys;
+    /**
+     * The value of each key as its primitive type, or null if it was removed.
+     */
+    private final Object[] values;
+
+    private ChangeJournal(NamespacedKey[] keys, Object[] values)
+    {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * @return a hash of every key of {@code interfacePlan}, and its {@link SchemaVersion}, so changes aren't applied
+     * through an interface whose slots are different
+     */
+    static int fingerprintOf(InterfacePlan interfacePlan)
+    {
+        var hash = interfacePlan.schemaVersion;
+        for (var key : interfacePlan.keys)
+            hash = hash * 31 + key.hashCode();
+
+        return hash;
+    }
+
+    /**
+     * @param dirty whether the key at each slot has changed
+     * @param count how many slots are dirty
+     * @return the current value of every dirty key of {@code container}
+     */
+    static byte[] write(InterfacePlan interfacePlan, PersistentDataContainer container, boolean[] dirty, int count)
+    {
+        var output = new ByteOutput();
+        output.writeInt(fingerprintOf(interfacePlan));
+        output.writeVarInt(count);
+
+        for (var slot = 0; slot < dirty.length; slot++)
+        {
+            if (!dirty[slot])
+                continue;
+
+            output.writeVarInt(slot);
+            writeValue(output, PersistentDataContainers.get(container, interfacePlan.keys[slot]));
+        }
+
+        return output.toByteArray();
+    }
+
+    /**
+     * @return the changes read from {@code changes}, which are not applied yet
+     * @throws IllegalStateException if {@code changes} weren't written for the same interface, or are corrupt
+     */
+    static ChangeJournal read(InterfacePlan interfacePlan, byte[] changes, PersistentDataAdapterContext context)
+    {
+        var input = new ByteInput(changes);
+        if (input.readInt() != fingerprintOf(interfacePlan))
+            throw new IllegalStateException("Changes were written by a different version of " + interfacePlan.interfaceType.getName());
+
+        var keys = new NamespacedKey[input.checkLength(input.readVarInt())];
+        var values = new Object[keys.length];
+        for (var i = 0; i < keys.length; i++)
+        {
+            var slot = input.readVarInt();
+            if (slot < 0 || slot >= interfacePlan.keys.length)
+                throw new IllegalStateException("Changes have a key at slot " + slot + ", but " + interfacePlan.interfaceType.getName() + " only has " + interfacePlan.keys.length);
+
+            keys[i] = interfacePlan.keys[slot];
+            values[i] = readValue(input, context);
+        }
+
+        if (input.remaining() != 0)
+            throw new IllegalStateException("Changes have " + input.remaining() + " trailing bytes");
+
+        return new ChangeJournal(keys, values);
+    }
+
+    /**
+     * Set or remove every changed key in {@code container}.
+     */
+    void applyTo(PersistentDataContainer container)
+    {
+        for (var i = 0; i < keys.length; i++)
+        {
+            if (values[i] == null)
+                container.remove(keys[i]);
+            else
+                PersistentDataContainers.set(container, keys[i], values[i]);
+        }
+    }
+
+    private static void writeValue(ByteOutput output, Object value)
+    {
+        if (value == null)
+            output.writeByte(REMOVED);
+        else if (value instanceof Byte)
+        {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) value);
+        }
+        else if (value instanceof Short)
+        {
+            output.writeByte(SHORT);
+            output.writeVarInt(ByteOutput.zigzag((int) (Short) value));
+        }
+        else if (value instanceof Integer)
+        {
+            output.writeByte(INTEGER);
+            output.writeVarInt(ByteOutput.zigzag((Integer) value));
+        }
+        else if (value instanceof Long)
+        {
+            output.writeByte(LONG);
+            output.writeVarLong(ByteOutput.zigzag((Long) value));
+        }
+        else if (value instanceof Float)
+        {
+            output.writeByte(FLOAT);
+            output.writeInt(Float.floatToRawIntBits((Float) value));
+        }
+        else if (value instanceof Double)
+        {
+            output.writeByte(DOUBLE);
+            output.writeLong(Double.doubleToRawLongBits((Double) value));
+        }
+        else if (value instanceof String)
+        {
+            output.writeByte(STRING);
+            writeBytes(output, ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+        else if (value instanceof byte[])
+        {
+            output.writeByte(BYTE_ARRAY);
+            writeBytes(output, (byte[]) value);
+        }
+        else if (value instanceof int[])
+        {
+            output.writeByte(INTEGER_ARRAY);
+            output.writeVarInt(((int[]) value).length);
+            for (var element : (int[]) value)
+                output.writeVarInt(ByteOutput.zigzag(element));
+        }
+        else if (value instanceof long[])
+        {
+            output.writeByte(LONG_ARRAY);
+            output.writeVarInt(((long[]) value).length);
+            for (var element : (long[]) value)
+                output.writeVarLong(ByteOutput.zigzag(element));
+        }
+        else if (value instanceof PersistentDataContainer)
+        {
+            output.writeByte(TAG_CONTAINER);
+            writeContainer(output, (PersistentDataContainer) value);
+        }
+        else if (value instanceof PersistentDataContainer[])
+        {
+            output.writeByte(TAG_CONTAINER_ARRAY);
+            output.writeVarInt(((PersistentDataContainer[]) value).length);
+            for (var element : (PersistentDataContainer[]) value)
+                writeContainer(output, element);
+        }
+        else
+            throw new IllegalStateException("Not a primitive value: " + value);
+    }
+
+    private static void writeContainer(ByteOutput output, PersistentDataContainer container)
+    {
+        var keys = container.getKeys().toArray(new NamespacedKey[0]);
+        var values = new Object[keys.length];
+        var count = 0;
+        for (var i = 0; i < keys.length; i++)
+        {
+            values[i] = PersistentDataContainers.get(container, keys[i]);
+            if (values[i] != null)
+                count++;
+        }
+
+        output.writeVarInt(count);
+        for (var i = 0; i < keys.length; i++)
+        {
+            if (values[i] == null)
+                continue;
+
+            writeBytes(output, keys[i].getNamespace().getBytes(StandardCharsets.UTF_8));
+            writeBytes(output, keys[i].getKey().getBytes(StandardCharsets.UTF_8));
+            writeValue(output, values[i]);
+        }
+    }
+
+    private static void writeBytes(ByteOutput output, byte[] bytes)
+    {
+        output.writeVarInt(bytes.length);
+        output.writeBytes(bytes);
+    }
+
+    private static Object readValue(ByteInput input, PersistentDataAdapterContext context)
+    {
+        var tag = input.readByte();
+        switch (tag)
+        {
+            case REMOVED:
+                return null;
+            case BYTE:
+                return input.readByte();
+            case SHORT:
+                return (short) ByteInput.unzigzag(input.readVarInt());
+            case INTEGER:
+                return ByteInput.unzigzag(input.readVarInt());
+            case LONG:
+                return ByteInput.unzigzag(input.readVarLong());
+            case FLOAT:
+                return Float.intBitsToFloat(input.readInt());
+            case DOUBLE:
+                return Double.longBitsToDouble(input.readLong());
+            case STRING:
+                return new String(readBytes(input), StandardCharsets.UTF_8);
+            case BYTE_ARRAY:
+                return readBytes(input);
+            case INTEGER_ARRAY:
+            {
+                var array = new int[input.checkLength(input.readVarInt())];
+                for (var i = 0; i < array.length; i++)
+                    array[i] = ByteInput.unzigzag(input.readVarInt());
+
+                return array;
+            }
+            case LONG_ARRAY:
+            {
+                var array = new long[input.checkLength(input.readVarInt())];
+                for (var i = 0; i < array.length; i++)
+                    array[i] = ByteInput.unzigzag(input.readVarLong());
+
+                return array;
+            }
+            case TAG_CONTAINER:
+                return readContainer(input, context);
+            case TAG_CONTAINER_ARRAY:
+            {
+                var array = new PersistentDataContainer[input.checkLength(input.readVarInt())];
+                for (var i = 0; i < array.length; i++)
+                    array[i] = readContainer(input, context);
+
+                return array;
+            }
+            default:
+                throw new IllegalStateException("Changes have unknown tag " + tag);
+        }
+    }
+
+    private static PersistentDataContainer readContainer(ByteInput input, PersistentDataAdapterContext context)
+    {
+        var container = context.newPersistentDataContainer();
+        var count = input.checkLength(input.readVarInt());
+        for (var i = 0; i < count; i++)
+        {
+            var key = new NamespacedKey(new String(readBytes(input), StandardCharsets.UTF_8), new String(readBytes(input), StandardCharsets.UTF_8));
+            var value = readValue(input, context);
+            if (value == null)
+                throw new IllegalStateException("Changes have a removed key within a container");
+
+            PersistentDataContainers.set(container, key, value);
+        }
+
+        return container;
+    }
+
+    private static byte[] readBytes(ByteInput input)
+    {
+        return input.readBytes(input.checkLength(input.readVarInt()));
+    }
+}
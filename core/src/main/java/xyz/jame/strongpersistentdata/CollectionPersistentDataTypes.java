@@ -0,0 +1,157 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The types of boxed arrays, {@link IntList}, {@link LongList}, and {@code List}s of {@link Integer} and {@link Long}.
+ * These are all stored as primitive arrays.
+ *
+ * <p>
+ * Arrays read from a container are already a copy, so the lists wrap them without copying again.
+ * </p>
+ */
+final class CollectionPersistentDataTypes
+{
+    static final PersistentDataType<byte[], Byte[]> BOXED_BYTE_ARRAY = new Adapter<>(byte[].class, Byte[].class, CollectionPersistentDataTypes::unbox, CollectionPersistentDataTypes::box);
+    static final PersistentDataType<int[], Integer[]> BOXED_INTEGER_ARRAY = new Adapter<>(int[].class, Integer[].class, CollectionPersistentDataTypes::unbox, CollectionPersistentDataTypes::box);
+    static final PersistentDataType<long[], Long[]> BOXED_LONG_ARRAY = new Adapter<>(long[].class, Long[].class, CollectionPersistentDataTypes::unbox, CollectionPersistentDataTypes::box);
+    static final PersistentDataType<int[], IntList> INT_LIST = new Adapter<>(int[].class, IntList.class, IntList::elements, IntList::wrap);
+    static final PersistentDataType<long[], LongList> LONG_LIST = new Adapter<>(long[].class, LongList.class, LongList::elements, LongList::wrap);
+    @SuppressWarnings("unchecked")
+    static final PersistentDataType<int[], List<Integer>> LIST_OF_INTEGER = new Adapter<>(int[].class, (Class<List<Integer>>) (Class<?>) List.class, CollectionPersistentDataTypes::toIntArray, IntList::wrap);
+    @SuppressWarnings("unchecked")
+    static final PersistentDataType<long[], List<Long>> LIST_OF_LONG = new Adapter<>(long[].class, (Class<List<Long>>) (Class<?>) List.class, CollectionPersistentDataTypes::toLongArray, LongList::wrap);
+
+    private CollectionPersistentDataTypes()
+    {
+    }
+
+    private static int[] toIntArray(List<Integer> list)
+    {
+        if (list instanceof IntList)
+            return ((IntList) list).elements();
+
+        var array = new int[list.size()];
+        var i = 0;
+        for (var element : list)
+            array[i++] = element;
+
+        return array;
+    }
+
+    private static long[] toLongArray(List<Long> list)
+    {
+        if (list instanceof LongList)
+            return ((LongList) list).elements();
+
+        var array = new long[list.size()];
+        var i = 0;
+        for (var element : list)
+            array[i++] = element;
+
+        return array;
+    }
+
+    private static byte[] unbox(Byte[] boxed)
+    {
+        var array = new byte[boxed.length];
+        for (var i = 0; i < array.length; i++)
+            array[i] = boxed[i];
+
+        return array;
+    }
+
+    private static int[] unbox(Integer[] boxed)
+    {
+        var array = new int[boxed.length];
+        for (var i = 0; i < array.length; i++)
+            array[i] = boxed[i];
+
+        return array;
+    }
+
+    private static long[] unbox(Long[] boxed)
+    {
+        var array = new long[boxed.length];
+        for (var i = 0; i < array.length; i++)
+            array[i] = boxed[i];
+
+        return array;
+    }
+
+    private static Byte[] box(byte[] array)
+    {
+        var boxed = new Byte[array.length];
+        for (var i = 0; i < array.length; i++)
+            boxed[i] = array[i];
+
+        return boxed;
+    }
+
+    private static Integer[] box(int[] array)
+    {
+        var boxed = new Integer[array.length];
+        for (var i = 0; i < array.length; i++)
+            boxed[i] = array[i];
+
+        return boxed;
+    }
+
+    private static Long[] box(long[] array)
+    {
+        var boxed = new Long[array.length];
+        for (var i = 0; i < array.length; i++)
+            boxed[i] = array[i];
+
+        return boxed;
+    }
+
+    static final class Adapter<T, Z> implements PersistentDataType<T, Z>
+    {
+        private final Class<T> primitiveType;
+        private final Class<Z> complexType;
+        private final Function<Z, T> toPrimitive;
+        private final Function<T, Z> fromPrimitive;
+
+        Adapter(Class<T> primitiveType, Class<Z> complexType, Function<Z, T> toPrimitive, Function<T, Z> fromPrimitive)
+        {
+            this.primitiveType = primitiveType;
+            this.complexType = complexType;
+            this.toPrimitive = toPrimitive;
+            this.fromPrimitive = fromPrimitive;
+        }
+
+        @NotNull
+        @Override
+        public Class<T> getPrimitiveType()
+        {
+            return primitiveType;
+        }
+
+        @NotNull
+        @Override
+        public Class<Z> getComplexType()
+        {
+            return complexType;
+        }
+
+        @NotNull
+        @Override
+        public T toPrimitive(@NotNull Z complex, @NotNull PersistentDataAdapterContext context)
+        {
+            return toPrimitive.apply(complex);
+        }
+
+        @NotNull
+        @Override
+        public Z fromPrimitive(@NotNull T primitive, @NotNull PersistentDataAdapterContext context)
+        {
+            return fromPrimitive.apply(primitive);
+        }
+    }
+}
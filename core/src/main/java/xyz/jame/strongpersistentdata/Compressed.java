@@ -0,0 +1,37 @@
+package xyz.jame.strongpersistentdata;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Compress the value of a {@code String} or {@code byte[]} getter and setter with Deflate, once it is at least
+ * {@link #threshold()} long. Both the getter and the setter must be annotated.
+ * </p>
+ *
+ * <p>
+ * Compressed values are stored as a {@link org.bukkit.persistence.PersistentDataType#TAG_CONTAINER}, holding the
+ * compressed bytes. Values that aren't compressed (as they are shorter than the threshold, or don't get any smaller) are
+ * stored as a {@link org.bukkit.persistence.PersistentDataType#STRING} or
+ * {@link org.bukkit.persistence.PersistentDataType#BYTE_ARRAY}, like they would be without this annotation, so values
+ * written before it was added are still read.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface Compressed
+{
+    /**
+     * @return the length (in characters, or bytes for {@code byte[]}) at which values are compressed. Values which don't
+     * get any smaller are stored uncompressed anyway.
+     */
+    int threshold() default 256;
+
+    /**
+     * @return true to keep the decompressed value in the wrapped object, until it writes to the key. Only use this when
+     * nothing else writes to the key while the wrapped object is in use, as those writes won't be seen.
+     */
+    boolean cache() default false;
+}
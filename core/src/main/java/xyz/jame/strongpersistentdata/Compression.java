@@ -0,0 +1,337 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ * How a {@link Compressed} key is read and written. A compressed value is stored as a
+ * {@link PersistentDataType#TAG_CONTAINER} holding a {@code byte[]} at {@link #DEFLATED}, which is the length of the value
+ * as a variable-length integer, followed by the value compressed with Deflate. Values that aren't compressed are stored
+ * like they would be without the annotation, as a {@link PersistentDataType#STRING} or
+ * {@link PersistentDataType#BYTE_ARRAY}.
+ * </p>
+ *
+ * <p>
+ * As neither {@code String} nor {@code byte[]} values are ever stored as a container, a compressed value can't be mistaken
+ * for one that isn't, and any {@code byte[]} is read as it is, such as those written before the annotation was added.
+ * </p>
+ *
+ * <p>
+ * The {@link Deflater}s and {@link Inflater}s are kept by the {@link Codecs} of the {@link StrongPersistentData}, and
+ * reused by any thread, so they are only created when more threads compress at once than ever have before.
+ * </p>
+ */
+final class Compression
+{
+    /**
+     * The key of the compressed bytes, within the container of a compressed value.
+     */
+    static final String DEFLATED = "deflated";
+
+    /**
+     * True if the value is a {@code String}, otherwise it is a {@code byte[]}.
+     */
+    private final boolean string;
+    private final int threshold;
+    final boolean cache;
+    private final NamespacedKey deflatedKey;
+    private final Codecs codecs;
+
+    Compression(boolean string, Compressed compressedAnnotation, StrongPersistentData strongPersistentData)
+    {
+        this.string = string;
+        this.threshold = compressedAnnotation.threshold();
+        this.cache = compressedAnnotation.cache();
+        this.deflatedKey = new NamespacedKey(strongPersistentData.plugin, DEFLATED);
+        this.codecs = strongPersistentData.codecs;
+    }
+
+    /**
+     * @return the value of {@code key}, or null if it is missing
+     */
+    Object read(PersistentDataContainer container, NamespacedKey key)
+    {
+        // A container throws when a key is read as a type it doesn't hold, so each type is checked first.
+        if (container.has(key, PersistentDataType.TAG_CONTAINER))
+        {
+            var compressed = container.get(key, PersistentDataType.TAG_CONTAINER);
+            if (!compressed.has(deflatedKey, PersistentDataType.BYTE_ARRAY))
+                throw new IllegalStateException("Compressed value of " + key + " has no " + deflatedKey);
+
+            var bytes = inflate(compressed.get(deflatedKey, PersistentDataType.BYTE_ARRAY));
+            return string ? new String(bytes, StandardCharsets.UTF_8) : bytes;
+        }
+
+        if (container.has(key, PersistentDataType.BYTE_ARRAY))
+        {
+            var bytes = container.get(key, PersistentDataType.BYTE_ARRAY);
+            return string ? new String(bytes, StandardCharsets.UTF_8) : bytes;
+        }
+
+        return string && container.has(key, PersistentDataType.STRING) ? container.get(key, PersistentDataType.STRING) : null;
+    }
+
+    void write(PersistentDataContainer container, NamespacedKey key, Object value)
+    {
+        if (value == null)
+            throw new IllegalStateException("Null passed to @Compressed setter, which isn't annotated with @NullAction(Remove)");
+
+        if (string && ((String) value).length() < threshold)
+        {
+            container.set(key, PersistentDataType.STRING, (String) value);
+            return;
+        }
+
+        var bytes = string ? ((String) value).getBytes(StandardCharsets.UTF_8) : (byte[]) value;
+        var deflated = bytes.length >= threshold ? deflate(bytes) : null;
+        if (deflated != null)
+        {
+            var compressed = container.getAdapterContext().newPersistentDataContainer();
+            compressed.set(deflatedKey, PersistentDataType.BYTE_ARRAY, deflated);
+            container.set(key, PersistentDataType.TAG_CONTAINER, compressed);
+        }
+        else if (string)
+            container.set(key, PersistentDataType.STRING, (String) value);
+        else
+            container.set(key, PersistentDataType.BYTE_ARRAY, bytes);
+    }
+
+    boolean has(PersistentDataContainer container, NamespacedKey key)
+    {
+        return container.has(key, PersistentDataType.TAG_CONTAINER)
+                || container.has(key, PersistentDataType.BYTE_ARRAY)
+                || (string && container.has(key, PersistentDataType.STRING));
+    }
+
+    /**
+     * @return {@code value}, or a copy of it if it can be modified, for returning a cached value
+     */
+    static Object copyOf(Object value)
+    {
+        return value instanceof byte[] ? ((byte[]) value).clone() : value;
+    }
+
+    /**
+     * @return the length of {@code bytes} followed by them compressed, or null if that isn't smaller than them
+     */
+    private byte[] deflate(byte[] bytes)
+    {
+        var codec = codecs.acquire();
+        try
+        {
+            var deflatedLength = codec.deflate(bytes);
+            var headerLength = varIntLength(bytes.length);
+            if (headerLength + deflatedLength >= bytes.length)
+                return null;
+
+            var deflated = new byte[headerLength + deflatedLength];
+            writeVarInt(deflated, 0, bytes.length);
+            System.arraycopy(codec.buffer, 0, deflated, headerLength, deflatedLength);
+            return deflated;
+        }
+        finally
+        {
+            codecs.release(codec);
+        }
+    }
+
+    private byte[] inflate(byte[] deflated)
+    {
+        var length = 0;
+        var position = 0;
+        for (var shift = 0; ; shift += 7)
+        {
+            if (position == deflated.length || shift == 35)
+                throw new IllegalStateException("Compressed value has a corrupt length");
+
+            var b = deflated[position++];
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                break;
+        }
+
+        // Deflate can't compress by more than about 1032 to 1, which stops a corrupt length from allocating too much.
+        if (length < 0 || length > (deflated.length - position) * 1032L + 1024)
+            throw new IllegalStateException("Compressed value has a corrupt length");
+
+        var codec = codecs.acquire();
+        try
+        {
+            return codec.inflate(deflated, position, length);
+        }
+        finally
+        {
+            codecs.release(codec);
+        }
+    }
+
+    private static int varIntLength(int value)
+    {
+        var length = 1;
+        while ((value & ~0x7F) != 0)
+        {
+            value >>>= 7;
+            length++;
+        }
+
+        return length;
+    }
+
+    private static void writeVarInt(byte[] bytes, int position, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        bytes[position] = (byte) value;
+    }
+
+    /**
+     * The idle {@link Codec}s of a {@link StrongPersistentData}. Each compression takes one (or creates one, if none are
+     * idle) and gives it back, and {@link #close()} ends them all, so their native memory isn't kept once the plugin is
+     * disabled.
+     */
+    static final class Codecs
+    {
+        /**
+         * At most this many codecs are kept idle, and any more given back are ended.
+         */
+        private static final int MAX_IDLE = 4;
+
+        private final ArrayDeque<Codec> idle = new ArrayDeque<>();
+        private boolean closed;
+
+        synchronized Codec acquire()
+        {
+            var codec = idle.poll();
+            return codec != null ? codec : new Codec();
+        }
+
+        void release(Codec codec)
+        {
+            codec.shrink();
+            synchronized (this)
+            {
+                if (!closed && idle.size() < MAX_IDLE)
+                {
+                    idle.push(codec);
+                    return;
+                }
+            }
+
+            codec.end();
+        }
+
+        /**
+         * End every idle codec, and those still in use once they are given back.
+         */
+        void close()
+        {
+            synchronized (this)
+            {
+                closed = true;
+            }
+
+            while (true)
+            {
+                Codec codec;
+                synchronized (this)
+                {
+                    codec = idle.poll();
+                }
+
+                if (codec == null)
+                    return;
+
+                codec.end();
+            }
+        }
+    }
+
+    private static final class Codec
+    {
+        /**
+         * The buffer is shrunk back to this size when it has grown past {@link #MAX_BUFFER}, so one large value doesn't
+         * keep it large.
+         */
+        private static final int BUFFER = 1024;
+        private static final int MAX_BUFFER = 64 * 1024;
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final Inflater inflater = new Inflater(true);
+        private byte[] buffer = new byte[BUFFER];
+
+        void shrink()
+        {
+            if (buffer.length > MAX_BUFFER)
+                buffer = new byte[BUFFER];
+        }
+
+        void end()
+        {
+            deflater.end();
+            inflater.end();
+        }
+
+        /**
+         * @return the length of {@code bytes} once compressed, which are at the start of {@link #buffer}
+         */
+        int deflate(byte[] bytes)
+        {
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            var length = 0;
+            while (!deflater.finished())
+            {
+                if (length == buffer.length)
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+
+            return length;
+        }
+
+        byte[] inflate(byte[] encoded, int offset, int length)
+        {
+            inflater.reset();
+            inflater.setInput(encoded, offset, encoded.length - offset);
+
+            var bytes = new byte[length];
+            try
+            {
+                var inflated = 0;
+                while (inflated < length)
+                {
+                    var count = inflater.inflate(bytes, inflated, length - inflated);
+                    if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                        break;
+
+                    inflated += count;
+                }
+
+                if (inflated != length)
+                    throw new IllegalStateException("Compressed value is truncated");
+            }
+            catch (DataFormatException e)
+            {
+                throw new IllegalStateException("Compressed value is corrupt", e);
+            }
+
+            return bytes;
+        }
+    }
+}
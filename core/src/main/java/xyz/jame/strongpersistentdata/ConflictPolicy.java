@@ -0,0 +1,21 @@
+package xyz.jame.strongpersistentdata;
+
+/**
+ * What {@link Detached#merge(ConflictPolicy)} does with a key that was changed by both the detached copy and the
+ * container it was detached from.
+ */
+public enum ConflictPolicy
+{
+    /**
+     * The value of the detached copy replaces the value of the container.
+     */
+    KEEP_DETACHED,
+    /**
+     * The value of the container is kept, and the write of the detached copy is dropped.
+     */
+    KEEP_CONTAINER,
+    /**
+     * Nothing is merged, and an {@link IllegalStateException} is thrown.
+     */
+    FAIL
+}
@@ -0,0 +1,55 @@
+package xyz.jame.strongpersistentdata;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Marks a counter method, which reads and writes its key in a single invocation. The counter methods of a key named
+ * {@code kills} are:
+ * </p>
+ *
+ * <ul>
+ * <li>{@code void addKills(int delta)}, which adds {@code delta}</li>
+ * <li>{@code void incrementKills()} and {@code void decrementKills()}, which add 1 and -1</li>
+ * <li>{@code boolean compareAndSetKills(int expect, int update)}, which sets {@code update} only if the key holds
+ * {@code expect}, and returns whether it did</li>
+ * </ul>
+ *
+ * <p>
+ * Adding methods may instead return the type of the key, in which case they return the new value. Missing keys count
+ * as the {@link DefaultValue} of their getter, or otherwise 0 (or null, for compareAndSet).
+ * </p>
+ *
+ * <p>
+ * Methods of these shapes are already counter methods when the key has a setter (which the type of the key is deduced
+ * from), or when they are annotated with {@link ExplicitType}. This annotation is only needed when there is neither, or
+ * to {@link #coalesce()}.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface Counter
+{
+    /**
+     * <p>
+     * Keep what is added in memory, and only add the total to the container once per tick (or when
+     * {@link StrongPersistentData#flushCounters()} is called). Until then, getters of the key do not see what was added,
+     * but the value returned by this method does.
+     * </p>
+     *
+     * <p>
+     * This only applies to objects wrapped directly from a container. Those returned by {@link Wrap} getters, and those
+     * used by {@link StrongPersistentData#edit}, always write immediately.
+     * </p>
+     *
+     * <p>
+     * Only wrap containers of entities, chunks and worlds with methods that coalesce. The containers of
+     * {@code ItemMeta} and block states are copies, which have to be applied back to their holder, so anything flushed
+     * into them later is lost.
+     * </p>
+     */
+    boolean coalesce() default false;
+}
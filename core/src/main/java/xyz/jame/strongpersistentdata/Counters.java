@@ -0,0 +1,167 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * The arithmetic of {@link Counter} methods, and the deltas of {@link Counter#coalesce()} methods that have yet to be
+ * added to their containers.
+ *
+ * <p>
+ * Pending deltas are kept per container instance, which is the same instance for every call to
+ * {@code getPersistentDataContainer()} of an entity, chunk or world. They are flushed by a task scheduled on the main
+ * thread when the first delta is added, through {@link PersistentDataContainerProxy#written} of every handler that added
+ * to the container, as any other write is.
+ * </p>
+ *
+ * <p>
+ * Holders that return a new container each time (or a copy that has to be applied back), such as {@code ItemMeta} and
+ * block states, would lose what is flushed, so their counters must not coalesce. See {@link Counter#coalesce()}.
+ * </p>
+ */
+final class Counters
+{
+    private final Plugin plugin;
+    private IdentityHashMap<PersistentDataContainer, Deltas> pending = new IdentityHashMap<>();
+    private boolean scheduled;
+
+    Counters(Plugin plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Add {@code delta} to the pending delta of {@code plan} for the container of {@code handler}.
+     *
+     * @return the value of the key once flushed, or null if the method does not return it
+     */
+    synchronized Object add(PersistentDataContainerProxy handler, MethodPlan plan, Number delta)
+    {
+        var container = handler.container;
+        var deltas = pending.get(container);
+        if (deltas == null)
+        {
+            deltas = new Deltas();
+            pending.put(container, deltas);
+        }
+
+        if (!deltas.handlers.contains(handler))
+            deltas.handlers.add(handler);
+
+        var entry = deltas.keys.get(plan.key);
+        if (entry == null)
+        {
+            entry = new Pending(plan);
+            deltas.keys.put(plan.key, entry);
+        }
+
+        entry.add(delta);
+
+        if (!scheduled)
+        {
+            scheduled = true;
+            plugin.getServer().getScheduler().runTask(plugin, this::flush);
+        }
+
+        if (plan.method.getReturnType() == Void.TYPE)
+            return null;
+
+        return add(plan, container.get(plan.key, plan.persistentType), entry.total());
+    }
+
+    /**
+     * Add every pending delta to its container. This must be called on the main thread.
+     */
+    void flush()
+    {
+        IdentityHashMap<PersistentDataContainer, Deltas> flushing;
+        synchronized (this)
+        {
+            flushing = pending;
+            pending = new IdentityHashMap<>();
+            scheduled = false;
+        }
+
+        for (var containerEntry : flushing.entrySet())
+        {
+            var container = containerEntry.getKey();
+            var deltas = containerEntry.getValue();
+            for (var entry : deltas.keys.values())
+            {
+                var plan = entry.plan;
+                container.set(plan.key, plan.persistentType, add(plan, container.get(plan.key, plan.persistentType), entry.total()));
+                for (var handler : deltas.handlers)
+                    handler.written(plan.key, null);
+            }
+        }
+    }
+
+    /**
+     * @return {@code current} (or the default of {@code plan}, if it is null) plus {@code delta}, as the type of the key
+     */
+    static Object add(MethodPlan plan, Object current, Number delta)
+    {
+        if (current == null)
+            current = plan.defaultValue;
+
+        var type = plan.persistentType.getComplexType();
+        if (type == Integer.class)
+            return (Integer) current + delta.intValue();
+        if (type == Long.class)
+            return (Long) current + delta.longValue();
+        if (type == Byte.class)
+            return (byte) ((Byte) current + delta.byteValue());
+        if (type == Short.class)
+            return (short) ((Short) current + delta.shortValue());
+        if (type == Float.class)
+            return (Float) current + delta.floatValue();
+
+        return (Double) current + delta.doubleValue();
+    }
+
+    /**
+     * The pending deltas of a container, and the handlers that added them.
+     */
+    private static final class Deltas
+    {
+        final HashMap<NamespacedKey, Pending> keys = new HashMap<>();
+        /**
+         * Usually just one, so a list is searched rather than hashed.
+         */
+        final ArrayList<PersistentDataContainerProxy> handlers = new ArrayList<>(1);
+    }
+
+    private static final class Pending
+    {
+        final MethodPlan plan;
+        final boolean floating;
+        long whole;
+        double fractional;
+
+        Pending(MethodPlan plan)
+        {
+            var type = plan.persistentType.getComplexType();
+            this.plan = plan;
+            this.floating = type == Float.class || type == Double.class;
+        }
+
+        void add(Number delta)
+        {
+            // Integral deltas wrap around the same way when they are summed first.
+            if (floating)
+                fractional += delta.doubleValue();
+            else
+                whole += delta.longValue();
+        }
+
+        Number total()
+        {
+            return floating ? (Number) fractional : (Number) whole;
+        }
+    }
+}
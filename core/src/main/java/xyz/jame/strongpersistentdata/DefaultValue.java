@@ -35,6 +35,21 @@ public class DefaultValue
         double value();
     }
 
+    /**
+     * Use this annotation if the return type is {@link java.lang.Boolean#TYPE}.
+     */
+    @Target(ElementType.METHOD)
+    @Retention(value = RetentionPolicy.RUNTIME)
+    public @interface Boolean
+    {
+        boolean value();
+    }
+
+    /**
+     * Use this annotation if the return type is {@link java.lang.String}, an enum (the name of the constant),
+     * {@link java.util.UUID}, or {@link java.time.Instant} or {@link java.time.Duration} (in ISO-8601, such as
+     * {@code "PT5M"}).
+     */
     @Target(ElementType.METHOD)
     @Retention(value = RetentionPolicy.RUNTIME)
     public @interface String
@@ -0,0 +1,71 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * A copy of a {@link PersistentDataContainer} on the heap, wrapped to an interface, created by
+ * {@link StrongPersistentData#detach(PersistentDataContainer, Class)}.
+ *
+ * <p>
+ * Unlike the container it was copied from, {@link #get()} can be read and written from any thread, including several at
+ * once. Nothing is written to the container until {@link #merge(ConflictPolicy)}, which should be called on the main
+ * thread.
+ * </p>
+ *
+ * @param <T> the wrapped interface
+ */
+public final class Detached<T>
+{
+    private final StrongPersistentData strongPersistentData;
+    private final Class<T> interfaceType;
+    private final PersistentDataContainer container;
+    private final DetachedPersistentDataContainer detached;
+    private final T view;
+
+    Detached(StrongPersistentData strongPersistentData, Class<T> interfaceType, PersistentDataContainer container, DetachedPersistentDataContainer detached, T view)
+    {
+        this.strongPersistentData = strongPersistentData;
+        this.interfaceType = interfaceType;
+        this.container = container;
+        this.detached = detached;
+        this.view = view;
+    }
+
+    /**
+     * @return the wrapped interface, which reads and writes the detached copy
+     */
+    @NotNull
+    public T get()
+    {
+        return view;
+    }
+
+    /**
+     * <p>
+     * Apply every key written to since this was detached (or last merged) to the container it was detached from, in a
+     * single pass. Keys that were only changed by the container are left alone, and are not read back into the detached
+     * copy.
+     * </p>
+     *
+     * <p>
+     * If the container has also changed a written key to something else since then, the key conflicts, and
+     * {@code policy} decides which value is kept. With {@link ConflictPolicy#FAIL}, nothing is applied.
+     * </p>
+     *
+     * @param policy what to do with conflicting keys
+     * @return the keys that conflicted
+     * @throws IllegalStateException if a key conflicted and {@code policy} is {@link ConflictPolicy#FAIL}
+     */
+    @NotNull
+    public Set<NamespacedKey> merge(@NotNull ConflictPolicy policy)
+    {
+        var conflicts = detached.merge(container, policy);
+        strongPersistentData.reindex(container, interfaceType);
+
+        return conflicts;
+    }
+}
@@ -0,0 +1,135 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A thread-safe copy of a {@link PersistentDataContainer}, which remembers what each key held before it was first
+ * written to, so the writes can later be merged back into the container it was copied from.
+ *
+ * <p>
+ * Every method synchronizes on this container, which is also the lock held by each {@link DetachedProxy} of it.
+ * </p>
+ */
+final class DetachedPersistentDataContainer implements PersistentDataContainer
+{
+    private final MemoryPersistentDataContainer values = new MemoryPersistentDataContainer();
+    /**
+     * What each written key held before it was first written to, as its primitive type. Null if it did not exist.
+     */
+    private final HashMap<NamespacedKey, Object> base = new HashMap<>();
+
+    /**
+     * Copy every key of {@code container}. Like any other use of it, this should be done on the main thread.
+     *
+     * @throws IllegalStateException if a key holds a tag that can't be copied, which would otherwise be lost
+     */
+    DetachedPersistentDataContainer(PersistentDataContainer container)
+    {
+        for (var key : container.getKeys())
+            PersistentDataContainers.set(values, key, PersistentDataContainers.getExisting(container, key));
+    }
+
+    @Override
+    public synchronized <T, Z> void set(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type, @NotNull Z value)
+    {
+        written(key);
+        // The value may be a container of a different adapter context, such as one read from the container we were
+        // copied from.
+        PersistentDataContainers.set(values, key, type.toPrimitive(value, values));
+    }
+
+    @Override
+    public synchronized <T, Z> boolean has(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type)
+    {
+        return values.has(key, type);
+    }
+
+    @Override
+    public synchronized <T, Z> Z get(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type)
+    {
+        return values.get(key, type);
+    }
+
+    @NotNull
+    @Override
+    public synchronized <T, Z> Z getOrDefault(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type, @NotNull Z defaultValue)
+    {
+        return values.getOrDefault(key, type, defaultValue);
+    }
+
+    @NotNull
+    @Override
+    public synchronized Set<NamespacedKey> getKeys()
+    {
+        return values.getKeys();
+    }
+
+    @Override
+    public synchronized void remove(@NotNull NamespacedKey key)
+    {
+        written(key);
+        values.remove(key);
+    }
+
+    @Override
+    public synchronized boolean isEmpty()
+    {
+        return values.isEmpty();
+    }
+
+    @NotNull
+    @Override
+    public PersistentDataAdapterContext getAdapterContext()
+    {
+        return values;
+    }
+
+    /**
+     * Apply every key we have written to since we were copied (or last merged) to {@code container}. A key conflicts if
+     * {@code container} has also changed it to something else in the meantime, in which case {@code policy} decides.
+     *
+     * @return the keys that conflicted
+     */
+    synchronized Set<NamespacedKey> merge(PersistentDataContainer container, ConflictPolicy policy)
+    {
+        var conflicts = new HashSet<NamespacedKey>();
+        for (var entry : base.entrySet())
+        {
+            var current = PersistentDataContainers.get(container, entry.getKey());
+            if (!PersistentDataContainers.equals(current, entry.getValue()) && !PersistentDataContainers.equals(current, PersistentDataContainers.get(values, entry.getKey())))
+                conflicts.add(entry.getKey());
+        }
+
+        if (!conflicts.isEmpty() && policy == ConflictPolicy.FAIL)
+            throw new IllegalStateException("Keys were changed by both the detached copy and the container: " + conflicts);
+
+        for (var key : base.keySet())
+        {
+            if (policy == ConflictPolicy.KEEP_CONTAINER && conflicts.contains(key))
+                continue;
+
+            var value = PersistentDataContainers.get(values, key);
+            if (value != null)
+                PersistentDataContainers.set(container, key, value);
+            else
+                container.remove(key);
+        }
+
+        base.clear();
+        return conflicts;
+    }
+
+    private void written(NamespacedKey key)
+    {
+        if (!base.containsKey(key))
+            base.put(key, PersistentDataContainers.get(values, key));
+    }
+}
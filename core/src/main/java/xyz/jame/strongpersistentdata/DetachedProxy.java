@@ -0,0 +1,52 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataContainer;
+
+/**
+ * Handles a wrapped object that was created by {@link StrongPersistentData#detach(PersistentDataContainer, Class)}, or
+ * one of its {@link Wrap} children.
+ *
+ * <p>
+ * Every invocation holds the lock of the whole detached tree, which is its {@link DetachedPersistentDataContainer}. That
+ * also guards the children we cache, and the copies our children write back to us.
+ * </p>
+ */
+final class DetachedProxy extends PersistentDataContainerProxy
+{
+    private final Object lock;
+
+    DetachedProxy(PersistentDataContainer container, StrongPersistentData strongPersistentData, InterfacePlan interfacePlan, Link link, Object lock)
+    {
+        super(container, strongPersistentData, interfacePlan, link);
+        this.lock = lock;
+    }
+
+    @Override
+    Object invoke(Object self, MethodPlan plan, Object argument)
+    {
+        synchronized (lock)
+        {
+            return super.invoke(self, plan, argument);
+        }
+    }
+
+    @Override
+    boolean allowsDirect()
+    {
+        // Every invocation has to hold the lock.
+        return false;
+    }
+
+    @Override
+    boolean coalescesCounters()
+    {
+        // Coalesced counters are flushed without the lock, and into the detached copy rather than the holder.
+        return false;
+    }
+
+    @Override
+    PersistentDataContainerProxy child(PersistentDataContainer container, InterfacePlan interfacePlan, Link link)
+    {
+        return new DetachedProxy(container, strongPersistentData, interfacePlan, link, lock);
+    }
+}
@@ -0,0 +1,44 @@
+package xyz.jame.strongpersistentdata;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Store a class as a single {@link org.bukkit.persistence.PersistentDataType#BYTE_ARRAY}, instead of writing a
+ * {@link org.bukkit.persistence.PersistentDataType} for it, or nesting a container. Getters and setters of the class
+ * use {@link EncodedPersistentDataType} automatically, without registering it.
+ * </p>
+ *
+ * <p>
+ * Every field that isn't static or transient is encoded, including those of superclasses, without their names. They are
+ * encoded in the order given by {@link #fields()}, or else in the order of their names, as the order they are declared
+ * in can't be read at runtime. Fields may be primitives, their wrappers, {@link String}, {@link java.util.UUID}, enums
+ * (by their ordinal), {@code byte[]}, {@code int[]}, {@code long[]}, or another {@link Encoded} class. The class needs a
+ * constructor without parameters, which may be private.
+ * </p>
+ *
+ * <p>
+ * Fields may be added to the end of {@link #fields()}, in which case values encoded before have the value the
+ * constructor gives them. Any other change (removing, renaming, reordering or changing the type of a field, or adding
+ * one without listing {@link #fields()}, as it may sort before the others) needs a new {@link #version()}, so that values
+ * of another version fail to be read, instead of being read wrong.
+ * </p>
+ */
+@Target(ElementType.TYPE)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface Encoded
+{
+    /**
+     * @return the version of the fields, which is written before them. Values of another version can't be read.
+     */
+    int version() default 0;
+
+    /**
+     * @return the names of every encoded field, in the order they are encoded, or nothing to encode them in the order of
+     * their names
+     */
+    String[] fields() default {};
+}
@@ -0,0 +1,487 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * <p>
+ * Stores the fields of a class in a single {@code byte[]}, as described by {@link Encoded}. Classes annotated with
+ * {@link Encoded} use this automatically, but it can also be registered for other classes with
+ * {@link StrongPersistentData#registerPersistentDataType(PersistentDataType)}.
+ * </p>
+ *
+ * <p>
+ * The value starts with the version and the number of fields, and is followed by each field, without its name.
+ * Integers are written as variable-length integers (zigzag encoded, so small negative numbers are small too), so most
+ * fields take one or two bytes. References write whether they are null, as part of their length where they have one.
+ * </p>
+ *
+ * <p>
+ * How to read and write each field is resolved once per class, by {@link #of(Class)}. The fields are those of the class
+ * and its superclasses, in the order of {@link Encoded#fields()}, or of their names for classes that don't list them.
+ * </p>
+ */
+public final class EncodedPersistentDataType<T> implements PersistentDataType<byte[], T>
+{
+    private static final ClassValue<EncodedPersistentDataType<?>> TYPES = new ClassValue<>()
+    {
+        @Override
+        protected EncodedPersistentDataType<?> computeValue(Class<?> type)
+        {
+            return new EncodedPersistentDataType<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final int version;
+    private final MethodHandle constructor;
+    private final FieldCodec[] fields;
+
+    private EncodedPersistentDataType(Class<T> type)
+    {
+        if (type.isInterface() || type.isArray() || type.isPrimitive() || Modifier.isAbstract(type.getModifiers()))
+            throw new IllegalStateException("Can't encode " + type.getName() + ", as it can't be constructed");
+
+        var encodedAnnotation = type.getAnnotation(Encoded.class);
+        this.type = type;
+        this.version = encodedAnnotation != null ? encodedAnnotation.version() : 0;
+
+        try
+        {
+            var declaredConstructor = type.getDeclaredConstructor();
+            declaredConstructor.setAccessible(true);
+            this.constructor = MethodHandles.lookup().unreflectConstructor(declaredConstructor).asType(MethodType.methodType(Object.class));
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            throw new IllegalStateException("Can't encode " + type.getName() + ", as it has no accessible constructor without parameters", e);
+        }
+
+        this.fields = fieldsOf(type, encodedAnnotation != null ? encodedAnnotation.fields() : new String[0]);
+    }
+
+    /**
+     * @return the codecs of every field of {@code type} and its superclasses that isn't static or transient, in the
+     * order of {@code order}, or of their names if it is empty
+     */
+    private static FieldCodec[] fieldsOf(Class<?> type, String[] order)
+    {
+        var byName = new TreeMap<String, Field>();
+        for (var current = type; current != Object.class; current = current.getSuperclass())
+        {
+            for (var field : current.getDeclaredFields())
+            {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic())
+                    continue;
+
+                if (byName.putIfAbsent(field.getName(), field) != null)
+                    throw new IllegalStateException("Can't encode " + type.getName() + ", as more than one of its fields is named " + field.getName());
+            }
+        }
+
+        if (order.length == 0)
+        {
+            var fields = new FieldCodec[byName.size()];
+            var i = 0;
+            for (var field : byName.values())
+                fields[i++] = new FieldCodec(field);
+
+            return fields;
+        }
+
+        var fields = new FieldCodec[order.length];
+        for (var i = 0; i < order.length; i++)
+        {
+            var field = byName.remove(order[i]);
+            if (field == null)
+                throw new IllegalStateException("Can't encode " + type.getName() + ", as @Encoded lists " + order[i] + ", which isn't one of its fields, or is listed twice");
+
+            fields[i] = new FieldCodec(field);
+        }
+
+        if (!byName.isEmpty())
+            throw new IllegalStateException("Can't encode " + type.getName() + ", as @Encoded doesn't list its fields " + byName.keySet());
+
+        return fields;
+    }
+
+    /**
+     * @param type the class to encode
+     * @return the type which encodes {@code type}, which is only created once per class
+     * @throws IllegalStateException if {@code type} can't be encoded
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public static <T> EncodedPersistentDataType<T> of(@NotNull Class<T> type)
+    {
+        return (EncodedPersistentDataType<T>) TYPES.get(type);
+    }
+
+    @NotNull
+    @Override
+    public Class<byte[]> getPrimitiveType()
+    {
+        return byte[].class;
+    }
+
+    @NotNull
+    @Override
+    public Class<T> getComplexType()
+    {
+        return type;
+    }
+
+    @NotNull
+    @Override
+    public byte[] toPrimitive(@NotNull T complex, @NotNull PersistentDataAdapterContext context)
+    {
+        var output = new ByteOutput();
+        write(output, complex);
+        return output.toByteArray();
+    }
+
+    @NotNull
+    @Override
+    public T fromPrimitive(@NotNull byte[] primitive, @NotNull PersistentDataAdapterContext context)
+    {
+        var input = new ByteInput(primitive);
+        var value = read(input);
+        if (input.remaining() != 0)
+            throw new IllegalStateException("Encoded " + type.getName() + " has " + input.remaining() + " trailing bytes");
+
+        return value;
+    }
+
+    private void write(ByteOutput output, Object value)
+    {
+        output.writeVarInt(version);
+        output.writeVarInt(fields.length);
+        for (var field : fields)
+            field.write(output, value);
+    }
+
+    private T read(ByteInput input)
+    {
+        var encodedVersion = input.readVarInt();
+        if (encodedVersion != version)
+            throw new IllegalStateException("Encoded " + type.getName() + " has version " + encodedVersion + ", but the class has version " + version);
+
+        var count = input.readVarInt();
+        if (count < 0 || count > fields.length)
+            throw new IllegalStateException("Encoded " + type.getName() + " has " + count + " fields, but the class only has " + fields.length);
+
+        Object value;
+        try
+        {
+            value = constructor.invokeExact();
+        }
+        catch (Throwable e)
+        {
+            throw new IllegalStateException("Couldn't construct " + type.getName(), e);
+        }
+
+        // Fields added since the value was encoded keep the value given by the constructor.
+        for (var i = 0; i < count; i++)
+            fields[i].read(input, value);
+
+        return type.cast(value);
+    }
+
+    /**
+     * Reads and writes one field of an object.
+     */
+    private static final class FieldCodec
+    {
+        private final Field field;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final ValueCodec codec;
+
+        FieldCodec(Field field)
+        {
+            this.field = field;
+            this.codec = codecOf(field.getType());
+            if (codec == null)
+                throw new IllegalStateException("Can't encode field " + field.getName() + " of " + field.getDeclaringClass().getName() + ", with type " + field.getType().getName());
+
+            try
+            {
+                field.setAccessible(true);
+                var lookup = MethodHandles.lookup();
+                this.getter = lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+                this.setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            }
+            catch (ReflectiveOperationException | RuntimeException e)
+            {
+                throw new IllegalStateException("Can't access field " + field.getName() + " of " + field.getDeclaringClass().getName(), e);
+            }
+        }
+
+        void write(ByteOutput output, Object instance)
+        {
+            Object value;
+            try
+            {
+                value = getter.invokeExact(instance);
+            }
+            catch (Throwable e)
+            {
+                throw new IllegalStateException("Couldn't get field " + field.getName(), e);
+            }
+
+            codec.write(output, value);
+        }
+
+        void read(ByteInput input, Object instance)
+        {
+            var value = codec.read(input);
+            try
+            {
+                setter.invokeExact(instance, value);
+            }
+            catch (Throwable e)
+            {
+                throw new IllegalStateException("Couldn't set field " + field.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the codec of values of {@code type}, or null if they can't be encoded
+     */
+    private static ValueCodec codecOf(Class<?> type)
+    {
+        if (type == Boolean.TYPE)
+            return new ValueCodec((output, value) -> output.writeByte((Boolean) value ? 1 : 0), input -> input.readByte() != 0);
+        if (type == Byte.TYPE)
+            return new ValueCodec((output, value) -> output.writeByte((Byte) value), ByteInput::readByte);
+        if (type == Short.TYPE)
+            return new ValueCodec((output, value) -> output.writeVarInt(ByteOutput.zigzag((Short) value)), input -> (short) ByteInput.unzigzag(input.readVarInt()));
+        if (type == Character.TYPE)
+            return new ValueCodec((output, value) -> output.writeVarInt((Character) value), input -> (char) input.readVarInt());
+        if (type == Integer.TYPE)
+            return new ValueCodec((output, value) -> output.writeVarInt(ByteOutput.zigzag((Integer) value)), input -> ByteInput.unzigzag(input.readVarInt()));
+        if (type == Long.TYPE)
+            return new ValueCodec((output, value) -> output.writeVarLong(ByteOutput.zigzag((Long) value)), input -> ByteInput.unzigzag(input.readVarLong()));
+        if (type == Float.TYPE)
+            return new ValueCodec((output, value) -> output.writeInt(Float.floatToRawIntBits((Float) value)), input -> Float.intBitsToFloat(input.readInt()));
+        if (type == Double.TYPE)
+            return new ValueCodec((output, value) -> output.writeLong(Double.doubleToRawLongBits((Double) value)), input -> Double.longBitsToDouble(input.readLong()));
+
+        var primitive = unboxed(type);
+        if (primitive != null)
+        {
+            // A byte of whether it is null, and then the value like its primitive.
+            var codec = codecOf(primitive);
+            return new ValueCodec((output, value) ->
+            {
+                output.writeByte(value != null ? 1 : 0);
+                if (value != null)
+                    codec.write(output, value);
+            }, input -> input.readByte() != 0 ? codec.read(input) : null);
+        }
+
+        // The rest write their length (or ordinal) plus one, or 0 if they are null.
+        if (type == String.class)
+        {
+            return new ValueCodec((output, value) ->
+            {
+                if (value == null)
+                {
+                    output.writeVarInt(0);
+                    return;
+                }
+
+                var bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                output.writeVarInt(bytes.length + 1);
+                output.writeBytes(bytes);
+            }, input ->
+            {
+                var length = input.readVarInt() - 1;
+                return length < 0 ? null : new String(input.readBytes(length), StandardCharsets.UTF_8);
+            });
+        }
+
+        if (type == byte[].class)
+        {
+            return new ValueCodec((output, value) ->
+            {
+                if (value == null)
+                {
+                    output.writeVarInt(0);
+                    return;
+                }
+
+                var array = (byte[]) value;
+                output.writeVarInt(array.length + 1);
+                output.writeBytes(array);
+            }, input ->
+            {
+                var length = input.readVarInt() - 1;
+                return length < 0 ? null : input.readBytes(length);
+            });
+        }
+
+        if (type == int[].class)
+        {
+            return new ValueCodec((output, value) ->
+            {
+                if (value == null)
+                {
+                    output.writeVarInt(0);
+                    return;
+                }
+
+                var array = (int[]) value;
+                output.writeVarInt(array.length + 1);
+                for (var element : array)
+                    output.writeVarInt(ByteOutput.zigzag(element));
+            }, input ->
+            {
+                var length = input.readVarInt() - 1;
+                if (length < 0)
+                    return null;
+
+                var array = new int[input.checkLength(length)];
+                for (var i = 0; i < length; i++)
+                    array[i] = ByteInput.unzigzag(input.readVarInt());
+
+                return array;
+            });
+        }
+
+        if (type == long[].class)
+        {
+            return new ValueCodec((output, value) ->
+            {
+                if (value == null)
+                {
+                    output.writeVarInt(0);
+                    return;
+                }
+
+                var array = (long[]) value;
+                output.writeVarInt(array.length + 1);
+                for (var element : array)
+                    output.writeVarLong(ByteOutput.zigzag(element));
+            }, input ->
+            {
+                var length = input.readVarInt() - 1;
+                if (length < 0)
+                    return null;
+
+                var array = new long[input.checkLength(length)];
+                for (var i = 0; i < length; i++)
+                    array[i] = ByteInput.unzigzag(input.readVarLong());
+
+                return array;
+            });
+        }
+
+        if (type.isEnum())
+        {
+            var constants = type.getEnumConstants();
+            return new ValueCodec((output, value) -> output.writeVarInt(value != null ? ((Enum<?>) value).ordinal() + 1 : 0), input ->
+            {
+                var ordinal = input.readVarInt() - 1;
+                if (ordinal < 0)
+                    return null;
+                if (ordinal >= constants.length)
+                    throw new IllegalStateException("Encoded " + type.getName() + " has ordinal " + ordinal + ", but there are only " + constants.length + " constants");
+
+                return constants[ordinal];
+            });
+        }
+
+        if (type == UUID.class)
+        {
+            return new ValueCodec((output, value) ->
+            {
+                output.writeByte(value != null ? 1 : 0);
+                if (value == null)
+                    return;
+
+                var uuid = (UUID) value;
+                output.writeLong(uuid.getMostSignificantBits());
+                output.writeLong(uuid.getLeastSignificantBits());
+            }, input -> input.readByte() != 0 ? new UUID(input.readLong(), input.readLong()) : null);
+        }
+
+        if (type.isAnnotationPresent(Encoded.class))
+        {
+            // Resolved when it is first used, as the class may contain itself.
+            return new ValueCodec((output, value) ->
+            {
+                output.writeByte(value != null ? 1 : 0);
+                if (value != null)
+                    of(type).write(output, value);
+            }, input -> input.readByte() != 0 ? of(type).read(input) : null);
+        }
+
+        return null;
+    }
+
+    private static Class<?> unboxed(Class<?> type)
+    {
+        if (type == Boolean.class)
+            return Boolean.TYPE;
+        if (type == Byte.class)
+            return Byte.TYPE;
+        if (type == Short.class)
+            return Short.TYPE;
+        if (type == Character.class)
+            return Character.TYPE;
+        if (type == Integer.class)
+            return Integer.TYPE;
+        if (type == Long.class)
+            return Long.TYPE;
+        if (type == Float.class)
+            return Float.TYPE;
+        if (type == Double.class)
+            return Double.TYPE;
+
+        return null;
+    }
+
+    private interface Writer
+    {
+        void write(ByteOutput output, Object value);
+    }
+
+    private interface Reader
+    {
+        Object read(ByteInput input);
+    }
+
+    private static final class ValueCodec
+    {
+        private final Writer writer;
+        private final Reader reader;
+
+        ValueCodec(Writer writer, Reader reader)
+        {
+            this.writer = writer;
+            this.reader = reader;
+        }
+
+        void write(ByteOutput output, Object value)
+        {
+            writer.write(output, value);
+        }
+
+        Object read(ByteInput input)
+        {
+            return reader.read(input);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package xyz.jame.strongpersistentdata;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * The id an enum constant is stored as, instead of its ordinal, so constants can be reordered, or removed, without
+ * changing what is already stored. See {@link EnumPersistentDataType}.
+ * </p>
+ *
+ * <p>
+ * Either every constant of an enum has an id, or none of them do. Ids must not be negative, or shared by two constants.
+ * </p>
+ */
+@Target(ElementType.FIELD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface EnumId
+{
+    int value();
+}
@@ -0,0 +1,163 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Stores an enum constant as a {@link PersistentDataType#INTEGER}, which is its {@link EnumId}, or otherwise its
+ * ordinal. Getters and setters of enums use this automatically, unless another type is registered for the enum.
+ * </p>
+ *
+ * <p>
+ * Without {@link EnumId}, adding constants to the end of the enum is safe, but reordering or removing them changes which
+ * constant is read. Reading an id that no constant has throws.
+ * </p>
+ *
+ * <p>
+ * The constants are looked up by their id in an array, which is built once per enum, by {@link #of(Class)}.
+ * </p>
+ */
+public final class EnumPersistentDataType<E extends Enum<E>> implements PersistentDataType<Integer, E>
+{
+    private static final ClassValue<EnumPersistentDataType<?>> TYPES = new ClassValue<>()
+    {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected EnumPersistentDataType<?> computeValue(Class<?> type)
+        {
+            if (!type.isEnum())
+                throw new IllegalStateException(type.getName() + " is not an enum");
+
+            return new EnumPersistentDataType(type);
+        }
+    };
+
+    private final Class<E> type;
+    /**
+     * The id of each constant, by its ordinal.
+     */
+    private final int[] ids;
+    /**
+     * Every id, in ascending order, unless the ids are the ordinals.
+     */
+    private final int[] sortedIds;
+    /**
+     * The constant of each id in {@link #sortedIds}, or of each ordinal if it is null.
+     */
+    private final E[] constants;
+
+    private EnumPersistentDataType(Class<E> type)
+    {
+        this.type = type;
+
+        var constants = type.getEnumConstants();
+        var ids = new int[constants.length];
+        var annotated = 0;
+        for (var constant : constants)
+        {
+            EnumId idAnnotation;
+            try
+            {
+                idAnnotation = type.getField(constant.name()).getAnnotation(EnumId.class);
+            }
+            catch (NoSuchFieldException e)
+            {
+                throw new IllegalStateException("Can't find the field of " + type.getName() + "." + constant.name(), e);
+            }
+
+            if (idAnnotation == null)
+            {
+                ids[constant.ordinal()] = constant.ordinal();
+                continue;
+            }
+
+            if (idAnnotation.value() < 0)
+                throw new IllegalStateException(type.getName() + "." + constant.name() + " has a negative @EnumId");
+
+            ids[constant.ordinal()] = idAnnotation.value();
+            annotated++;
+        }
+
+        if (annotated != 0 && annotated != constants.length)
+            throw new IllegalStateException("Either every constant of " + type.getName() + " has an @EnumId, or none of them do");
+
+        this.ids = ids;
+        if (annotated == 0)
+        {
+            this.sortedIds = null;
+            this.constants = constants;
+            return;
+        }
+
+        var byId = Arrays.copyOf(constants, constants.length);
+        Arrays.sort(byId, (a, b) -> Integer.compare(ids[a.ordinal()], ids[b.ordinal()]));
+
+        var sortedIds = new int[constants.length];
+        for (var i = 0; i < sortedIds.length; i++)
+        {
+            sortedIds[i] = ids[byId[i].ordinal()];
+            if (i != 0 && sortedIds[i] == sortedIds[i - 1])
+                throw new IllegalStateException(byId[i - 1].name() + " and " + byId[i].name() + " of " + type.getName() + " have the same @EnumId");
+        }
+
+        this.sortedIds = sortedIds;
+        this.constants = byId;
+    }
+
+    /**
+     * @param type the enum to store
+     * @return the type which stores {@code type}, which is only created once per enum
+     * @throws IllegalStateException if the {@link EnumId}s of {@code type} are invalid
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public static <E extends Enum<E>> EnumPersistentDataType<E> of(@NotNull Class<E> type)
+    {
+        return (EnumPersistentDataType<E>) TYPES.get(type);
+    }
+
+    /**
+     * Like {@link #of(Class)}, for an enum whose class isn't known to be one.
+     */
+    static EnumPersistentDataType<?> ofEnum(Class<?> type)
+    {
+        return TYPES.get(type);
+    }
+
+    @NotNull
+    @Override
+    public Class<Integer> getPrimitiveType()
+    {
+        return Integer.class;
+    }
+
+    @NotNull
+    @Override
+    public Class<E> getComplexType()
+    {
+        return type;
+    }
+
+    @NotNull
+    @Override
+    public Integer toPrimitive(@NotNull E complex, @NotNull PersistentDataAdapterContext context)
+    {
+        return ids[complex.ordinal()];
+    }
+
+    @NotNull
+    @Override
+    public E fromPrimitive(@NotNull Integer primitive, @NotNull PersistentDataAdapterContext context)
+    {
+        int id = primitive;
+        var index = sortedIds == null ? id : Arrays.binarySearch(sortedIds, id);
+        if (index < 0 || index >= constants.length)
+            throw new IllegalStateException("No constant of " + type.getName() + " has id " + id);
+
+        return constants[index];
+    }
+}
@@ -0,0 +1,23 @@
+package xyz.jame.strongpersistentdata;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Have the StrongPersistentData annotation processor generate an implementation of this interface at compile time.
+ * The interface is also checked for mistakes that would otherwise only be found when its methods are invoked.
+ * </p>
+ *
+ * <p>
+ * {@link StrongPersistentData#wrap(org.bukkit.persistence.PersistentDataContainer, Class)} will use the generated
+ * implementation, regardless of the {@link AccessorEngine}.
+ * </p>
+ */
+@Target(ElementType.TYPE)
+@Retention(value = RetentionPolicy.CLASS)
+public @interface GenerateAccessor
+{
+}
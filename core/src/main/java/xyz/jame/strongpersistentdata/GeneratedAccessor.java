@@ -0,0 +1,119 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>
+ * The superclass of every generated implementation of a wrapped interface, either by the {@link AccessorEngine#GENERATED}
+ * engine, or by the annotation processor for a {@link GenerateAccessor} interface.
+ * </p>
+ *
+ * <p>
+ * Plain getters, setters and has methods read and write {@link #direct} themselves, with the key and type of the method,
+ * which are constants of classes generated at runtime, and {@link #keys} and {@link #types} for those generated at
+ * compile time. Every other method, and those while {@link #direct} is null, is a single call to
+ * {@link #invoke(int, Object)}, with the index of the method as a constant. This should not be extended by hand.
+ * </p>
+ */
+public abstract class GeneratedAccessor
+{
+    PersistentDataContainerProxy handler;
+    /**
+     * The container of our handler, while plain getters, setters and has methods may use it without going through
+     * {@link #invoke(int, Object)}, or otherwise null. That is only while nothing else has to see those calls, such as
+     * metrics, a migration which hasn't run yet, or a {@link Memoized} method being computed.
+     */
+    protected PersistentDataContainer direct;
+    /**
+     * The key and type of each plain method, by its index, for classes generated by the annotation processor, whose
+     * keys depend on the plugin using them. The other elements are null.
+     */
+    protected NamespacedKey[] keys;
+    @SuppressWarnings("rawtypes")
+    protected PersistentDataType[] types;
+
+    protected GeneratedAccessor()
+    {
+    }
+
+    /**
+     * Invoke a method of the wrapped interface.
+     *
+     * @param index    the index of the method, when every method of the interface is ordered by name, and then by
+     *                 descriptor
+     * @param argument the parameter of a method with one, an array of the parameters of a method with more, or null
+     * @return the value to return from the method, or null
+     */
+    protected final Object invoke(int index, Object argument)
+    {
+        return handler.invoke(this, index, argument);
+    }
+
+    /**
+     * Tell our handler that a setter has written {@code key} of {@link #direct}.
+     */
+    protected final void written(NamespacedKey key)
+    {
+        handler.written(key, null);
+    }
+
+    /**
+     * <p>
+     * What the annotation processor already deduced about a plain getter, setter, has or remove method, so that it isn't
+     * deduced again at runtime. Classes generated by the annotation processor have one for each of these methods, by
+     * its index, in their {@code PLANS} field, which is null for every other method.
+     * </p>
+     *
+     * <p>
+     * This is only for generated code.
+     * </p>
+     */
+    public static final class Plan
+    {
+        final MethodPlan.Kind kind;
+        final String key;
+        final Class<?> type;
+        /**
+         * The value of the {@link DefaultValue} of a getter, which is a {@code String} to be parsed unless the getter
+         * returns a primitive, or null.
+         */
+        final Object defaultValue;
+        final boolean removeOnNull;
+
+        private Plan(MethodPlan.Kind kind, String key, Class<?> type, Object defaultValue, boolean removeOnNull)
+        {
+            this.kind = kind;
+            this.key = key;
+            this.type = type;
+            this.defaultValue = defaultValue;
+            this.removeOnNull = removeOnNull;
+        }
+
+        @NotNull
+        public static Plan get(@NotNull String key, @NotNull Class<?> type, Object defaultValue)
+        {
+            return new Plan(MethodPlan.Kind.GET, key, type, defaultValue, false);
+        }
+
+        @NotNull
+        public static Plan set(@NotNull String key, @NotNull Class<?> type, boolean removeOnNull)
+        {
+            return new Plan(MethodPlan.Kind.SET, key, type, null, removeOnNull);
+        }
+
+        @NotNull
+        public static Plan has(@NotNull String key, @NotNull Class<?> type)
+        {
+            return new Plan(MethodPlan.Kind.HAS, key, type, null, false);
+        }
+
+        @NotNull
+        public static Plan remove(@NotNull String key)
+        {
+            return new Plan(MethodPlan.Kind.REMOVE, key, null, null, false);
+        }
+    }
+}
@@ -0,0 +1,620 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataHolder;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * The values of the {@link Indexed} getters of an interface, for every holder added to it, created by
+ * {@link StrongPersistentData#index(Class)}. Holders can be found by the value of a getter, or a range of values,
+ * without calling the getter of each of them.
+ * </p>
+ *
+ * <p>
+ * Once a holder is added, every write to its container through an object wrapped to the same interface updates the
+ * index, including through {@link StrongPersistentData#edit(PersistentDataContainer, Class, java.util.function.Consumer)},
+ * {@link Detached#merge(ConflictPolicy)} and {@link StrongPersistentData#applyChanges(PersistentDataContainer, Class, byte[])}.
+ * Writes made to the container directly, or through another interface, aren't seen until the holder is added again.
+ * </p>
+ *
+ * <p>
+ * Holders and their containers are only weakly referenced, so holders that are no longer used (such as unloaded
+ * entities) drop out of the index once they are collected. Remove them explicitly to drop them out sooner. Like any
+ * other use of a container, this should only be used on the main thread.
+ * </p>
+ *
+ * <p>
+ * Integers, booleans and floating point numbers are kept in sorted arrays of {@code long}, so neither updating nor
+ * looking them up boxes. Other values are kept in a sorted map.
+ * </p>
+ *
+ * @param <T> the wrapped interface
+ */
+public final class Index<T>
+{
+    private final StrongPersistentData strongPersistentData;
+    private final Class<T> interfaceType;
+    private final NamespacedKey versionKey;
+    private final Field[] fields;
+    private final Map<String, Field> fieldsByName = new HashMap<>();
+    /**
+     * Every entry, by its container. This is read by wrapped objects on any thread, to find out whether they are indexed.
+     */
+    private final ConcurrentHashMap<ContainerReference, Entry> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<PersistentDataContainer> collected = new ReferenceQueue<>();
+
+    Index(StrongPersistentData strongPersistentData, Class<T> interfaceType, InterfacePlan interfacePlan)
+    {
+        this.strongPersistentData = strongPersistentData;
+        this.interfaceType = interfaceType;
+        this.versionKey = interfacePlan.versionKey;
+
+        var fields = new ArrayList<Field>();
+        var errors = new StringBuilder();
+        for (var plan : interfacePlan.plans())
+        {
+            if (plan.kind == MethodPlan.Kind.INVALID || !plan.method.isAnnotationPresent(Indexed.class))
+                continue;
+
+            var type = valueTypeOf(plan);
+            Field field;
+            if (type == null)
+            {
+                errors.append("\n  ").append(plan.method.getName()).append(": @Indexed can only be used on getters");
+                continue;
+            }
+            else if (type == Byte.class || type == Short.class || type == Integer.class || type == Long.class || type == Boolean.class)
+                field = new LongField(plan, false);
+            else if (type == Float.class || type == Double.class)
+                field = new LongField(plan, true);
+            else if (Comparable.class.isAssignableFrom(type))
+                field = new ObjectField(plan, type);
+            else
+            {
+                errors.append("\n  ").append(plan.method.getName()).append(": @Indexed values must be comparable, and ").append(type.getName()).append(" isn't");
+                continue;
+            }
+
+            fields.add(field);
+            fieldsByName.put(plan.method.getName(), field);
+        }
+
+        if (errors.length() != 0)
+            throw new IllegalStateException("Invalid indexed methods on " + interfaceType.getName() + ":" + errors);
+        if (fields.isEmpty())
+            throw new IllegalStateException(interfaceType.getName() + " has no @Indexed getters");
+
+        this.fields = fields.toArray(new Field[0]);
+    }
+
+    /**
+     * @return the class of the values returned by the getter of {@code plan}, or null if it can't be indexed
+     */
+    private static Class<?> valueTypeOf(MethodPlan plan)
+    {
+        switch (plan.kind)
+        {
+            case GET_PACKED:
+            {
+                var type = plan.method.getReturnType();
+                if (type == Boolean.TYPE)
+                    return Boolean.class;
+                if (type == Byte.TYPE)
+                    return Byte.class;
+                if (type == Short.TYPE)
+                    return Short.class;
+                if (type == Integer.TYPE)
+                    return Integer.class;
+                if (type == Long.TYPE)
+                    return Long.class;
+
+                return type;
+            }
+            case GET:
+            case GET_OPTIONAL:
+            case GET_OPTIONAL_INT:
+            case GET_OPTIONAL_LONG:
+            case GET_OPTIONAL_DOUBLE:
+                return plan.persistentType.getComplexType();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Add {@code holder}, or read all of its values again if it has already been added. Its container is brought up to
+     * the {@link SchemaVersion} of the interface first.
+     *
+     * @param holder the holder to add
+     */
+    public void add(@NotNull PersistentDataHolder holder)
+    {
+        expunge();
+
+        var container = holder.getPersistentDataContainer();
+        var entry = entries.get(new ContainerReference(container, null));
+        if (entry == null)
+        {
+            new PersistentDataContainerProxy(container, strongPersistentData, strongPersistentData.interfacePlan(interfaceType)).migrate();
+
+            entry = new Entry(this, holder);
+            entries.put(new ContainerReference(container, collected), entry);
+            strongPersistentData.indexChanged();
+        }
+
+        refresh(entry, container);
+    }
+
+    /**
+     * @param holder the holder to remove
+     * @return true if {@code holder} had been added
+     */
+    public boolean remove(@NotNull PersistentDataHolder holder)
+    {
+        expunge();
+
+        var entry = entries.remove(new ContainerReference(holder.getPersistentDataContainer(), null));
+        if (entry == null)
+            return false;
+
+        unindex(entry);
+        strongPersistentData.indexChanged();
+        return true;
+    }
+
+    /**
+     * @return how many holders have been added, and not yet removed or collected
+     */
+    public int size()
+    {
+        expunge();
+        return entries.size();
+    }
+
+    /**
+     * @param getter the name of an {@link Indexed} getter
+     * @param value  the value to look for, which must be a boolean, an integer or a floating point number for getters
+     *               of those, or otherwise the type returned by the getter
+     * @return every holder whose getter returns {@code value}
+     * @throws IllegalArgumentException if {@code getter} isn't indexed, or {@code value} can't be one of its values
+     */
+    @NotNull
+    public List<PersistentDataHolder> equalTo(@NotNull String getter, @NotNull Object value)
+    {
+        return find(getter, value, value);
+    }
+
+    /**
+     * @param getter the name of an {@link Indexed} getter
+     * @param min    the lowest value to look for, like {@link #equalTo(String, Object)}
+     * @param max    the highest value to look for, like {@link #equalTo(String, Object)}
+     * @return every holder whose getter returns at least {@code min}, and at most {@code max}, ordered by the value
+     * @throws IllegalArgumentException if {@code getter} isn't indexed, or a bound can't be one of its values
+     */
+    @NotNull
+    public List<PersistentDataHolder> between(@NotNull String getter, @NotNull Object min, @NotNull Object max)
+    {
+        return find(getter, min, max);
+    }
+
+    /**
+     * @return every holder whose getter returns at least {@code min}, ordered by the value
+     * @see #between(String, Object, Object)
+     */
+    @NotNull
+    public List<PersistentDataHolder> atLeast(@NotNull String getter, @NotNull Object min)
+    {
+        return find(getter, min, null);
+    }
+
+    /**
+     * @return every holder whose getter returns at most {@code max}, ordered by the value
+     * @see #between(String, Object, Object)
+     */
+    @NotNull
+    public List<PersistentDataHolder> atMost(@NotNull String getter, @NotNull Object max)
+    {
+        return find(getter, null, max);
+    }
+
+    private List<PersistentDataHolder> find(String getter, Object min, Object max)
+    {
+        var field = fieldsByName.get(getter);
+        if (field == null)
+            throw new IllegalArgumentException(getter + " is not an @Indexed getter of " + interfaceType.getName());
+
+        expunge();
+
+        var found = new ArrayList<Entry>();
+        field.find(min, max, found);
+
+        var holders = new ArrayList<PersistentDataHolder>(found.size());
+        for (var entry : found)
+        {
+            var holder = entry.holder.get();
+            if (holder != null)
+                holders.add(holder);
+        }
+
+        return holders;
+    }
+
+    /**
+     * @return the entry of {@code container}, or null if it hasn't been added
+     */
+    Entry entryOf(PersistentDataContainer container)
+    {
+        return entries.get(new ContainerReference(container, null));
+    }
+
+    private void written(Entry entry, NamespacedKey key, PersistentDataContainer container)
+    {
+        if (entry.removed)
+            return;
+
+        // A migration may have changed any key.
+        if (key.equals(versionKey))
+        {
+            refresh(entry, container);
+            return;
+        }
+
+        for (var i = 0; i < fields.length; i++)
+        {
+            if (fields[i].plan.key.equals(key))
+                update(entry, i, container);
+        }
+    }
+
+    private void refresh(Entry entry, PersistentDataContainer container)
+    {
+        if (entry.removed)
+            return;
+
+        for (var i = 0; i < fields.length; i++)
+            update(entry, i, container);
+    }
+
+    private void update(Entry entry, int field, PersistentDataContainer container)
+    {
+        var value = fields[field].read(container);
+        var previous = entry.values[field];
+        if (Objects.equals(previous, value))
+            return;
+
+        if (previous != null)
+            fields[field].remove(entry, previous);
+        if (value != null)
+            fields[field].add(entry, value);
+
+        entry.values[field] = value;
+    }
+
+    private void unindex(Entry entry)
+    {
+        entry.removed = true;
+        for (var i = 0; i < fields.length; i++)
+        {
+            if (entry.values[i] != null)
+                fields[i].remove(entry, entry.values[i]);
+        }
+    }
+
+    /**
+     * Remove the entries of containers that have been collected.
+     */
+    private void expunge()
+    {
+        var removed = false;
+        for (var reference = collected.poll(); reference != null; reference = collected.poll())
+        {
+            var entry = entries.remove(reference);
+            if (entry != null)
+            {
+                unindex(entry);
+                removed = true;
+            }
+        }
+
+        if (removed)
+            strongPersistentData.indexChanged();
+    }
+
+    /**
+     * A holder that has been added to an index, which is kept by the objects wrapping its container.
+     */
+    static final class Entry
+    {
+        private final Index<?> index;
+        private final WeakReference<PersistentDataHolder> holder;
+        /**
+         * The value of each field, or null if it isn't indexed.
+         */
+        private final Object[] values;
+        /**
+         * True once the holder has been removed, after which writes are ignored.
+         */
+        private boolean removed;
+
+        Entry(Index<?> index, PersistentDataHolder holder)
+        {
+            this.index = index;
+            this.holder = new WeakReference<>(holder);
+            this.values = new Object[index.fields.length];
+        }
+
+        /**
+         * Called after {@code key} of the container of our holder has been written to.
+         */
+        void written(NamespacedKey key, PersistentDataContainer container)
+        {
+            index.written(this, key, container);
+        }
+
+        /**
+         * Called after any number of keys of the container of our holder may have been written to.
+         */
+        void refresh(PersistentDataContainer container)
+        {
+            index.refresh(this, container);
+        }
+    }
+
+    /**
+     * Refers to a container by its identity, as containers of holders are equal when their contents are.
+     */
+    private static final class ContainerReference extends WeakReference<PersistentDataContainer>
+    {
+        private final int hash;
+
+        ContainerReference(PersistentDataContainer container, ReferenceQueue<PersistentDataContainer> queue)
+        {
+            super(container, queue);
+            this.hash = System.identityHashCode(container);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof ContainerReference))
+                return false;
+
+            var referent = get();
+            return referent != null && referent == ((ContainerReference) obj).get();
+        }
+    }
+
+    /**
+     * The entries of one {@link Indexed} getter, sorted by their value.
+     */
+    private abstract static class Field
+    {
+        final MethodPlan plan;
+
+        Field(MethodPlan plan)
+        {
+            this.plan = plan;
+        }
+
+        /**
+         * @return what the getter would return from {@code container}, or null if it isn't indexed
+         */
+        Object read(PersistentDataContainer container)
+        {
+            switch (plan.kind)
+            {
+                case GET_PACKED:
+                    return plan.packing.read(Packing.groupOf(container, plan.key));
+                case GET:
+                {
+                    var value = container.get(plan.key, plan.persistentType);
+                    return value != null ? value : plan.defaultValue;
+                }
+                default:
+                    return container.get(plan.key, plan.persistentType);
+            }
+        }
+
+        abstract void add(Entry entry, Object value);
+
+        abstract void remove(Entry entry, Object value);
+
+        /**
+         * Add every entry whose value is between {@code min} and {@code max} to {@code found}, in order of their values.
+         * A null bound is unbounded.
+         */
+        abstract void find(Object min, Object max, List<Entry> found);
+    }
+
+    /**
+     * The entries of a getter of integers, booleans or floating point numbers, which are converted to a {@code long} that
+     * sorts the same way, and kept in a sorted array.
+     */
+    private static final class LongField extends Field
+    {
+        private final boolean floating;
+        private long[] keys = new long[16];
+        private Entry[] entries = new Entry[16];
+        private int size;
+
+        LongField(MethodPlan plan, boolean floating)
+        {
+            super(plan);
+            this.floating = floating;
+        }
+
+        private long keyOf(Object value)
+        {
+            if (floating && value instanceof Number)
+            {
+                // Flips every bit but the sign of negative numbers, so they sort below positive numbers, and the more
+                // negative, the lower.
+                var bits = Double.doubleToLongBits(((Number) value).doubleValue());
+                return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+            }
+
+            if (value instanceof Boolean)
+                return (Boolean) value ? 1 : 0;
+            if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long)
+                return ((Number) value).longValue();
+
+            throw new IllegalArgumentException(plan.method.getName() + " is indexed by " + (floating ? "floating point numbers" : "integers") + ", not " + value.getClass().getName());
+        }
+
+        @Override
+        void add(Entry entry, Object value)
+        {
+            var key = keyOf(value);
+            var position = upperBound(key);
+            if (size == keys.length)
+            {
+                keys = Arrays.copyOf(keys, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            System.arraycopy(entries, position, entries, position + 1, size - position);
+            keys[position] = key;
+            entries[position] = entry;
+            size++;
+        }
+
+        @Override
+        void remove(Entry entry, Object value)
+        {
+            var key = keyOf(value);
+            for (var i = lowerBound(key); i < size && keys[i] == key; i++)
+            {
+                if (entries[i] == entry)
+                {
+                    System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                    System.arraycopy(entries, i + 1, entries, i, size - i - 1);
+                    entries[--size] = null;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        void find(Object min, Object max, List<Entry> found)
+        {
+            var from = min != null ? lowerBound(keyOf(min)) : 0;
+            var to = max != null ? upperBound(keyOf(max)) : size;
+            for (var i = from; i < to; i++)
+                found.add(entries[i]);
+        }
+
+        /**
+         * @return the position of the first key at least {@code key}
+         */
+        private int lowerBound(long key)
+        {
+            var low = 0;
+            var high = size;
+            while (low < high)
+            {
+                var middle = (low + high) >>> 1;
+                if (keys[middle] < key)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+
+            return low;
+        }
+
+        /**
+         * @return the position of the first key greater than {@code key}
+         */
+        private int upperBound(long key)
+        {
+            var low = 0;
+            var high = size;
+            while (low < high)
+            {
+                var middle = (low + high) >>> 1;
+                if (keys[middle] <= key)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+
+            return low;
+        }
+    }
+
+    /**
+     * The entries of a getter of any other {@link Comparable}, in a sorted map.
+     */
+    private static final class ObjectField extends Field
+    {
+        private final Class<?> type;
+        private final TreeMap<Object, Set<Entry>> entries = new TreeMap<>();
+
+        ObjectField(MethodPlan plan, Class<?> type)
+        {
+            super(plan);
+            this.type = type;
+        }
+
+        @Override
+        void add(Entry entry, Object value)
+        {
+            entries.computeIfAbsent(value, v -> new HashSet<>()).add(entry);
+        }
+
+        @Override
+        void remove(Entry entry, Object value)
+        {
+            var set = entries.get(value);
+            if (set != null && set.remove(entry) && set.isEmpty())
+                entries.remove(value);
+        }
+
+        @Override
+        void find(Object min, Object max, List<Entry> found)
+        {
+            Map<Object, Set<Entry>> range;
+            if (min != null && max != null)
+                range = entries.subMap(check(min), true, check(max), true);
+            else if (min != null)
+                range = entries.tailMap(check(min), true);
+            else
+                range = entries.headMap(check(max), true);
+
+            for (var set : range.values())
+                found.addAll(set);
+        }
+
+        private Object check(Object value)
+        {
+            if (!type.isInstance(value))
+                throw new IllegalArgumentException(plan.method.getName() + " is indexed by " + type.getName() + ", not " + value.getClass().getName());
+
+            return value;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package xyz.jame.strongpersistentdata;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Keep the value of a getter in the {@link Index} of its interface, so holders can be found by it without calling the
+ * getter of each of them. The getter may return a primitive or its wrapper, an {@code Optional} of one, or any other
+ * {@link Comparable}, such as a {@code String} or an enum.
+ * </p>
+ *
+ * <p>
+ * A holder is indexed by what the getter would return, so a missing key is indexed as its default value, if it has
+ * one. A missing key without one, or an empty {@code Optional}, isn't indexed.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface Indexed
+{
+}
@@ -0,0 +1,176 @@
+package xyz.jame.strongpersistentdata;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * A growable list of {@code int}s, backed by an {@code int[]}, which is stored as a
+ * {@link org.bukkit.persistence.PersistentDataType#INTEGER_ARRAY}. It is also a {@code List<Integer>}, but
+ * {@link #getInt(int)}, {@link #setInt(int, int)} and {@link #addInt(int)} don't box.
+ * </p>
+ *
+ * <p>
+ * Getters returning this (or {@code List<Integer>}) wrap the array read from the container without copying it. Setting it
+ * only copies the array if it has spare capacity.
+ * </p>
+ */
+public final class IntList extends AbstractList<Integer> implements RandomAccess
+{
+    private int[] elements;
+    private int size;
+
+    public IntList()
+    {
+        this(10);
+    }
+
+    public IntList(int capacity)
+    {
+        this.elements = new int[capacity];
+    }
+
+    private IntList(int[] elements)
+    {
+        this.elements = elements;
+        this.size = elements.length;
+    }
+
+    /**
+     * @return a new list of a copy of {@code values}
+     */
+    @NotNull
+    public static IntList of(@NotNull int... values)
+    {
+        return new IntList(values.clone());
+    }
+
+    /**
+     * @return a list of {@code values}, which is not copied
+     */
+    static IntList wrap(int[] values)
+    {
+        return new IntList(values);
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    public int getInt(int index)
+    {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * @return the element previously at {@code index}
+     */
+    public int setInt(int index, int value)
+    {
+        checkIndex(index);
+        var previous = elements[index];
+        elements[index] = value;
+        return previous;
+    }
+
+    public void addInt(int value)
+    {
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, Math.max(size * 2, 10));
+
+        elements[size++] = value;
+        modCount++;
+    }
+
+    /**
+     * @return the element that was at {@code index}
+     */
+    public int removeInt(int index)
+    {
+        checkIndex(index);
+        var previous = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    /**
+     * @return a copy of the elements
+     */
+    @NotNull
+    public int[] toIntArray()
+    {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * @return the elements, which is our own array if it has no spare capacity. This is only for handing to a
+     * container, which copies what it is set to (as {@link BufferedPersistentDataContainer} does too), and must not be
+     * kept or changed.
+     */
+    int[] elements()
+    {
+        return size == elements.length ? elements : Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public Integer get(int index)
+    {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer element)
+    {
+        return setInt(index, element);
+    }
+
+    @Override
+    public void add(int index, Integer element)
+    {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, Math.max(size * 2, 10));
+
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Integer remove(int index)
+    {
+        return removeInt(index);
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex)
+    {
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+}
@@ -0,0 +1,371 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The {@link MethodPlan} of every method on an interface, resolved once and then shared by every wrapped container of
+ * that interface.
+ */
+final class InterfacePlan
+{
+    private static final Method HASHCODE_METHOD;
+    private static final Method EQUALS_METHOD;
+    private static final Method TOSTRING_METHOD;
+
+    /**
+     * The order of {@link #methodsOf(Class)}. This is by name, and then by descriptor, so generated implementations
+     * can refer to a method by its index without depending on the order of {@link Class#getMethods()}.
+     */
+    private static final Comparator<Method> METHOD_ORDER = Comparator.comparing(Method::getName).thenComparing(InterfacePlan::descriptorOf);
+
+    final Class<?> interfaceType;
+    private final Map<Method, MethodPlan> methods;
+    private final MethodPlan[] ordered;
+    /**
+     * Every distinct key used by this interface. The index of a key is its slot, which lets per-key state be kept in an
+     * array instead of a map.
+     */
+    final NamespacedKey[] keys;
+    private final Map<NamespacedKey, Integer> slots;
+    /**
+     * The slots of the keys each {@link Memoized} method declares it depends on, by the index of the method.
+     */
+    private final BitSet[] declaredDependencies;
+    /**
+     * The {@link SchemaVersion} of the interface, and the key storing it, which is null if the interface isn't versioned.
+     */
+    final int schemaVersion;
+    final NamespacedKey versionKey;
+    /**
+     * The migrations of the interface, by the version they migrate from.
+     */
+    private final Map<Integer, Consumer<PersistentDataContainer>> migrations;
+    /**
+     * The key and type of each {@link MethodPlan#isPlain()} method, by its index, for classes generated by the
+     * annotation processor. The other elements are null.
+     */
+    final NamespacedKey[] plainKeys;
+    final PersistentDataType<?, ?>[] plainTypes;
+    /**
+     * True if every method could be understood. Otherwise, generated implementations can't run plain methods
+     * themselves, as those generated at compile time don't know which of them are {@link MethodPlan.Kind#INVALID}.
+     */
+    final boolean valid;
+    /**
+     * The constructor of the class {@link AccessorGenerator} generated for this plan, or empty if it couldn't generate
+     * one. This is null until it is first needed.
+     */
+    volatile Optional<MethodHandle> generatedConstructor;
+
+    static
+    {
+        try
+        {
+            HASHCODE_METHOD = Object.class.getMethod("hashCode");
+            EQUALS_METHOD = Object.class.getMethod("equals", Object.class);
+            TOSTRING_METHOD = Object.class.getMethod("toString");
+        }
+        catch (NoSuchMethodException wtf)
+        {
+            // If you are here, your JVM implementation sucks.
+            throw new IllegalStateException("Impossible situation where either hashCode, equals, or toString methods do not exist", wtf);
+        }
+    }
+
+    private InterfacePlan(Class<?> interfaceType, Map<Method, MethodPlan> methods, MethodPlan[] ordered, int schemaVersion, NamespacedKey versionKey, Map<Integer, Consumer<PersistentDataContainer>> migrations)
+    {
+        this.interfaceType = interfaceType;
+        this.methods = methods;
+        this.ordered = ordered;
+        this.schemaVersion = schemaVersion;
+        this.versionKey = versionKey;
+        this.migrations = migrations;
+
+        var slots = new HashMap<NamespacedKey, Integer>();
+        var keys = new ArrayList<NamespacedKey>();
+        for (var plan : ordered)
+        {
+            if (plan.key != null && slots.putIfAbsent(plan.key, keys.size()) == null)
+                keys.add(plan.key);
+        }
+
+        this.keys = keys.toArray(new NamespacedKey[0]);
+        this.slots = slots;
+
+        this.plainKeys = new NamespacedKey[ordered.length];
+        this.plainTypes = new PersistentDataType<?, ?>[ordered.length];
+        var valid = true;
+        for (var plan : ordered)
+        {
+            if (plan.isPlain())
+            {
+                plainKeys[plan.index] = plan.key;
+                plainTypes[plan.index] = plan.persistentType;
+            }
+
+            valid &= plan.kind != MethodPlan.Kind.INVALID;
+        }
+
+        this.valid = valid;
+
+        this.declaredDependencies = new BitSet[ordered.length];
+        for (var plan : ordered)
+        {
+            if (plan.dependsOn == null)
+                continue;
+
+            var dependencies = new BitSet();
+            for (var name : plan.dependsOn)
+            {
+                for (var other : ordered)
+                {
+                    if (other.key != null && other.method.getName().equals(name))
+                        dependencies.set(slots.get(other.key));
+                }
+            }
+
+            declaredDependencies[plan.index] = dependencies;
+        }
+    }
+
+    static InterfacePlan resolve(Class<?> interfaceType, StrongPersistentData strongPersistentData)
+    {
+        if (!interfaceType.isInterface())
+            throw new IllegalArgumentException(interfaceType + " is not an interface");
+
+        var methods = new HashMap<Method, MethodPlan>();
+        methods.put(EQUALS_METHOD, MethodPlan.of(EQUALS_METHOD, MethodPlan.Kind.EQUALS));
+        methods.put(HASHCODE_METHOD, MethodPlan.of(HASHCODE_METHOD, MethodPlan.Kind.HASH_CODE));
+        methods.put(TOSTRING_METHOD, MethodPlan.of(TOSTRING_METHOD, MethodPlan.Kind.TO_STRING));
+
+        var interfaceMethods = methodsOf(interfaceType);
+        var ordered = new MethodPlan[interfaceMethods.length];
+        var indexes = new HashMap<String, Integer>();
+        // Plain methods of interfaces with a class generated by the annotation processor are already deduced.
+        var precomputed = AccessorGenerator.compiledPlansOf(interfaceType);
+        for (var i = 0; i < interfaceMethods.length; i++)
+        {
+            if (precomputed != null && precomputed[i] != null)
+                ordered[i] = MethodPlan.resolve(interfaceMethods[i], i, precomputed[i], strongPersistentData);
+            else
+                ordered[i] = MethodPlan.resolve(interfaceMethods[i], i, interfaceType, strongPersistentData);
+
+            methods.put(interfaceMethods[i], ordered[i]);
+            indexes.put(interfaceMethods[i].getName() + descriptorOf(interfaceMethods[i]), i);
+        }
+
+        // The same method may be inherited from more than one interface, and a proxy may be invoked with any of them.
+        for (var method : interfaceType.getMethods())
+        {
+            if (!Modifier.isStatic(method.getModifiers()) && !methods.containsKey(method))
+                methods.put(method, ordered[indexes.get(method.getName() + descriptorOf(method))]);
+        }
+
+        var schemaVersionAnnotation = interfaceType.getAnnotation(SchemaVersion.class);
+        if (schemaVersionAnnotation == null)
+            return new InterfacePlan(interfaceType, methods, ordered, 0, null, Map.of());
+
+        var versionKey = new NamespacedKey(strongPersistentData.plugin, schemaVersionAnnotation.key());
+        return new InterfacePlan(interfaceType, methods, ordered, schemaVersionAnnotation.value(), versionKey, strongPersistentData.migrationsOf(interfaceType));
+    }
+
+    /**
+     * @return every non-static method of {@code interfaceType}, in a stable order. Methods inherited more than once are
+     * only included once.
+     */
+    static Method[] methodsOf(Class<?> interfaceType)
+    {
+        var methods = new ArrayList<Method>();
+        var signatures = new HashSet<String>();
+        for (var method : interfaceType.getMethods())
+        {
+            if (!Modifier.isStatic(method.getModifiers()) && signatures.add(method.getName() + descriptorOf(method)))
+                methods.add(method);
+        }
+
+        methods.sort(METHOD_ORDER);
+        return methods.toArray(new Method[0]);
+    }
+
+    static String descriptorOf(Method method)
+    {
+        var builder = new StringBuilder("(");
+        for (var parameterType : method.getParameterTypes())
+            builder.append(descriptorOf(parameterType));
+
+        return builder.append(')').append(descriptorOf(method.getReturnType())).toString();
+    }
+
+    static String descriptorOf(Class<?> type)
+    {
+        if (type == Void.TYPE)
+            return "V";
+        if (type == Boolean.TYPE)
+            return "Z";
+        if (type == Byte.TYPE)
+            return "B";
+        if (type == Short.TYPE)
+            return "S";
+        if (type == Character.TYPE)
+            return "C";
+        if (type == Integer.TYPE)
+            return "I";
+        if (type == Long.TYPE)
+            return "J";
+        if (type == Float.TYPE)
+            return "F";
+        if (type == Double.TYPE)
+            return "D";
+        if (type.isArray())
+            return type.getName().replace('.', '/');
+
+        return "L" + type.getName().replace('.', '/') + ";";
+    }
+
+    /**
+     * @return the plan for {@code method}, which must be a method of this interface, or of {@link Object}
+     */
+    MethodPlan get(Method method)
+    {
+        var plan = methods.get(method);
+        if (plan == null)
+            throw new IllegalStateException("No plan for " + method + " on " + interfaceType);
+
+        return plan;
+    }
+
+    /**
+     * Throw if any method of this interface could not be understood, instead of waiting for it to be invoked, or if a
+     * {@link Packed} group has the key of a value that isn't packed.
+     *
+     * @throws IllegalStateException listing every method that could not be understood
+     */
+    void validate()
+    {
+        var errors = new StringBuilder();
+        var groupKeys = new HashSet<NamespacedKey>();
+        for (var plan : ordered)
+        {
+            if (plan.kind == MethodPlan.Kind.INVALID)
+                errors.append("\n  ").append(plan.method.getName()).append(": ").append(plan.error);
+            else if (plan.packing != null)
+                groupKeys.add(plan.key);
+        }
+
+        for (var plan : ordered)
+        {
+            if (plan.packing == null && plan.key != null && groupKeys.contains(plan.key))
+                errors.append("\n  ").append(plan.method.getName()).append(": Its key ").append(plan.key).append(" is also the key of a @Packed group");
+        }
+
+        if (errors.length() != 0)
+            throw new IllegalStateException("Invalid methods on " + interfaceType.getName() + ":" + errors);
+    }
+
+    /**
+     * Apply every migration from {@code version} to {@link #schemaVersion} to {@code container}. The version is written
+     * after each migration, so a migration that throws is retried without repeating those before it.
+     *
+     * @throws IllegalStateException if the container is newer than the interface, or a migration is missing
+     */
+    void migrate(PersistentDataContainer container, int version)
+    {
+        if (version > schemaVersion)
+            throw new IllegalStateException("Container has version " + version + " of " + interfaceType.getName() + ", which is newer than " + schemaVersion);
+
+        for (; version < schemaVersion; version++)
+        {
+            var migration = migrations.get(version);
+            if (migration == null)
+                throw new IllegalStateException("No migration is registered from version " + version + " of " + interfaceType.getName());
+
+            migration.accept(container);
+            container.set(versionKey, PersistentDataType.INTEGER, version + 1);
+        }
+    }
+
+    /**
+     * @return true if {@code container}, which has no version, has keys that may need migrating from version 0. These are
+     * the keys of this interface, so that keys of other plugins or interfaces don't make a new container look old. If
+     * there is a migration from version 0, which may rename or remove keys this interface no longer has, any key of our
+     * plugin counts too.
+     */
+    boolean hasUnversionedKeys(PersistentDataContainer container)
+    {
+        var containerKeys = container.getKeys();
+        if (containerKeys.isEmpty())
+            return false;
+
+        for (var key : keys)
+        {
+            if (containerKeys.contains(key))
+                return true;
+        }
+
+        if (!migrations.containsKey(0))
+            return false;
+
+        for (var key : containerKeys)
+        {
+            if (key.getNamespace().equals(versionKey.getNamespace()))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the slot of {@code key}, or -1 if this interface does not use it
+     */
+    int slotOf(NamespacedKey key)
+    {
+        var slot = slots.get(key);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * @return the slots of the keys {@code plan}, which is {@link Memoized}, declares it depends on
+     */
+    BitSet declaredDependenciesOf(MethodPlan plan)
+    {
+        return declaredDependencies[plan.index];
+    }
+
+    /**
+     * @return how many methods the interface has, not counting those of {@link Object}
+     */
+    int size()
+    {
+        return ordered.length;
+    }
+
+    /**
+     * @return every plan, in the order of {@link #methodsOf(Class)}
+     */
+    MethodPlan[] plans()
+    {
+        return ordered.clone();
+    }
+
+    /**
+     * @return the plan for the method at {@code index} of {@link #methodsOf(Class)}
+     */
+    MethodPlan get(int index)
+    {
+        return ordered[index];
+    }
+}
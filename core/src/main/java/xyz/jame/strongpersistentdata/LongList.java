@@ -0,0 +1,176 @@
+package xyz.jame.strongpersistentdata;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * A growable list of {@code long}s, backed by a {@code long[]}, which is stored as a
+ * {@link org.bukkit.persistence.PersistentDataType#LONG_ARRAY}. It is also a {@code List<Long>}, but
+ * {@link #getLong(int)}, {@link #setLong(int, long)} and {@link #addLong(long)} don't box.
+ * </p>
+ *
+ * <p>
+ * Getters returning this (or {@code List<Long>}) wrap the array read from the container without copying it. Setting it
+ * only copies the array if it has spare capacity.
+ * </p>
+ */
+public final class LongList extends AbstractList<Long> implements RandomAccess
+{
+    private long[] elements;
+    private int size;
+
+    public LongList()
+    {
+        this(10);
+    }
+
+    public LongList(int capacity)
+    {
+        this.elements = new long[capacity];
+    }
+
+    private LongList(long[] elements)
+    {
+        this.elements = elements;
+        this.size = elements.length;
+    }
+
+    /**
+     * @return a new list of a copy of {@code values}
+     */
+    @NotNull
+    public static LongList of(@NotNull long... values)
+    {
+        return new LongList(values.clone());
+    }
+
+    /**
+     * @return a list of {@code values}, which is not copied
+     */
+    static LongList wrap(long[] values)
+    {
+        return new LongList(values);
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    public long getLong(int index)
+    {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * @return the element previously at {@code index}
+     */
+    public long setLong(int index, long value)
+    {
+        checkIndex(index);
+        var previous = elements[index];
+        elements[index] = value;
+        return previous;
+    }
+
+    public void addLong(long value)
+    {
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, Math.max(size * 2, 10));
+
+        elements[size++] = value;
+        modCount++;
+    }
+
+    /**
+     * @return the element that was at {@code index}
+     */
+    public long removeLong(int index)
+    {
+        checkIndex(index);
+        var previous = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    /**
+     * @return a copy of the elements
+     */
+    @NotNull
+    public long[] toLongArray()
+    {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * @return the elements, which is our own array if it has no spare capacity. This is only for handing to a
+     * container, which copies what it is set to (as {@link BufferedPersistentDataContainer} does too), and must not be
+     * kept or changed.
+     */
+    long[] elements()
+    {
+        return size == elements.length ? elements : Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public Long get(int index)
+    {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long element)
+    {
+        return setLong(index, element);
+    }
+
+    @Override
+    public void add(int index, Long element)
+    {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, Math.max(size * 2, 10));
+
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Long remove(int index)
+    {
+        return removeLong(index);
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex)
+    {
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+}
@@ -0,0 +1,30 @@
+package xyz.jame.strongpersistentdata;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Cache what a {@code default} method returns on the wrapped object, so it is only computed again once a key it
+ * depends on has been written. The method must have no parameters.
+ * </p>
+ *
+ * <p>
+ * The method depends on every key it reads through the wrapped object while it is computed, including through other
+ * memoized methods and {@link Wrap} children, and on the keys of the methods named by {@link #dependsOn()}. Only writes
+ * through the same wrapped object (or its children) are seen, so writes made to the container directly, or through
+ * another wrapped object, may leave it outdated.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface Memoized
+{
+    /**
+     * @return the names of methods of the interface whose keys the method also depends on, such as those it only reads
+     * through another wrapped object
+     */
+    String[] dependsOn() default {};
+}
@@ -0,0 +1,126 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A {@link PersistentDataContainer} that only lives on the heap, and does not need a server, such as for tests and
+ * benchmarks of wrapped interfaces. It is also its own {@link PersistentDataAdapterContext}, which only nests containers
+ * it created.
+ *
+ * <p>
+ * Like the containers of a server, values are stored as their primitive type, and arrays and nested containers are
+ * copied both when they are set and when they are retrieved.
+ * </p>
+ */
+public final class MemoryPersistentDataContainer implements PersistentDataContainer, PersistentDataAdapterContext
+{
+    private final HashMap<NamespacedKey, Object> values = new HashMap<>();
+
+    @Override
+    public <T, Z> void set(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type, @NotNull Z value)
+    {
+        values.put(key, copy(type.toPrimitive(value, this)));
+    }
+
+    @Override
+    public <T, Z> boolean has(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type)
+    {
+        return type.getPrimitiveType().isInstance(values.get(key));
+    }
+
+    @Override
+    public <T, Z> Z get(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type)
+    {
+        var value = values.get(key);
+        if (value == null)
+            return null;
+
+        if (!type.getPrimitiveType().isInstance(value))
+            throw new IllegalArgumentException("The found tag instance cannot store " + type.getPrimitiveType().getSimpleName() + " as it is a " + value.getClass().getSimpleName());
+
+        return type.fromPrimitive(type.getPrimitiveType().cast(copy(value)), this);
+    }
+
+    @NotNull
+    @Override
+    public <T, Z> Z getOrDefault(@NotNull NamespacedKey key, @NotNull PersistentDataType<T, Z> type, @NotNull Z defaultValue)
+    {
+        var value = get(key, type);
+        return value != null ? value : defaultValue;
+    }
+
+    @NotNull
+    @Override
+    public Set<NamespacedKey> getKeys()
+    {
+        return new HashSet<>(values.keySet());
+    }
+
+    @Override
+    public void remove(@NotNull NamespacedKey key)
+    {
+        values.remove(key);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return values.isEmpty();
+    }
+
+    @NotNull
+    @Override
+    public PersistentDataAdapterContext getAdapterContext()
+    {
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public PersistentDataContainer newPersistentDataContainer()
+    {
+        return new MemoryPersistentDataContainer();
+    }
+
+    private static Object copy(Object value)
+    {
+        if (value instanceof byte[])
+            return ((byte[]) value).clone();
+        if (value instanceof int[])
+            return ((int[]) value).clone();
+        if (value instanceof long[])
+            return ((long[]) value).clone();
+        if (value instanceof PersistentDataContainer)
+            return copyOf((PersistentDataContainer) value);
+        if (value instanceof PersistentDataContainer[])
+        {
+            var containers = ((PersistentDataContainer[]) value).clone();
+            for (var i = 0; i < containers.length; i++)
+                containers[i] = copyOf(containers[i]);
+
+            return containers;
+        }
+
+        return value;
+    }
+
+    private static PersistentDataContainer copyOf(PersistentDataContainer container)
+    {
+        if (!(container instanceof MemoryPersistentDataContainer))
+            throw new IllegalArgumentException("Only containers created by this adapter context can be nested");
+
+        var copy = new MemoryPersistentDataContainer();
+        for (var entry : ((MemoryPersistentDataContainer) container).values.entrySet())
+            copy.values.put(entry.getKey(), copy(entry.getValue()));
+
+        return copy;
+    }
+}
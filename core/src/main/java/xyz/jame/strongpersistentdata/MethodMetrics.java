@@ -0,0 +1,93 @@
+package xyz.jame.strongpersistentdata;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+
+/**
+ * What {@link Metrics} recorded for one method of a wrapped interface, over some period. Each value is summed
+ * separately while the method may still be invoked, so they are only consistent with each other approximately.
+ */
+public final class MethodMetrics
+{
+    private final Class<?> interfaceType;
+    private final Method method;
+    private final long calls;
+    private final long misses;
+    private final long nanos;
+    private final long bytesWritten;
+
+    MethodMetrics(Class<?> interfaceType, Method method, long calls, long misses, long nanos, long bytesWritten)
+    {
+        this.interfaceType = interfaceType;
+        this.method = method;
+        this.calls = calls;
+        this.misses = misses;
+        this.nanos = nanos;
+        this.bytesWritten = bytesWritten;
+    }
+
+    /**
+     * @return the wrapped interface, which may have inherited {@link #method()} from another interface
+     */
+    @NotNull
+    public Class<?> interfaceType()
+    {
+        return interfaceType;
+    }
+
+    @NotNull
+    public Method method()
+    {
+        return method;
+    }
+
+    /**
+     * @return how many times the method was invoked
+     */
+    public long calls()
+    {
+        return calls;
+    }
+
+    /**
+     * @return how many times a getter found nothing in the container, and so returned its default value, null, or an
+     * empty {@code Optional}. This is 0 for other methods.
+     */
+    public long misses()
+    {
+        return misses;
+    }
+
+    /**
+     * @return the fraction of calls to a getter that found a value in the container, or 1 if there were no calls
+     */
+    public double hitRate()
+    {
+        return calls == 0 ? 1 : (double) (calls - misses) / calls;
+    }
+
+    /**
+     * @return the total time spent in the method, including in the container, in nanoseconds
+     */
+    public long nanos()
+    {
+        return nanos;
+    }
+
+    /**
+     * @return roughly how many bytes the method wrote to the container, counting the name of each key written and the
+     * size of its primitive value. Nested containers aren't counted, and {@link Compressed} values are counted before
+     * they are compressed.
+     */
+    public long bytesWritten()
+    {
+        return bytesWritten;
+    }
+
+    @Override
+    public String toString()
+    {
+        return interfaceType.getName() + "#" + method.getName() + "[calls=" + calls + ", misses=" + misses + ", nanos=" + nanos + ", bytesWritten=" + bytesWritten + "]";
+    }
+}
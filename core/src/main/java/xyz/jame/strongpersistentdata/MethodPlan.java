@@ -0,0 +1,979 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Everything about a single interface method that can be known before it is invoked.
+ * These are resolved once per interface (see {@link InterfacePlan}), so invoking a method only needs to look at the
+ * already deduced kind, key and type, instead of deducing them again.
+ */
+final class MethodPlan
+{
+    enum Kind
+    {
+        EQUALS,
+        HASH_CODE,
+        TO_STRING,
+        REMOVE,
+        HAS,
+        SET,
+        SET_WRAPPED,
+        GET,
+        GET_WRAPPED,
+        GET_OPTIONAL_INT,
+        GET_OPTIONAL_LONG,
+        GET_OPTIONAL_DOUBLE,
+        GET_OPTIONAL,
+        GET_OPTIONAL_WRAPPED,
+        /**
+         * A {@link Wrap} getter of a {@code List} of wrapped interfaces, stored as a
+         * {@link PersistentDataType#TAG_CONTAINER_ARRAY}.
+         */
+        GET_WRAPPED_LIST,
+        /**
+         * A {@link Wrap} getter of a {@code Map} of names to wrapped interfaces, stored as a nested container.
+         */
+        GET_WRAPPED_MAP,
+        SET_WRAPPED_LIST,
+        SET_WRAPPED_MAP,
+        /**
+         * A {@link Counter} method which adds to the key. The delta is {@link MethodPlan#step}, or the argument if that
+         * is 0.
+         */
+        ADD,
+        /**
+         * A {@link Counter} method which sets the second argument if the key holds the first. The argument is an array of
+         * both.
+         */
+        COMPARE_AND_SET,
+        /**
+         * A {@link Packed} getter, which reads its bits of the group's key with {@link MethodPlan#packing}.
+         */
+        GET_PACKED,
+        /**
+         * A {@link Packed} setter, which replaces its bits of the group's key with {@link MethodPlan#packing}.
+         */
+        SET_PACKED,
+        /**
+         * A {@link Compressed} getter, which reads and decompresses the key with {@link MethodPlan#compression}.
+         */
+        GET_COMPRESSED,
+        /**
+         * A {@link Compressed} setter, which compresses and writes the key with {@link MethodPlan#compression}.
+         */
+        SET_COMPRESSED,
+        /**
+         * A {@code default} method, whose body is run with {@link MethodPlan#body}, and may be {@link Memoized}.
+         */
+        DEFAULT,
+        /**
+         * The method could not be understood. Invoking it will throw an {@link IllegalStateException} with
+         * {@link MethodPlan#error} as the message.
+         */
+        INVALID
+    }
+
+    final Method method;
+    /**
+     * The index of the method in {@link InterfacePlan#methodsOf(Class)}, or -1 for methods of {@link Object}.
+     */
+    final int index;
+    final Kind kind;
+    final NamespacedKey key;
+    final PersistentDataType persistentType;
+    /**
+     * The value to return from a getter when the key does not exist, already converted to the return type.
+     * This is null if there is no {@link DefaultValue} annotation.
+     */
+    final Object defaultValue;
+    final boolean removeOnNull;
+    /**
+     * The interface to wrap (or unwrap) nested containers to, for {@link Wrap} methods. For lists and maps, this is the
+     * type of their elements.
+     */
+    final Class<?> wrapType;
+    final String error;
+    /**
+     * What {@link Kind#ADD} adds, or 0 if it adds its argument.
+     */
+    final int step;
+    /**
+     * True if {@link Kind#ADD} should be coalesced, see {@link Counter#coalesce()}.
+     */
+    final boolean coalesce;
+    /**
+     * Where the value of {@link Kind#GET_PACKED} and {@link Kind#SET_PACKED} is within the group, which is {@link #key}.
+     */
+    final Packing packing;
+    /**
+     * How the key of {@link Kind#GET_COMPRESSED} and {@link Kind#SET_COMPRESSED} is compressed. This is also set for a
+     * {@link Kind#HAS} of a compressed key, which may be either of two types.
+     */
+    final Compression compression;
+    /**
+     * The body of a {@link Kind#DEFAULT} method, taking the wrapped object and the argument like
+     * {@link PersistentDataContainerProxy#invoke(Object, MethodPlan, Object)}.
+     */
+    final MethodHandle body;
+    /**
+     * The methods a {@link Memoized} {@link Kind#DEFAULT} method declares it depends on, or null if it isn't memoized.
+     */
+    final String[] dependsOn;
+
+    private MethodPlan(Method method, int index, Kind kind, NamespacedKey key, PersistentDataType persistentType, Object defaultValue, boolean removeOnNull, Class<?> wrapType, String error)
+    {
+        this(method, index, kind, key, persistentType, defaultValue, removeOnNull, wrapType, error, 0, false, null, null);
+    }
+
+    private MethodPlan(Method method, int index, Kind kind, NamespacedKey key, PersistentDataType persistentType, Object defaultValue, boolean removeOnNull, Class<?> wrapType, String error, int step, boolean coalesce, Packing packing, Compression compression)
+    {
+        this(method, index, kind, key, persistentType, defaultValue, removeOnNull, wrapType, error, step, coalesce, packing, compression, null, null);
+    }
+
+    private MethodPlan(Method method, int index, Kind kind, NamespacedKey key, PersistentDataType persistentType, Object defaultValue, boolean removeOnNull, Class<?> wrapType, String error, int step, boolean coalesce, Packing packing, Compression compression, MethodHandle body, String[] dependsOn)
+    {
+        this.method = method;
+        this.index = index;
+        this.kind = kind;
+        this.key = key;
+        this.persistentType = persistentType;
+        this.defaultValue = defaultValue;
+        this.removeOnNull = removeOnNull;
+        this.wrapType = wrapType;
+        this.error = error;
+        this.step = step;
+        this.coalesce = coalesce;
+        this.packing = packing;
+        this.compression = compression;
+        this.body = body;
+        this.dependsOn = dependsOn;
+    }
+
+    /**
+     * @return true if this is a getter, setter or has method which generated implementations may run themselves, by
+     * reading or writing the container with {@link #key} and {@link #persistentType}
+     */
+    boolean isPlain()
+    {
+        switch (kind)
+        {
+            case GET:
+            case SET:
+                return true;
+            case HAS:
+                return compression == null;
+            default:
+                return false;
+        }
+    }
+
+    static MethodPlan of(Method method, Kind kind)
+    {
+        return new MethodPlan(method, -1, kind, null, null, null, false, null, null);
+    }
+
+    private static MethodPlan of(Method method, int index, Kind kind, NamespacedKey key)
+    {
+        return new MethodPlan(method, index, kind, key, null, null, false, null, null);
+    }
+
+    private static MethodPlan invalid(Method method, int index, String error)
+    {
+        return new MethodPlan(method, index, Kind.INVALID, null, null, null, false, null, error);
+    }
+
+    /**
+     * Deduce everything about {@code method}, which has been declared on (or inherited by) {@code interfaceType}, and is
+     * at {@code index} of {@link InterfacePlan#methodsOf(Class)}.
+     * This never throws -- methods that cannot be understood will be {@link Kind#INVALID}, and only fail when they are
+     * invoked.
+     */
+    static MethodPlan resolve(Method method, int index, Class<?> interfaceType, StrongPersistentData strongPersistentData)
+    {
+        try
+        {
+            return deduce(method, index, interfaceType, strongPersistentData);
+        }
+        catch (IllegalStateException e)
+        {
+            // Thrown while resolving a persistent type, such as for a class that can't be encoded.
+            return invalid(method, index, e.getMessage());
+        }
+    }
+
+    private static MethodPlan deduce(Method method, int index, Class<?> interfaceType, StrongPersistentData strongPersistentData)
+    {
+        String name;
+        String effectiveMethodName;
+        boolean isRemoveMethod = method.getName().startsWith("remove") && method.getReturnType() == Void.TYPE && method.getParameterCount() == 0;
+        boolean isHasMethod = method.getName().startsWith("has") && method.getReturnType() == Boolean.TYPE && method.getParameterCount() == 0;
+        var explicitNameAnnotation = method.getAnnotation(ExplicitName.class);
+        var explicitTypeAnnotation = method.getAnnotation(ExplicitType.class);
+        var shouldWrap = method.getAnnotation(Wrap.class) != null;
+        var compressedAnnotation = method.getAnnotation(Compressed.class);
+        var counterAnnotation = method.getAnnotation(Counter.class);
+        var packedAnnotation = method.getAnnotation(Packed.class);
+        var counterPrefix = packedAnnotation == null ? counterPrefixOf(method) : null;
+
+        if (method.isDefault())
+            return resolveDefault(method, index, interfaceType);
+
+        if (method.getAnnotation(Memoized.class) != null)
+            return invalid(method, index, "@Memoized can only be used on default methods");
+
+        if (packedAnnotation != null)
+            return resolvePacked(method, index, interfaceType, strongPersistentData, packedAnnotation);
+
+        if (isRemoveMethod && method.getName().length() == 6)
+            return invalid(method, index, "Remove method needs the name of its key after \"remove\", such as removeName");
+        if (isHasMethod && method.getName().length() == 3)
+            return invalid(method, index, "Has method needs the name of its key after \"has\", such as hasName");
+
+        if (isRemoveMethod)
+            effectiveMethodName = Character.toLowerCase(method.getName().charAt(6)) + method.getName().substring(7);
+        else if (isHasMethod)
+            effectiveMethodName = Character.toLowerCase(method.getName().charAt(3)) + method.getName().substring(4);
+        else if (counterPrefix != null)
+            effectiveMethodName = Character.toLowerCase(method.getName().charAt(counterPrefix.length())) + method.getName().substring(counterPrefix.length() + 1);
+        else
+            effectiveMethodName = method.getName();
+
+        if (explicitNameAnnotation != null)
+            name = explicitNameAnnotation.value();
+        else
+            name = camelCaseToSnakeCase(effectiveMethodName);
+
+        // A method shaped like a counter is only one if it's clear it was meant to be. Otherwise, it's a getter or setter
+        // of a key that happens to be named like one.
+        if (counterPrefix != null && counterAnnotation == null && explicitTypeAnnotation == null && findSetter(interfaceType, effectiveMethodName) == null)
+        {
+            counterPrefix = null;
+            effectiveMethodName = method.getName();
+            if (explicitNameAnnotation == null)
+                name = camelCaseToSnakeCase(effectiveMethodName);
+        }
+
+        var key = new NamespacedKey(strongPersistentData.plugin, name);
+
+        if (isRemoveMethod)
+        {
+            if (isPacked(findSetter(interfaceType, effectiveMethodName)))
+                return invalid(method, index, "Packed values always exist, so they can't be removed");
+
+            return of(method, index, Kind.REMOVE, key);
+        }
+
+        if (counterPrefix != null)
+            return resolveCounter(method, index, key, counterPrefix, effectiveMethodName, interfaceType, strongPersistentData);
+
+        if (isHasMethod)
+        {
+            Class<?> type;
+            Type genericType = null;
+
+            // If we are annotated with @ExplicitType, then it's super easy to know our type
+            if (explicitTypeAnnotation != null)
+                type = explicitTypeAnnotation.value();
+            else
+            {
+                // Otherwise, we can _try_ to deduce it by finding its setter method.
+                var maybeSetter = findSetter(interfaceType, effectiveMethodName);
+                if (maybeSetter == null)
+                    return invalid(method, index, "Couldn't deduce type for has method");
+                if (isPacked(maybeSetter))
+                    return invalid(method, index, "Packed values always exist, so they have no has method");
+
+                var setterCompressedAnnotation = maybeSetter.getAnnotation(Compressed.class);
+                if (setterCompressedAnnotation != null && isCompressible(maybeSetter.getParameterTypes()[0]))
+                {
+                    var compression = new Compression(maybeSetter.getParameterTypes()[0] == String.class, setterCompressedAnnotation, strongPersistentData);
+                    return new MethodPlan(method, index, Kind.HAS, key, PersistentDataType.BYTE_ARRAY, null, false, null, null, 0, false, null, compression);
+                }
+
+                type = maybeSetter.getParameters()[0].getType();
+                genericType = maybeSetter.getGenericParameterTypes()[0];
+            }
+
+            // Let's not try to deduce based on its getter method. It might be an Optional (or specialized), and
+            // it's not worth trying to distinguish
+
+            var persistentType = persistentTypeOf(strongPersistentData, type, genericType);
+            if (persistentType == null)
+                return invalid(method, index, noPersistentTypeMessage(method.getName(), type));
+
+            return new MethodPlan(method, index, Kind.HAS, key, persistentType, null, false, null, null);
+        }
+
+        // This should be a setter
+        if (method.getReturnType() == Void.TYPE)
+        {
+            if (method.getParameterCount() != 1)
+                return invalid(method, index, "Setter with more than one parameter");
+
+            var type = method.getParameters()[0].getType();
+            var nullActionAnnotation = method.getAnnotation(NullAction.class);
+            var removeOnNull = nullActionAnnotation != null && nullActionAnnotation.value() == NullAction.Rule.Remove;
+
+            if (compressedAnnotation != null)
+            {
+                if (!isCompressible(type))
+                    return invalid(method, index, "@Compressed can only be used on String or byte[]");
+
+                return new MethodPlan(method, index, Kind.SET_COMPRESSED, key, PersistentDataType.BYTE_ARRAY, null, removeOnNull, null, null, 0, false, null, new Compression(type == String.class, compressedAnnotation, strongPersistentData));
+            }
+
+            if (shouldWrap && (type == List.class || type == Map.class))
+                return resolveWrappedCollection(method, index, key, type, method.getGenericParameterTypes()[0], true, removeOnNull);
+
+            if (shouldWrap)
+                return new MethodPlan(method, index, Kind.SET_WRAPPED, key, PersistentDataType.TAG_CONTAINER, null, removeOnNull, type, null);
+
+            var persistentType = persistentTypeOf(strongPersistentData, type, method.getGenericParameterTypes()[0]);
+            if (persistentType == null)
+                return invalid(method, index, noPersistentTypeMessage(method.getName(), type));
+
+            return new MethodPlan(method, index, Kind.SET, key, persistentType, null, removeOnNull, null, null);
+        }
+
+        // This should be a getter
+        if (method.getParameterCount() != 0)
+            return invalid(method, index, "Getter with more than 0 parameters");
+
+        var type = method.getReturnType();
+
+        if (compressedAnnotation != null)
+        {
+            if (!isCompressible(type))
+                return invalid(method, index, "@Compressed can only be used on String or byte[]");
+
+            return new MethodPlan(method, index, Kind.GET_COMPRESSED, key, PersistentDataType.BYTE_ARRAY, defaultValueOf(method, type), false, null, null, 0, false, null, new Compression(type == String.class, compressedAnnotation, strongPersistentData));
+        }
+
+        if (type == OptionalInt.class)
+            return new MethodPlan(method, index, Kind.GET_OPTIONAL_INT, key, PersistentDataType.INTEGER, null, false, null, null);
+        else if (type == OptionalLong.class)
+            return new MethodPlan(method, index, Kind.GET_OPTIONAL_LONG, key, PersistentDataType.LONG, null, false, null, null);
+        else if (type == OptionalDouble.class)
+            return new MethodPlan(method, index, Kind.GET_OPTIONAL_DOUBLE, key, PersistentDataType.DOUBLE, null, false, null, null);
+        else if (type == Optional.class)
+        {
+            // Type erasure means we cannot deduce the class type from the type parameter.
+
+            Class<?> optionalParameterizedType;
+            Type genericType = null;
+
+            // If we are annotated with @ExplicitType, then it's super easy to know our type
+            if (explicitTypeAnnotation != null)
+                optionalParameterizedType = explicitTypeAnnotation.value();
+            else
+            {
+                // Otherwise, we can _try_ to deduce it by finding its setter method.
+                var maybeSetter = findSetter(interfaceType, effectiveMethodName);
+                if (maybeSetter == null)
+                    return invalid(method, index, "Couldn't deduce parameterized type for Optional getter");
+
+                optionalParameterizedType = maybeSetter.getParameters()[0].getType();
+                genericType = maybeSetter.getGenericParameterTypes()[0];
+            }
+
+            if (shouldWrap)
+                return new MethodPlan(method, index, Kind.GET_OPTIONAL_WRAPPED, key, PersistentDataType.TAG_CONTAINER, null, false, optionalParameterizedType, null);
+
+            var persistentType = persistentTypeOf(strongPersistentData, optionalParameterizedType, genericType);
+            if (persistentType == null)
+                return invalid(method, index, noPersistentTypeMessage(method.getName(), optionalParameterizedType));
+            if (!isReturnable(persistentType, optionalParameterizedType))
+                return invalid(method, index, notReturnableMessage(method.getName(), optionalParameterizedType, persistentType));
+
+            return new MethodPlan(method, index, Kind.GET_OPTIONAL, key, persistentType, null, false, null, null);
+        }
+
+        if (shouldWrap && (type == List.class || type == Map.class))
+            return resolveWrappedCollection(method, index, key, type, method.getGenericReturnType(), false, false);
+
+        if (shouldWrap)
+            return new MethodPlan(method, index, Kind.GET_WRAPPED, key, PersistentDataType.TAG_CONTAINER, null, false, type, null);
+
+        var persistentType = persistentTypeOf(strongPersistentData, type, method.getGenericReturnType());
+        if (persistentType == null)
+            return invalid(method, index, noPersistentTypeMessage(method.getName(), type));
+        if (!isReturnable(persistentType, type))
+            return invalid(method, index, notReturnableMessage(method.getName(), type, persistentType));
+
+        Object defaultValue;
+        try
+        {
+            defaultValue = defaultValueOf(method, type);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return invalid(method, index, "Invalid @DefaultValue.String for " + type.getName() + ": " + e.getMessage());
+        }
+
+        return new MethodPlan(method, index, Kind.GET, key, persistentType, defaultValue, false, null, null);
+    }
+
+    /**
+     * Like {@link #resolve(Method, int, Class, StrongPersistentData)}, for a plain method whose kind, key and type were
+     * already deduced by the annotation processor. Only its persistent type and default value are looked up here.
+     */
+    static MethodPlan resolve(Method method, int index, GeneratedAccessor.Plan precomputed, StrongPersistentData strongPersistentData)
+    {
+        try
+        {
+            return deduce(method, index, precomputed, strongPersistentData);
+        }
+        catch (IllegalStateException e)
+        {
+            return invalid(method, index, e.getMessage());
+        }
+    }
+
+    private static MethodPlan deduce(Method method, int index, GeneratedAccessor.Plan precomputed, StrongPersistentData strongPersistentData)
+    {
+        var key = new NamespacedKey(strongPersistentData.plugin, precomputed.key);
+        if (precomputed.kind == Kind.REMOVE)
+            return of(method, index, Kind.REMOVE, key);
+
+        var persistentType = strongPersistentData.persistentDataTypes.get(precomputed.type);
+        if (persistentType == null)
+            return invalid(method, index, noPersistentTypeMessage(method.getName(), precomputed.type));
+
+        if (precomputed.kind != Kind.GET)
+            return new MethodPlan(method, index, precomputed.kind, key, persistentType, null, precomputed.removeOnNull, null, null);
+
+        if (!isReturnable(persistentType, precomputed.type))
+            return invalid(method, index, notReturnableMessage(method.getName(), precomputed.type, persistentType));
+
+        var defaultValue = precomputed.defaultValue;
+        if (defaultValue instanceof String)
+        {
+            try
+            {
+                defaultValue = parseDefaultValue((String) defaultValue, precomputed.type);
+            }
+            catch (IllegalArgumentException e)
+            {
+                return invalid(method, index, "Invalid @DefaultValue.String for " + precomputed.type.getName() + ": " + e.getMessage());
+            }
+        }
+
+        return new MethodPlan(method, index, Kind.GET, key, persistentType, defaultValue, false, null, null);
+    }
+
+    /**
+     * Resolve a {@code default} method, whose body is looked up once, and then invoked by every wrapped object.
+     */
+    private static MethodPlan resolveDefault(Method method, int index, Class<?> interfaceType)
+    {
+        String[] dependsOn = null;
+        var memoizedAnnotation = method.getAnnotation(Memoized.class);
+        if (memoizedAnnotation != null)
+        {
+            if (method.getParameterCount() != 0 || method.getReturnType() == Void.TYPE)
+                return invalid(method, index, "@Memoized can only be used on methods without parameters, which return something");
+
+            for (var name : memoizedAnnotation.dependsOn())
+            {
+                if (!hasKeyMethod(interfaceType, name))
+                    return invalid(method, index, "@Memoized depends on " + name + ", which is not a method of " + interfaceType.getName());
+            }
+
+            dependsOn = memoizedAnnotation.dependsOn();
+        }
+
+        MethodHandle body;
+        try
+        {
+            var declaringClass = method.getDeclaringClass();
+            body = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup()).unreflectSpecial(method, declaringClass);
+        }
+        catch (IllegalAccessException | RuntimeException e)
+        {
+            return invalid(method, index, "Couldn't access the default method: " + e.getMessage());
+        }
+
+        // Take the argument the same way as every other method: nothing, itself, or an array of every argument.
+        var parameterCount = method.getParameterCount();
+        if (parameterCount == 0)
+            body = MethodHandles.dropArguments(body.asType(MethodType.methodType(Object.class, Object.class)), 1, Object.class);
+        else
+        {
+            if (parameterCount > 1)
+                body = body.asSpreader(Object[].class, parameterCount);
+
+            body = body.asType(MethodType.methodType(Object.class, Object.class, Object.class));
+        }
+
+        return new MethodPlan(method, index, Kind.DEFAULT, null, null, null, false, null, null, 0, false, null, null, body, dependsOn);
+    }
+
+    /**
+     * @return true if {@code interfaceType} has a method named {@code name} which isn't a default method, and so
+     * accesses a key
+     */
+    private static boolean hasKeyMethod(Class<?> interfaceType, String name)
+    {
+        for (var m : interfaceType.getMethods())
+        {
+            if (m.getName().equals(name) && !m.isDefault() && !Modifier.isStatic(m.getModifiers()))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Resolve a {@link Wrap} getter or setter of a {@code List} or {@code Map}, whose elements are the type argument of
+     * {@code genericType}.
+     */
+    private static MethodPlan resolveWrappedCollection(Method method, int index, NamespacedKey key, Class<?> type, Type genericType, boolean isSetter, boolean removeOnNull)
+    {
+        if (!(genericType instanceof ParameterizedType))
+            return invalid(method, index, "A @Wrap List or Map must have type arguments");
+
+        var typeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
+        var elementType = typeArguments[typeArguments.length - 1];
+
+        if (type == Map.class && typeArguments[0] != String.class)
+            return invalid(method, index, "The keys of a @Wrap Map must be String");
+
+        if (!(elementType instanceof Class) || !((Class<?>) elementType).isInterface())
+            return invalid(method, index, "The elements of a @Wrap List or Map must be a wrapped interface");
+
+        if (type == List.class)
+            return new MethodPlan(method, index, isSetter ? Kind.SET_WRAPPED_LIST : Kind.GET_WRAPPED_LIST, key, PersistentDataType.TAG_CONTAINER_ARRAY, null, removeOnNull, (Class<?>) elementType, null);
+
+        return new MethodPlan(method, index, isSetter ? Kind.SET_WRAPPED_MAP : Kind.GET_WRAPPED_MAP, key, PersistentDataType.TAG_CONTAINER, null, removeOnNull, (Class<?>) elementType, null);
+    }
+
+    private static MethodPlan resolveCounter(Method method, int index, NamespacedKey key, String prefix, String effectiveMethodName, Class<?> interfaceType, StrongPersistentData strongPersistentData)
+    {
+        var explicitTypeAnnotation = method.getAnnotation(ExplicitType.class);
+        var counterAnnotation = method.getAnnotation(Counter.class);
+        var isCompareAndSet = prefix.equals("compareAndSet");
+        Class<?> type;
+        Type genericType = null;
+
+        if (explicitTypeAnnotation != null)
+            type = explicitTypeAnnotation.value();
+        else
+        {
+            var maybeSetter = findSetter(interfaceType, effectiveMethodName);
+            if (isPacked(maybeSetter))
+                return invalid(method, index, "Packed values can't have counter methods");
+            if (maybeSetter != null && maybeSetter.isAnnotationPresent(Compressed.class))
+                return invalid(method, index, "Compressed values can't have counter methods");
+            if (maybeSetter != null)
+            {
+                type = maybeSetter.getParameters()[0].getType();
+                genericType = maybeSetter.getGenericParameterTypes()[0];
+            }
+            else if (method.getParameterCount() != 0)
+            {
+                type = method.getParameterTypes()[0];
+                genericType = method.getGenericParameterTypes()[0];
+            }
+            else if (method.getReturnType() != Void.TYPE)
+            {
+                type = method.getReturnType();
+                genericType = method.getGenericReturnType();
+            }
+            else
+                return invalid(method, index, "Couldn't deduce type for counter method");
+        }
+
+        var persistentType = persistentTypeOf(strongPersistentData, type, genericType);
+        if (persistentType == null)
+            return invalid(method, index, noPersistentTypeMessage(method.getName(), type));
+
+        var complexType = persistentType.getComplexType();
+        var maybeGetter = findGetter(interfaceType, effectiveMethodName);
+        Object defaultValue;
+        try
+        {
+            defaultValue = maybeGetter != null ? defaultValueOf(maybeGetter, maybeGetter.getReturnType()) : null;
+        }
+        catch (IllegalArgumentException e)
+        {
+            // The getter is invalid itself.
+            defaultValue = null;
+        }
+
+        if (isCompareAndSet)
+        {
+            if (!complexType.isAssignableFrom(boxOf(method.getParameterTypes()[0])))
+                return invalid(method, index, "The parameters of a compareAndSet method must be " + type);
+
+            return new MethodPlan(method, index, Kind.COMPARE_AND_SET, key, persistentType, defaultValue, false, null, null);
+        }
+
+        if (complexType != Byte.class && complexType != Short.class && complexType != Integer.class && complexType != Long.class && complexType != Float.class && complexType != Double.class)
+            return invalid(method, index, "Counter methods need a numeric type, not " + type);
+
+        if (method.getParameterCount() != 0 && boxOf(method.getParameterTypes()[0]) != complexType)
+            return invalid(method, index, "The parameter of an add method must be " + type);
+
+        if (method.getReturnType() != Void.TYPE && boxOf(method.getReturnType()) != complexType)
+            return invalid(method, index, "A counter method must return void or " + type);
+
+        if (!complexType.isInstance(defaultValue))
+            defaultValue = zeroOf(complexType);
+
+        var step = prefix.equals("increment") ? 1 : prefix.equals("decrement") ? -1 : 0;
+        var coalesce = counterAnnotation != null && counterAnnotation.coalesce();
+        return new MethodPlan(method, index, Kind.ADD, key, persistentType, defaultValue, false, null, null, step, coalesce, null, null);
+    }
+
+    /**
+     * Resolve a {@link Packed} getter or setter. The whole group is checked again for each of its methods, so they all
+     * agree on where every value is.
+     */
+    private static MethodPlan resolvePacked(Method method, int index, Class<?> interfaceType, StrongPersistentData strongPersistentData, Packed packedAnnotation)
+    {
+        var type = packedTypeOf(method);
+        if (type == null)
+            return invalid(method, index, "@Packed can only be used on getters and setters");
+
+        NamespacedKey key;
+        try
+        {
+            key = new NamespacedKey(strongPersistentData.plugin, packedAnnotation.group());
+        }
+        catch (IllegalArgumentException e)
+        {
+            return invalid(method, index, "Invalid @Packed group: " + e.getMessage());
+        }
+
+        // The getter and setter of a value are the same member of the group.
+        var annotations = new TreeMap<String, Packed>();
+        var types = new HashMap<String, Class<?>>();
+        for (var m : interfaceType.getMethods())
+        {
+            var annotation = m.getAnnotation(Packed.class);
+            var memberType = packedTypeOf(m);
+            if (annotation == null || memberType == null || !annotation.group().equals(packedAnnotation.group()))
+                continue;
+
+            var name = keyNameOf(m);
+            var existing = annotations.putIfAbsent(name, annotation);
+            if (existing != null && (existing.bits() != annotation.bits() || existing.offset() != annotation.offset() || types.get(name) != memberType))
+                return invalid(method, index, "The getter and setter of packed " + name + " must have the same type and @Packed");
+
+            types.put(name, memberType);
+        }
+
+        // Methods can't be listed in the order they are declared, and any other order would move values when one is added,
+        // so only a group of one value may leave out its offset, which is then 0.
+        if (annotations.size() > 1 && packedAnnotation.offset() < 0)
+            return invalid(method, index, "Every value of packed group " + packedAnnotation.group() + " needs an offset, as it has more than one");
+
+        var offsets = new HashMap<String, Integer>();
+        var bits = new HashMap<String, Integer>();
+        var taken = new TreeMap<Integer, String>();
+        var end = 0;
+        for (var entry : annotations.entrySet())
+        {
+            var name = entry.getKey();
+            var annotation = entry.getValue();
+            var memberType = types.get(name);
+
+            if (Packing.widthOf(memberType) == 0)
+                return invalid(method, index, "Packed values must be boolean, byte, short, int, long, or an enum, not " + memberType + " (" + name + ")");
+
+            var memberBits = annotation.bits() != 0 ? annotation.bits() : Packing.defaultBitsOf(memberType);
+            if (memberBits <= 0)
+                return invalid(method, index, "Packed " + name + " needs its number of bits");
+            if (memberBits > Packing.widthOf(memberType) || memberBits < Packing.defaultBitsOf(memberType))
+                return invalid(method, index, "Packed " + name + " can't be stored in " + memberBits + " bits");
+
+            if (annotations.size() > 1 && annotation.offset() < 0)
+                return invalid(method, index, "Every value of packed group " + packedAnnotation.group() + " needs an offset, as it has more than one (" + name + ")");
+
+            // A value never spans two words, so it can be read from one.
+            var offset = Math.max(annotation.offset(), 0);
+            if (offset % Long.SIZE + memberBits > Long.SIZE)
+                return invalid(method, index, "Packed " + name + " crosses a multiple of 64 bits");
+
+            var below = taken.floorKey(offset + memberBits - 1);
+            if (below != null && below + bits.get(taken.get(below)) > offset)
+                return invalid(method, index, "Packed " + name + " overlaps " + taken.get(below));
+
+            taken.put(offset, name);
+
+            offsets.put(name, offset);
+            bits.put(name, memberBits);
+            end = Math.max(end, offset + memberBits);
+        }
+
+        var name = keyNameOf(method);
+        var words = (end + Long.SIZE - 1) / Long.SIZE;
+        var packing = new Packing(type, offsets.get(name), bits.get(name), words);
+        var persistentType = words == 1 ? PersistentDataType.LONG : PersistentDataType.LONG_ARRAY;
+        var kind = method.getReturnType() == Void.TYPE ? Kind.SET_PACKED : Kind.GET_PACKED;
+
+        return new MethodPlan(method, index, kind, key, persistentType, null, false, null, null, 0, false, packing, null);
+    }
+
+    /**
+     * @return the type of the value of a getter or setter, or null if {@code method} is neither
+     */
+    private static Class<?> packedTypeOf(Method method)
+    {
+        if (method.getParameterCount() == 0 && method.getReturnType() != Void.TYPE)
+            return method.getReturnType();
+        if (method.getParameterCount() == 1 && method.getReturnType() == Void.TYPE)
+            return method.getParameterTypes()[0];
+
+        return null;
+    }
+
+    private static boolean isCompressible(Class<?> type)
+    {
+        return type == String.class || type == byte[].class;
+    }
+
+    private static boolean isPacked(Method method)
+    {
+        return method != null && method.isAnnotationPresent(Packed.class);
+    }
+
+    /**
+     * @return the name of the key of a getter or setter
+     */
+    private static String keyNameOf(Method method)
+    {
+        var explicitNameAnnotation = method.getAnnotation(ExplicitName.class);
+        return explicitNameAnnotation != null ? explicitNameAnnotation.value() : camelCaseToSnakeCase(method.getName());
+    }
+
+    /**
+     * @return the type to use for {@code type}, or null if there is none. {@code genericType} is the same type with its
+     * type arguments, if they are known, which are needed for {@code List<Integer>} and {@code List<Long>}.
+     */
+    private static PersistentDataType persistentTypeOf(StrongPersistentData strongPersistentData, Class<?> type, Type genericType)
+    {
+        if (type == List.class && genericType instanceof ParameterizedType)
+        {
+            var elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            if (elementType == Integer.class)
+                return CollectionPersistentDataTypes.LIST_OF_INTEGER;
+            if (elementType == Long.class)
+                return CollectionPersistentDataTypes.LIST_OF_LONG;
+        }
+
+        return strongPersistentData.persistentDataTypes.get(type);
+    }
+
+    /**
+     * @return the prefix of a method shaped like a {@link Counter} method, or null if it isn't one
+     */
+    private static String counterPrefixOf(Method method)
+    {
+        var name = method.getName();
+        var returnType = method.getReturnType();
+        var parameterTypes = method.getParameterTypes();
+
+        if (parameterTypes.length == 1 && (returnType == Void.TYPE || returnType == parameterTypes[0]))
+            return hasPrefix(name, "add") ? "add" : null;
+
+        if (parameterTypes.length == 0)
+        {
+            if (hasPrefix(name, "increment"))
+                return "increment";
+
+            return hasPrefix(name, "decrement") ? "decrement" : null;
+        }
+
+        if (parameterTypes.length == 2 && returnType == Boolean.TYPE && parameterTypes[0] == parameterTypes[1])
+            return hasPrefix(name, "compareAndSet") ? "compareAndSet" : null;
+
+        return null;
+    }
+
+    private static boolean hasPrefix(String name, String prefix)
+    {
+        return name.length() > prefix.length() && name.startsWith(prefix) && Character.isUpperCase(name.charAt(prefix.length()));
+    }
+
+    private static Object zeroOf(Class<?> type)
+    {
+        if (type == Byte.class)
+            return (byte) 0;
+        if (type == Short.class)
+            return (short) 0;
+        if (type == Integer.class)
+            return 0;
+        if (type == Long.class)
+            return 0L;
+        if (type == Float.class)
+            return 0f;
+
+        return 0d;
+    }
+
+    private static Class<?> boxOf(Class<?> type)
+    {
+        if (!type.isPrimitive())
+            return type;
+
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    /**
+     * @return the value of the {@link DefaultValue} annotation on {@code method} converted to {@code type}, or null if
+     * there is none
+     */
+    private static Object defaultValueOf(Method method, Class<?> type)
+    {
+        if (type == Byte.TYPE || type == Short.TYPE || type == Integer.TYPE || type == Long.TYPE)
+        {
+            var defaultValueAnnotation = method.getAnnotation(DefaultValue.Numeric.class);
+            if (defaultValueAnnotation != null)
+            {
+                if (type == Byte.TYPE)
+                    return (byte) defaultValueAnnotation.value();
+                if (type == Short.TYPE)
+                    return (short) defaultValueAnnotation.value();
+                if (type == Integer.TYPE)
+                    return (int) defaultValueAnnotation.value();
+                return defaultValueAnnotation.value();
+            }
+        }
+        else if (type == Float.TYPE || type == Double.TYPE)
+        {
+            var defaultValueAnnotation = method.getAnnotation(DefaultValue.NumericFloating.class);
+            if (defaultValueAnnotation != null)
+            {
+                if (type == Float.TYPE)
+                    return (float) defaultValueAnnotation.value();
+                return defaultValueAnnotation.value();
+            }
+        }
+        else if (type == Boolean.TYPE)
+        {
+            var defaultValueAnnotation = method.getAnnotation(DefaultValue.Boolean.class);
+            if (defaultValueAnnotation != null)
+                return defaultValueAnnotation.value();
+        }
+        else
+        {
+            var defaultValueAnnotation = method.getAnnotation(DefaultValue.String.class);
+            if (defaultValueAnnotation != null)
+                return parseDefaultValue(defaultValueAnnotation.value(), type);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return {@code value} of a {@link DefaultValue.String} annotation, parsed to {@code type}, or null if {@code type}
+     * can't be parsed
+     * @throws IllegalArgumentException if {@code value} isn't a valid {@code type}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parseDefaultValue(String value, Class<?> type)
+    {
+        try
+        {
+            if (type == String.class)
+                return value;
+            if (type.isEnum())
+                return Enum.valueOf((Class) type, value);
+            if (type == UUID.class)
+                return UUID.fromString(value);
+            if (type == Instant.class)
+                return Instant.parse(value);
+            if (type == Duration.class)
+                return Duration.parse(value);
+        }
+        catch (DateTimeParseException e)
+        {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    private static Method findSetter(Class<?> interfaceType, String name)
+    {
+        for (var m : interfaceType.getMethods())
+        {
+            if (m.getName().equals(name) && m.getReturnType() == Void.TYPE && m.getParameterCount() == 1)
+                return m;
+        }
+
+        return null;
+    }
+
+    private static Method findGetter(Class<?> interfaceType, String name)
+    {
+        for (var m : interfaceType.getMethods())
+        {
+            if (m.getName().equals(name) && m.getReturnType() != Void.TYPE && m.getParameterCount() == 0)
+                return m;
+        }
+
+        return null;
+    }
+
+    private static String camelCaseToSnakeCase(String camelCase)
+    {
+        var builder = new StringBuilder(camelCase.length());
+
+        for (var c : camelCase.toCharArray())
+        {
+            if (Character.isUpperCase(c))
+            {
+                builder.append('_');
+                builder.append(Character.toLowerCase(c));
+            }
+            else
+            {
+                builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static String noPersistentTypeMessage(String key, Class<?> type)
+    {
+        return "No persistent type exists for " + key + " of type " + type;
+    }
+
+    /**
+     * @return true if what {@code persistentType} reads can be returned as {@code type}. This is not the case when it
+     * was only found for a supertype of {@code type}, which setters may use, but getters can't.
+     */
+    private static boolean isReturnable(PersistentDataType persistentType, Class<?> type)
+    {
+        return boxOf(type).isAssignableFrom(persistentType.getComplexType());
+    }
+
+    private static String notReturnableMessage(String key, Class<?> type, PersistentDataType persistentType)
+    {
+        return "The persistent type of " + key + " reads " + persistentType.getComplexType() + ", which isn't a " + type + " (it was registered for a supertype)";
+    }
+}
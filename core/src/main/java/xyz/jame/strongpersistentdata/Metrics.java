@@ -0,0 +1,239 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataContainer;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Records how each method of each wrapped interface is used: how often it is invoked, how often a getter finds
+ * nothing, how long it takes, and roughly how much it writes. This is disabled by default.
+ * </p>
+ *
+ * <p>
+ * Whether a wrapped object is measured is decided when it is wrapped, so enabling or disabling this doesn't affect
+ * objects that have already been wrapped. Objects wrapped while this is disabled don't check anything else, and
+ * {@link StrongPersistentData#snapshot(PersistentDataContainer, Class)} objects are never measured, as they don't use
+ * the container once read. Values are summed with a {@link LongAdder} per method, so they can be recorded from any
+ * thread without contending.
+ * </p>
+ */
+public final class Metrics
+{
+    private final ConcurrentHashMap<Class<?>, Recorder[]> recorders = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Consumer<? super List<MethodMetrics>>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean enabled;
+
+    Metrics()
+    {
+    }
+
+    /**
+     * Measure objects wrapped from now on.
+     */
+    public void enable()
+    {
+        enabled = true;
+    }
+
+    /**
+     * Stop measuring objects wrapped from now on. What has been recorded is kept.
+     */
+    public void disable()
+    {
+        enabled = false;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return what has been recorded for every method that has been invoked, since the last {@link #reset()} or
+     * {@link #publish()}
+     */
+    @NotNull
+    public List<MethodMetrics> snapshot()
+    {
+        return collect(false);
+    }
+
+    /**
+     * Forget everything that has been recorded.
+     */
+    public void reset()
+    {
+        collect(true);
+    }
+
+    /**
+     * Add a listener, which is given what has been recorded every time {@link #publish()} is called.
+     *
+     * @param listener the listener, such as an exporter to a metrics system
+     */
+    public void addListener(@NotNull Consumer<? super List<MethodMetrics>> listener)
+    {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NotNull Consumer<? super List<MethodMetrics>> listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Give what has been recorded since the last call to every listener, and then start recording again from zero. This
+     * is meant to be called periodically, such as by a repeating task.
+     */
+    public void publish()
+    {
+        var metrics = collect(true);
+        for (var listener : listeners)
+            listener.accept(metrics);
+    }
+
+    private List<MethodMetrics> collect(boolean reset)
+    {
+        var metrics = new ArrayList<MethodMetrics>();
+        for (var interfaceRecorders : recorders.values())
+        {
+            for (var recorder : interfaceRecorders)
+            {
+                var sample = recorder.sample(reset);
+                if (sample.calls() != 0)
+                    metrics.add(sample);
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * @return the recorder of every method of {@code interfacePlan}, by the index of the method, or null if an object
+     * wrapped now shouldn't be measured
+     */
+    Recorder[] recordersOf(InterfacePlan interfacePlan)
+    {
+        if (!enabled)
+            return null;
+
+        return recorders.computeIfAbsent(interfacePlan.interfaceType, interfaceType ->
+        {
+            var methods = InterfacePlan.methodsOf(interfaceType);
+            var interfaceRecorders = new Recorder[methods.length];
+            for (var i = 0; i < methods.length; i++)
+                interfaceRecorders[i] = new Recorder(interfaceType, methods[i]);
+
+            return interfaceRecorders;
+        });
+    }
+
+    /**
+     * @return roughly how many bytes were written by invoking {@code plan} with {@code argument}, which returned
+     * {@code result}
+     */
+    static long bytesWritten(MethodPlan plan, Object argument, Object result, PersistentDataContainer container)
+    {
+        var keyLength = plan.key.getNamespace().length() + 1 + plan.key.getKey().length();
+        Object value;
+        switch (plan.kind)
+        {
+            case SET:
+            case SET_COMPRESSED:
+            case SET_WRAPPED:
+            case SET_WRAPPED_LIST:
+            case SET_WRAPPED_MAP:
+                // A null argument removes the key.
+                if (argument == null)
+                    return 0;
+
+                value = plan.kind == MethodPlan.Kind.SET && !plan.persistentType.getPrimitiveType().isInstance(argument)
+                        ? plan.persistentType.toPrimitive(argument, container.getAdapterContext())
+                        : argument;
+                break;
+            case SET_PACKED:
+                return keyLength + (long) plan.packing.words * Long.BYTES;
+            case ADD:
+                // A coalesced counter writes when it is flushed, and may not return the value.
+                value = result;
+                break;
+            case COMPARE_AND_SET:
+                value = Boolean.TRUE.equals(result) ? ((Object[]) argument)[1] : null;
+                break;
+            default:
+                return 0;
+        }
+
+        return keyLength + sizeOf(value);
+    }
+
+    private static long sizeOf(Object value)
+    {
+        if (value instanceof Byte)
+            return Byte.BYTES;
+        if (value instanceof Short)
+            return Short.BYTES;
+        if (value instanceof Integer || value instanceof Float)
+            return Integer.BYTES;
+        if (value instanceof Long || value instanceof Double)
+            return Long.BYTES;
+        if (value instanceof String)
+            return ((String) value).length();
+        if (value instanceof byte[])
+            return ((byte[]) value).length;
+        if (value instanceof int[])
+            return (long) ((int[]) value).length * Integer.BYTES;
+        if (value instanceof long[])
+            return (long) ((long[]) value).length * Long.BYTES;
+
+        return 0;
+    }
+
+    /**
+     * The counts of one method of a wrapped interface.
+     */
+    static final class Recorder
+    {
+        private final Class<?> interfaceType;
+        private final Method method;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+
+        Recorder(Class<?> interfaceType, Method method)
+        {
+            this.interfaceType = interfaceType;
+            this.method = method;
+        }
+
+        void record(long nanos, long bytesWritten)
+        {
+            this.calls.increment();
+            this.nanos.add(nanos);
+            if (bytesWritten != 0)
+                this.bytesWritten.add(bytesWritten);
+        }
+
+        void miss()
+        {
+            misses.increment();
+        }
+
+        private MethodMetrics sample(boolean reset)
+        {
+            if (reset)
+                return new MethodMetrics(interfaceType, method, calls.sumThenReset(), misses.sumThenReset(), nanos.sumThenReset(), bytesWritten.sumThenReset());
+
+            return new MethodMetrics(interfaceType, method, calls.sum(), misses.sum(), nanos.sum(), bytesWritten.sum());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package xyz.jame.strongpersistentdata;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Store the value of a getter and setter in some bits of a key shared with the other values of its {@link #group()},
+ * instead of a key of its own. The key is named by the group, and is a {@link org.bukkit.persistence.PersistentDataType#LONG},
+ * or a {@link org.bukkit.persistence.PersistentDataType#LONG_ARRAY} if the group needs more than 64 bits. A key of
+ * either type is read, so a group written before it needed more (or fewer) bits still holds its values, and takes the
+ * new type once one of them is set. Both the getter and the setter must be annotated the same way.
+ * </p>
+ *
+ * <p>
+ * The type must be {@code boolean}, {@code byte}, {@code short}, {@code int}, {@code long}, or an enum, which is stored
+ * by its ordinal. Values are unsigned, so negative numbers only fit when {@link #bits()} is the whole width of the type.
+ * A missing key reads as {@code false}, 0, or the first enum constant, and there are no has or remove methods for packed
+ * values.
+ * </p>
+ *
+ * <p>
+ * Every value of a group with more than one value needs an {@link #offset()}, so that adding or removing a value never
+ * moves the others. The key of the group can't be the key of a value that isn't packed.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface Packed
+{
+    /**
+     * @return the name of the key storing every value of the group
+     */
+    String group();
+
+    /**
+     * @return how many bits to store. This is needed for integers, but is 1 for {@code boolean}, and enough for every
+     * ordinal of an enum, by default.
+     */
+    int bits() default 0;
+
+    /**
+     * @return the offset of the lowest bit within the group, which may only be left out (as -1, which is 0) by the only
+     * value of its group. The value may not cross a multiple of 64.
+     */
+    int offset() default -1;
+}
@@ -0,0 +1,187 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Where the value of a {@link Packed} getter or setter is within its group, and how to convert it to and from its bits.
+ * The group is written as a {@code Long} if it has a single word, or otherwise a {@code long[]}.
+ * </p>
+ *
+ * <p>
+ * A group written before a value was added past its first word is still a {@code Long}, and one written before the last
+ * values past it were removed is still a {@code long[]}, so either is read, and is written again as the type of its
+ * current number of words.
+ * </p>
+ */
+final class Packing
+{
+    private final Class<?> type;
+    /**
+     * The enum constants, in order of their ordinals, or null if this isn't an enum.
+     */
+    private final Object[] constants;
+    private final int word;
+    private final int shift;
+    private final int bits;
+    private final long mask;
+    /**
+     * How many words the whole group has.
+     */
+    final int words;
+
+    Packing(Class<?> type, int offset, int bits, int words)
+    {
+        this.type = type;
+        this.constants = type.isEnum() ? type.getEnumConstants() : null;
+        this.word = offset / Long.SIZE;
+        this.shift = offset % Long.SIZE;
+        this.bits = bits;
+        this.mask = bits == Long.SIZE ? -1L : (1L << bits) - 1;
+        this.words = words;
+    }
+
+    /**
+     * @return the widest value {@code type} can be packed into, or 0 if it can't be packed
+     */
+    static int widthOf(Class<?> type)
+    {
+        if (type == Boolean.TYPE)
+            return 1;
+        if (type == Byte.TYPE)
+            return Byte.SIZE;
+        if (type == Short.TYPE)
+            return Short.SIZE;
+        if (type == Integer.TYPE || type.isEnum())
+            return Integer.SIZE;
+        if (type == Long.TYPE)
+            return Long.SIZE;
+
+        return 0;
+    }
+
+    /**
+     * @return how many bits are needed when {@link Packed#bits()} isn't given, or 0 if it must be given
+     */
+    static int defaultBitsOf(Class<?> type)
+    {
+        if (type == Boolean.TYPE)
+            return 1;
+        if (type.isEnum())
+            return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(type.getEnumConstants().length - 1));
+
+        return 0;
+    }
+
+    /**
+     * @return the value of the group's key, which is either a {@code Long} or a {@code long[]}, or null if it is missing
+     */
+    static Object groupOf(PersistentDataContainer container, NamespacedKey key)
+    {
+        // A container throws when a key is read as a type it doesn't hold, so each type is checked first.
+        if (container.has(key, PersistentDataType.LONG))
+            return container.get(key, PersistentDataType.LONG);
+
+        return container.get(key, PersistentDataType.LONG_ARRAY);
+    }
+
+    /**
+     * @param group the value of the group's key, or null if it is missing
+     * @return our value within {@code group}
+     */
+    Object read(Object group)
+    {
+        long value;
+        if (group instanceof Long)
+            value = word == 0 ? (Long) group : 0;
+        else if (group instanceof long[] && word < ((long[]) group).length)
+            value = ((long[]) group)[word];
+        else
+            value = 0;
+
+        return decode((value >>> shift) & mask);
+    }
+
+    /**
+     * @param group the value of the group's key, or null if it is missing. An array may be modified.
+     * @return the value of the group's key, with our bits replaced by {@code value}
+     */
+    Object write(Object group, Object value)
+    {
+        var encoded = encode(value);
+
+        if (words == 1)
+        {
+            long current;
+            if (group instanceof Long)
+                current = (Long) group;
+            else if (group instanceof long[] && ((long[]) group).length > 0)
+                current = ((long[]) group)[0];
+            else
+                current = 0;
+
+            return (current & ~(mask << shift)) | (encoded << shift);
+        }
+
+        long[] array;
+        if (group instanceof long[])
+            array = ((long[]) group).length < words ? Arrays.copyOf((long[]) group, words) : (long[]) group;
+        else
+        {
+            array = new long[words];
+            if (group instanceof Long)
+                array[0] = (Long) group;
+        }
+
+        array[word] = (array[word] & ~(mask << shift)) | (encoded << shift);
+        return array;
+    }
+
+    /**
+     * @return what a missing group reads as
+     */
+    Object zero()
+    {
+        return decode(0);
+    }
+
+    private Object decode(long value)
+    {
+        if (type == Boolean.TYPE)
+            return value != 0;
+        if (type == Byte.TYPE)
+            return (byte) value;
+        if (type == Short.TYPE)
+            return (short) value;
+        if (type == Integer.TYPE)
+            return (int) value;
+        if (type == Long.TYPE)
+            return value;
+
+        if (value >= constants.length)
+            throw new IllegalStateException("Packed " + type.getName() + " holds ordinal " + value + ", but there are only " + constants.length + " constants");
+
+        return constants[(int) value];
+    }
+
+    private long encode(Object value)
+    {
+        if (value == null)
+            throw new IllegalStateException("Packed values cannot be null");
+
+        if (value instanceof Boolean)
+            return (Boolean) value ? 1 : 0;
+
+        var raw = value instanceof Enum ? ((Enum<?>) value).ordinal() : ((Number) value).longValue();
+
+        // Negative numbers only fit in the whole width of their type, where the cast when reading restores the sign.
+        if (bits < widthOf(type) && (raw & ~mask) != 0)
+            throw new IllegalStateException(value + " doesn't fit in " + bits + " bits");
+
+        return raw & mask;
+    }
+}
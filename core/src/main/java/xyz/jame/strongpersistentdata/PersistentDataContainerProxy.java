@@ -0,0 +1,699 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+class PersistentDataContainerProxy implements InvocationHandler
+{
+    final PersistentDataContainer container;
+    final StrongPersistentData strongPersistentData;
+    final InterfacePlan interfacePlan;
+    /**
+     * If this was returned by a {@link Wrap} getter (or is an element of one), where it was read from. Our container is
+     * only a copy of what is there, so every write is committed back to it. This is null once the parent has replaced or
+     * removed the key, at which point we are detached.
+     */
+    Link link;
+    /**
+     * The values returned by our {@link Wrap} getters, so they can be returned again without wrapping again. Lazily
+     * created.
+     */
+    private HashMap<MethodPlan, Child> children;
+    /**
+     * The values of {@link Compressed#cache()} keys, which have been decompressed already. Lazily created.
+     */
+    private HashMap<NamespacedKey, Object> decompressed;
+    /**
+     * True once our container has been checked to be the {@link SchemaVersion} of our interface (or the interface isn't
+     * versioned).
+     */
+    private boolean migrated;
+    /**
+     * True if our container had nothing to migrate when it was checked, see {@link InterfacePlan#hasUnversionedKeys}, so
+     * the version is written along with the first value.
+     */
+    private boolean unversioned;
+    /**
+     * Where to record how each method is used, by the index of the method, or null if we aren't measured.
+     */
+    private final Metrics.Recorder[] recorders;
+    /**
+     * The entry of our container in the {@link Index} of our interface, or null if it hasn't been added to it. This is
+     * looked up again whenever {@link StrongPersistentData#indexGeneration} changes.
+     */
+    private Index.Entry indexEntry;
+    private int indexGeneration;
+    /**
+     * What each {@link Memoized} method returned, by the index of the method, and the slots of the keys it depends on,
+     * which is null if it hasn't been computed since one of them was written. Lazily created.
+     */
+    private Object[] memoized;
+    private BitSet[] memoizedDependencies;
+    /**
+     * The slots of the keys read while a {@link Memoized} method is computed, or null if none is.
+     */
+    private BitSet reading;
+    /**
+     * The generated implementation wrapping us, or null if we are wrapped by a {@link java.lang.reflect.Proxy}.
+     */
+    private GeneratedAccessor accessor;
+
+    public PersistentDataContainerProxy(PersistentDataContainer container, StrongPersistentData strongPersistentData, InterfacePlan interfacePlan)
+    {
+        this(container, strongPersistentData, interfacePlan, null);
+    }
+
+    PersistentDataContainerProxy(PersistentDataContainer container, StrongPersistentData strongPersistentData, InterfacePlan interfacePlan, Link link)
+    {
+        this(container, strongPersistentData, interfacePlan, link, strongPersistentData.metrics.recordersOf(interfacePlan));
+    }
+
+    PersistentDataContainerProxy(PersistentDataContainer container, StrongPersistentData strongPersistentData, InterfacePlan interfacePlan, Link link, Metrics.Recorder[] recorders)
+    {
+        this.container = container;
+        this.strongPersistentData = strongPersistentData;
+        this.interfacePlan = interfacePlan;
+        this.link = link;
+        this.migrated = interfacePlan.versionKey == null;
+        this.recorders = recorders;
+    }
+
+    Class<?> interfaceType()
+    {
+        return interfacePlan.interfaceType;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+        Object argument;
+        if (args == null || args.length == 0)
+            argument = null;
+        else if (args.length == 1)
+            argument = args[0];
+        else
+            argument = args;
+
+        var plan = interfacePlan.get(method);
+        if (recorders != null && plan.index >= 0)
+            return invokeMeasured(proxy, plan, argument);
+
+        return invoke(proxy, plan, argument);
+    }
+
+    /**
+     * Invoke the method at {@code index} of {@link InterfacePlan#methodsOf(Class)}, for a {@link GeneratedAccessor}.
+     */
+    Object invoke(Object self, int index, Object argument)
+    {
+        if (recorders != null)
+            return invokeMeasured(self, interfacePlan.get(index), argument);
+
+        return invoke(self, interfacePlan.get(index), argument);
+    }
+
+    private Object invokeMeasured(Object self, MethodPlan plan, Object argument)
+    {
+        var start = System.nanoTime();
+        Object result = null;
+        var returned = false;
+        try
+        {
+            result = invoke(self, plan, argument);
+            returned = true;
+            return result;
+        }
+        finally
+        {
+            var nanos = System.nanoTime() - start;
+            recorders[plan.index].record(nanos, returned ? Metrics.bytesWritten(plan, argument, result, container) : 0);
+        }
+    }
+
+    Object invoke(Object self, MethodPlan plan, Object argument)
+    {
+        if (!migrated && plan.key != null)
+            migrate();
+
+        if (reading != null && plan.key != null)
+            reading.set(interfacePlan.slotOf(plan.key));
+
+        switch (plan.kind)
+        {
+            case EQUALS:
+                return self == argument;
+            case HASH_CODE:
+                return System.identityHashCode(self);
+            case TO_STRING:
+                return "proxy object@" + Integer.toHexString(System.identityHashCode(self)); // FIXME: it should be ClassName@HexHashCode, right?
+            case REMOVE:
+                container.remove(plan.key);
+                written(plan.key, null);
+                return null;
+            case HAS:
+                if (plan.compression != null)
+                    return plan.compression.has(container, plan.key);
+
+                return container.has(plan.key, plan.persistentType);
+            case SET:
+                if (plan.removeOnNull && argument == null)
+                    container.remove(plan.key);
+                else
+                    container.set(plan.key, plan.persistentType, plan.persistentType.getComplexType().cast(argument));
+
+                written(plan.key, null);
+                return null;
+            case SET_WRAPPED:
+                if (plan.removeOnNull && argument == null)
+                    container.remove(plan.key);
+                else
+                    container.set(plan.key, plan.persistentType, copyOfWrapped(argument));
+
+                written(plan.key, null);
+                return null;
+            case SET_WRAPPED_LIST:
+                if (plan.removeOnNull && argument == null)
+                    container.remove(plan.key);
+                else
+                {
+                    var list = (List<?>) argument;
+                    var containers = new PersistentDataContainer[list.size()];
+                    for (var i = 0; i < containers.length; i++)
+                        containers[i] = copyOfWrapped(list.get(i));
+
+                    container.set(plan.key, plan.persistentType, containers);
+                }
+
+                written(plan.key, null);
+                return null;
+            case SET_WRAPPED_MAP:
+                if (plan.removeOnNull && argument == null)
+                    container.remove(plan.key);
+                else
+                {
+                    var map = container.getAdapterContext().newPersistentDataContainer();
+                    for (var entry : ((Map<?, ?>) argument).entrySet())
+                        map.set(new NamespacedKey(strongPersistentData.plugin, (String) entry.getKey()), PersistentDataType.TAG_CONTAINER, copyOfWrapped(entry.getValue()));
+
+                    container.set(plan.key, plan.persistentType, map);
+                }
+
+                written(plan.key, null);
+                return null;
+            case GET:
+            {
+                var value = container.get(plan.key, plan.persistentType);
+                if (value != null)
+                    return value;
+
+                missed(plan);
+                if (plan.defaultValue != null)
+                    return plan.defaultValue;
+
+                if (plan.method.getReturnType().isPrimitive())
+                    throw new IllegalStateException("Getter with primitive type cannot return null");
+
+                return null;
+            }
+            case GET_WRAPPED:
+            case GET_OPTIONAL_WRAPPED:
+            case GET_WRAPPED_LIST:
+            case GET_WRAPPED_MAP:
+                return getChild(plan);
+            case GET_OPTIONAL_INT:
+            {
+                var maybeValue = (Integer) container.get(plan.key, plan.persistentType);
+                if (maybeValue == null)
+                {
+                    missed(plan);
+                    return OptionalInt.empty();
+                }
+
+                return OptionalInt.of(maybeValue);
+            }
+            case GET_OPTIONAL_LONG:
+            {
+                var maybeValue = (Long) container.get(plan.key, plan.persistentType);
+                if (maybeValue == null)
+                {
+                    missed(plan);
+                    return OptionalLong.empty();
+                }
+
+                return OptionalLong.of(maybeValue);
+            }
+            case GET_OPTIONAL_DOUBLE:
+            {
+                var maybeValue = (Double) container.get(plan.key, plan.persistentType);
+                if (maybeValue == null)
+                {
+                    missed(plan);
+                    return OptionalDouble.empty();
+                }
+
+                return OptionalDouble.of(maybeValue);
+            }
+            case GET_OPTIONAL:
+            {
+                var maybeValue = container.get(plan.key, plan.persistentType);
+                if (maybeValue == null)
+                {
+                    missed(plan);
+                    return Optional.empty();
+                }
+
+                return Optional.of(maybeValue);
+            }
+            case ADD:
+            {
+                var delta = plan.step != 0 ? (Number) plan.step : (Number) argument;
+                if (plan.coalesce && coalescesCounters())
+                    return strongPersistentData.counters.add(this, plan, delta);
+
+                var value = Counters.add(plan, container.get(plan.key, plan.persistentType), delta);
+                container.set(plan.key, plan.persistentType, value);
+                written(plan.key, null);
+                return value;
+            }
+            case COMPARE_AND_SET:
+            {
+                var arguments = (Object[]) argument;
+                var value = container.get(plan.key, plan.persistentType);
+                if (!Objects.deepEquals(value != null ? value : plan.defaultValue, arguments[0]))
+                    return false;
+
+                if (arguments[1] == null)
+                    container.remove(plan.key);
+                else
+                    container.set(plan.key, plan.persistentType, arguments[1]);
+
+                written(plan.key, null);
+                return true;
+            }
+            case GET_PACKED:
+                return plan.packing.read(Packing.groupOf(container, plan.key));
+            case SET_PACKED:
+                container.set(plan.key, plan.persistentType, plan.packing.write(Packing.groupOf(container, plan.key), argument));
+                written(plan.key, null);
+                return null;
+            case GET_COMPRESSED:
+            {
+                var value = decompressed != null ? decompressed.get(plan.key) : null;
+                if (value == null)
+                {
+                    value = plan.compression.read(container, plan.key);
+                    if (value == null)
+                    {
+                        missed(plan);
+                        return plan.defaultValue;
+                    }
+
+                    if (!plan.compression.cache)
+                        return value;
+
+                    if (decompressed == null)
+                        decompressed = new HashMap<>();
+
+                    decompressed.put(plan.key, value);
+                }
+
+                return Compression.copyOf(value);
+            }
+            case SET_COMPRESSED:
+                if (plan.removeOnNull && argument == null)
+                    container.remove(plan.key);
+                else
+                    plan.compression.write(container, plan.key, argument);
+
+                written(plan.key, null);
+                return null;
+            case DEFAULT:
+                if (plan.dependsOn != null)
+                    return invokeMemoized(self, plan);
+
+                return invokeBody(self, plan, argument);
+            default:
+                throw new IllegalStateException(plan.error);
+        }
+    }
+
+    /**
+     * Run the body of a {@link MethodPlan.Kind#DEFAULT} method, which calls back into {@code self}.
+     */
+    Object invokeBody(Object self, MethodPlan plan, Object argument)
+    {
+        try
+        {
+            return (Object) plan.body.invokeExact(self, argument);
+        }
+        catch (Throwable e)
+        {
+            // The body can only throw checked exceptions that the method declares, so they are thrown as they are.
+            throw PersistentDataContainerProxy.<RuntimeException>rethrow(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> E rethrow(Throwable e) throws E
+    {
+        throw (E) e;
+    }
+
+    /**
+     * @return what a {@link Memoized} method returned the last time, or otherwise what it returns now, remembering which
+     * keys it read
+     */
+    private Object invokeMemoized(Object self, MethodPlan plan)
+    {
+        if (memoized == null)
+        {
+            memoized = new Object[interfacePlan.size()];
+            memoizedDependencies = new BitSet[memoized.length];
+        }
+
+        var dependencies = memoizedDependencies[plan.index];
+        if (dependencies != null)
+        {
+            // A memoized method computing this one depends on the same keys.
+            if (reading != null)
+                reading.or(dependencies);
+
+            return memoized[plan.index];
+        }
+
+        var outer = reading;
+        reading = new BitSet();
+        updateDirect();
+        Object result;
+        try
+        {
+            result = invokeBody(self, plan, null);
+            dependencies = reading;
+        }
+        finally
+        {
+            reading = outer;
+            updateDirect();
+        }
+
+        dependencies.or(interfacePlan.declaredDependenciesOf(plan));
+        if (outer != null)
+            outer.or(dependencies);
+
+        memoized[plan.index] = result;
+        memoizedDependencies[plan.index] = dependencies;
+        return result;
+    }
+
+    /**
+     * Forget what every {@link Memoized} method that depends on {@code key} returned.
+     */
+    private void forgetMemoized(NamespacedKey key)
+    {
+        // Any key we don't know of, such as the version, may have changed everything.
+        var slot = interfacePlan.slotOf(key);
+        for (var i = 0; i < memoizedDependencies.length; i++)
+        {
+            if (memoizedDependencies[i] != null && (slot < 0 || memoizedDependencies[i].get(slot)))
+            {
+                memoizedDependencies[i] = null;
+                memoized[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Wrap ourselves with {@code accessor}, which calls us.
+     */
+    void bind(GeneratedAccessor accessor)
+    {
+        accessor.handler = this;
+        accessor.keys = interfacePlan.plainKeys;
+        accessor.types = interfacePlan.plainTypes;
+        this.accessor = accessor;
+        updateDirect();
+    }
+
+    /**
+     * Let the plain getters, setters and has methods of our accessor use our container themselves, unless we have to
+     * see them being invoked.
+     */
+    private void updateDirect()
+    {
+        if (accessor != null)
+            accessor.direct = migrated && recorders == null && reading == null && interfacePlan.valid && allowsDirect() ? container : null;
+    }
+
+    /**
+     * @return true if plain getters, setters and has methods may read and write our container without invoking us, and
+     * tell us what they wrote with {@link #written(NamespacedKey, Child)}
+     */
+    boolean allowsDirect()
+    {
+        return true;
+    }
+
+    /**
+     * @return true if {@link Counter#coalesce()} methods may add to the container later, which is only when we write
+     * straight to the container of a holder
+     */
+    boolean coalescesCounters()
+    {
+        return link == null && !(container instanceof BufferedPersistentDataContainer) && indexEntry() == null;
+    }
+
+    /**
+     * @return the entry of our container in the {@link Index} of our interface, or null if it hasn't been added to it,
+     * which is always the case for nested containers
+     */
+    private Index.Entry indexEntry()
+    {
+        var generation = strongPersistentData.indexGeneration.get();
+        if (generation != indexGeneration)
+        {
+            indexGeneration = generation;
+            indexEntry = link == null ? strongPersistentData.indexEntryOf(interfacePlan.interfaceType, container) : null;
+        }
+
+        return indexEntry;
+    }
+
+    /**
+     * Record that a getter found nothing in our container, if we are measured.
+     */
+    private void missed(MethodPlan plan)
+    {
+        if (recorders != null)
+            recorders[plan.index].miss();
+    }
+
+    /**
+     * Bring our container up to the {@link SchemaVersion} of our interface, if this hasn't been done yet.
+     */
+    void migrate()
+    {
+        if (migrated)
+            return;
+
+        var version = container.get(interfacePlan.versionKey, PersistentDataType.INTEGER);
+        if (version == null && !interfacePlan.hasUnversionedKeys(container))
+            unversioned = true;
+        else if (version == null || version != interfacePlan.schemaVersion)
+        {
+            interfacePlan.migrate(container, version != null ? version : 0);
+            written(interfacePlan.versionKey, null);
+        }
+
+        migrated = true;
+        updateDirect();
+    }
+
+    /**
+     * @return the value of a {@link Wrap} getter, which is the same object every time, until the key is written to
+     */
+    private Object getChild(MethodPlan plan)
+    {
+        var child = children != null ? children.get(plan) : null;
+        if (child != null)
+            return child.returned();
+
+        if (plan.kind == MethodPlan.Kind.GET_WRAPPED_LIST)
+            child = new WrappedList(this, plan, (PersistentDataContainer[]) container.get(plan.key, plan.persistentType));
+        else if (plan.kind == MethodPlan.Kind.GET_WRAPPED_MAP)
+            child = new WrappedMap(this, plan, (PersistentDataContainer) container.get(plan.key, plan.persistentType));
+        else
+        {
+            var value = (PersistentDataContainer) container.get(plan.key, plan.persistentType);
+            if (value == null)
+            {
+                missed(plan);
+                return plan.kind == MethodPlan.Kind.GET_OPTIONAL_WRAPPED ? Optional.empty() : null;
+            }
+
+            child = new WrappedChild(plan, value);
+        }
+
+        if (children == null)
+            children = new HashMap<>();
+
+        children.put(plan, child);
+        return child.returned();
+    }
+
+    /**
+     * Create the handler of a nested container, which was read from our container, and writes back through {@code link}.
+     */
+    PersistentDataContainerProxy child(PersistentDataContainer container, InterfacePlan interfacePlan, Link link)
+    {
+        return new PersistentDataContainerProxy(container, strongPersistentData, interfacePlan, link);
+    }
+
+    /**
+     * Called after {@code key} of our container has been written to, by either us or {@code writer}, which is one of our
+     * children.
+     */
+    void written(NamespacedKey key, Child writer)
+    {
+        if (decompressed != null)
+            decompressed.remove(key);
+
+        if (memoizedDependencies != null)
+            forgetMemoized(key);
+
+        if (unversioned)
+        {
+            unversioned = false;
+            container.set(interfacePlan.versionKey, PersistentDataType.INTEGER, interfacePlan.schemaVersion);
+        }
+
+        // Every other child of this key now has an outdated copy.
+        if (children != null && !children.isEmpty())
+        {
+            var iterator = children.entrySet().iterator();
+            while (iterator.hasNext())
+            {
+                var entry = iterator.next();
+                if (entry.getKey().key.equals(key) && entry.getValue() != writer)
+                {
+                    entry.getValue().detach();
+                    iterator.remove();
+                }
+            }
+        }
+
+        if (link != null)
+            link.commit(this);
+        else
+        {
+            var entry = indexEntry();
+            if (entry != null)
+                entry.written(key, container);
+        }
+    }
+
+    /**
+     * @return a copy of the container of a wrapped object, made by our adapter context, as the container may be of
+     * another one (such as a detached or buffered one) that ours can't hold
+     */
+    PersistentDataContainer copyOfWrapped(Object wrapped)
+    {
+        return PersistentDataContainers.copy(unwrap(wrapped).container, container.getAdapterContext());
+    }
+
+    static PersistentDataContainerProxy unwrap(Object wrapped)
+    {
+        if (wrapped instanceof GeneratedAccessor)
+            return ((GeneratedAccessor) wrapped).handler;
+
+        if (wrapped == null || !Proxy.isProxyClass(wrapped.getClass()))
+            throw new IllegalStateException("Non-wrapped object passed to @Wrap setter");
+
+        var proxyObject = Proxy.getInvocationHandler(wrapped);
+        if (!(proxyObject instanceof PersistentDataContainerProxy))
+            throw new IllegalStateException("Incorrect Proxy object passed to @Wrap setter");
+
+        return (PersistentDataContainerProxy) proxyObject;
+    }
+
+    /**
+     * Where the container of a handler was read from, which writes to the container are committed back to.
+     */
+    interface Link
+    {
+        /**
+         * Commit {@code handler}, whose container has been written to.
+         */
+        void commit(PersistentDataContainerProxy handler);
+    }
+
+    /**
+     * A value returned by one of our {@link Wrap} getters.
+     */
+    interface Child
+    {
+        /**
+         * @return what the getter returns
+         */
+        Object returned();
+
+        /**
+         * Stop committing writes, as the key it was read from has been replaced.
+         */
+        void detach();
+    }
+
+    /**
+     * The value of a {@link MethodPlan.Kind#GET_WRAPPED} or {@link MethodPlan.Kind#GET_OPTIONAL_WRAPPED} getter.
+     */
+    private final class WrappedChild implements Child, Link
+    {
+        private final MethodPlan plan;
+        private final PersistentDataContainerProxy handler;
+        /**
+         * Either the wrapped object, or an {@link Optional} of it.
+         */
+        private final Object returned;
+
+        WrappedChild(MethodPlan plan, PersistentDataContainer value)
+        {
+            this.plan = plan;
+            this.handler = child(value, strongPersistentData.interfacePlan(plan.wrapType), this);
+
+            var wrapped = strongPersistentData.wrap(handler);
+            this.returned = plan.kind == MethodPlan.Kind.GET_OPTIONAL_WRAPPED ? Optional.of(wrapped) : wrapped;
+        }
+
+        @Override
+        public Object returned()
+        {
+            return returned;
+        }
+
+        @Override
+        public void detach()
+        {
+            handler.link = null;
+        }
+
+        @Override
+        public void commit(PersistentDataContainerProxy handler)
+        {
+            container.set(plan.key, PersistentDataType.TAG_CONTAINER, handler.container);
+            written(plan.key, this);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.Arrays;
+
+/**
+ * Copying and comparing entire {@link PersistentDataContainer}s, without knowing what types their keys hold.
+ */
+final class PersistentDataContainers
+{
+    /**
+     * Every type a key can hold. These all have the same primitive and complex type.
+     */
+    private static final PersistentDataType[] PRIMITIVE_TYPES = {
+            PersistentDataType.BYTE,
+            PersistentDataType.SHORT,
+            PersistentDataType.INTEGER,
+            PersistentDataType.LONG,
+            PersistentDataType.FLOAT,
+            PersistentDataType.DOUBLE,
+            PersistentDataType.STRING,
+            PersistentDataType.BYTE_ARRAY,
+            PersistentDataType.INTEGER_ARRAY,
+            PersistentDataType.LONG_ARRAY,
+            PersistentDataType.TAG_CONTAINER,
+            PersistentDataType.TAG_CONTAINER_ARRAY
+    };
+
+    private PersistentDataContainers()
+    {
+    }
+
+    /**
+     * @return the built-in type held by {@code key}, or null if it does not exist
+     */
+    static PersistentDataType typeOf(PersistentDataContainer container, NamespacedKey key)
+    {
+        for (var type : PRIMITIVE_TYPES)
+        {
+            if (container.has(key, type))
+                return type;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the value of {@code key} as its primitive type, or null if it does not exist
+     */
+    static Object get(PersistentDataContainer container, NamespacedKey key)
+    {
+        var type = typeOf(container, key);
+        return type != null ? container.get(key, type) : null;
+    }
+
+    /**
+     * @return the value of {@code key}, which {@code container} has, as its primitive type
+     * @throws IllegalStateException if it holds a tag no built-in type can read, such as an empty list, so it can't be
+     * copied
+     */
+    static Object getExisting(PersistentDataContainer container, NamespacedKey key)
+    {
+        var value = get(container, key);
+        if (value == null)
+            throw new IllegalStateException("The tag of " + key + " can't be copied, as no persistent data type can read it (such as an empty list)");
+
+        return value;
+    }
+
+    /**
+     * Set a value that was retrieved with {@link #get(PersistentDataContainer, NamespacedKey)}, which may have come from
+     * a container with a different adapter context.
+     */
+    static void set(PersistentDataContainer container, NamespacedKey key, Object value)
+    {
+        var copy = copy(value, container.getAdapterContext());
+        for (var type : PRIMITIVE_TYPES)
+        {
+            if (type.getPrimitiveType().isInstance(copy))
+            {
+                container.set(key, type, copy);
+                return;
+            }
+        }
+
+        throw new IllegalArgumentException("Not a primitive value: " + value);
+    }
+
+    /**
+     * @return the built-in type whose primitive type {@code primitive} is an instance of
+     * @throws IllegalArgumentException if there is none
+     */
+    static PersistentDataType typeOfPrimitive(Object primitive)
+    {
+        for (var type : PRIMITIVE_TYPES)
+        {
+            if (type.getPrimitiveType().isInstance(primitive))
+                return type;
+        }
+
+        throw new IllegalArgumentException("Not a primitive value: " + primitive);
+    }
+
+    /**
+     * @return a copy of a primitive value that shares nothing mutable with it, with containers created by
+     * {@code context}
+     */
+    static Object copyOf(Object primitive, PersistentDataAdapterContext context)
+    {
+        if (primitive instanceof byte[])
+            return ((byte[]) primitive).clone();
+        if (primitive instanceof int[])
+            return ((int[]) primitive).clone();
+        if (primitive instanceof long[])
+            return ((long[]) primitive).clone();
+
+        return copy(primitive, context);
+    }
+
+    /**
+     * Copy every key of {@code source} into a new container created by {@code context}.
+     *
+     * @throws IllegalStateException if a key can't be copied, see {@link #getExisting(PersistentDataContainer, NamespacedKey)}
+     */
+    static PersistentDataContainer copy(PersistentDataContainer source, PersistentDataAdapterContext context)
+    {
+        var copy = context.newPersistentDataContainer();
+        for (var key : source.getKeys())
+            set(copy, key, getExisting(source, key));
+
+        return copy;
+    }
+
+    private static Object copy(Object value, PersistentDataAdapterContext context)
+    {
+        if (value instanceof PersistentDataContainer)
+            return copy((PersistentDataContainer) value, context);
+
+        if (value instanceof PersistentDataContainer[])
+        {
+            var containers = ((PersistentDataContainer[]) value).clone();
+            for (var i = 0; i < containers.length; i++)
+                containers[i] = copy(containers[i], context);
+
+            return containers;
+        }
+
+        return value;
+    }
+
+    /**
+     * @return true if two values retrieved with {@link #get(PersistentDataContainer, NamespacedKey)} are the same
+     */
+    static boolean equals(Object a, Object b)
+    {
+        if (a == b)
+            return true;
+        if (a == null || b == null)
+            return false;
+        if (a instanceof byte[] && b instanceof byte[])
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        if (a instanceof int[] && b instanceof int[])
+            return Arrays.equals((int[]) a, (int[]) b);
+        if (a instanceof long[] && b instanceof long[])
+            return Arrays.equals((long[]) a, (long[]) b);
+
+        if (a instanceof PersistentDataContainer && b instanceof PersistentDataContainer)
+        {
+            var first = (PersistentDataContainer) a;
+            var second = (PersistentDataContainer) b;
+            var keys = first.getKeys();
+            if (!keys.equals(second.getKeys()))
+                return false;
+
+            for (var key : keys)
+            {
+                if (!equals(get(first, key), get(second, key)))
+                    return false;
+            }
+
+            return true;
+        }
+
+        if (a instanceof PersistentDataContainer[] && b instanceof PersistentDataContainer[])
+        {
+            var first = (PersistentDataContainer[]) a;
+            var second = (PersistentDataContainer[]) b;
+            if (first.length != second.length)
+                return false;
+
+            for (var i = 0; i < first.length; i++)
+            {
+                if (!equals(first[i], second[i]))
+                    return false;
+            }
+
+            return true;
+        }
+
+        return a.equals(b);
+    }
+}
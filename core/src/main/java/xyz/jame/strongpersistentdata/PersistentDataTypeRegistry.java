@@ -0,0 +1,113 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The {@link PersistentDataType} to use for each class.
+ *
+ * <p>
+ * Reads do not lock. Registering replaces the map of registered types, along with the memoized lookups, so it can
+ * safely happen on any thread, while other threads are looking up types.
+ * </p>
+ *
+ * <p>
+ * A class that has no type registered for it will use the type registered for its closest superclass, or otherwise
+ * the first interface it implements that has one. This is resolved once per class, and then memoized in a
+ * {@link ClassValue}, which does not keep the class (or its class loader) alive. Such a type can only be used to write
+ * values, as what it reads is not an instance of the class, so getters of the class are invalid.
+ * </p>
+ *
+ * <p>
+ * A class annotated with {@link Encoded} uses its {@link EncodedPersistentDataType}, and an enum its
+ * {@link EnumPersistentDataType}, unless another type is registered for exactly that class.
+ * </p>
+ */
+final class PersistentDataTypeRegistry
+{
+    private final Object lock = new Object();
+    private volatile Map<Class<?>, PersistentDataType> registered = Map.of();
+    private volatile ClassValue<Optional<PersistentDataType>> resolved = createResolved();
+
+    void register(Class<?> type, PersistentDataType persistentDataType)
+    {
+        synchronized (lock)
+        {
+            var copy = new HashMap<>(registered);
+            copy.put(type, persistentDataType);
+            registered = copy;
+            resolved = createResolved();
+        }
+    }
+
+    /**
+     * @return the type to use for {@code type}, or null if there is none
+     */
+    PersistentDataType get(Class<?> type)
+    {
+        return resolved.get(type).orElse(null);
+    }
+
+    private PersistentDataType resolve(Class<?> type)
+    {
+        var registered = this.registered;
+
+        var exact = registered.get(type);
+        if (exact != null || type.isPrimitive() || type.isArray())
+            return exact;
+
+        if (type.isAnnotationPresent(Encoded.class))
+            return EncodedPersistentDataType.of(type);
+
+        if (type.isEnum())
+            return EnumPersistentDataType.ofEnum(type);
+
+        for (var superclass = type.getSuperclass(); superclass != null; superclass = superclass.getSuperclass())
+        {
+            var persistentDataType = registered.get(superclass);
+            if (persistentDataType != null)
+                return persistentDataType;
+        }
+
+        var pending = new ArrayDeque<Class<?>>();
+        var visited = new HashSet<Class<?>>();
+        for (var current = type; current != null; current = current.getSuperclass())
+        {
+            for (var superinterface : current.getInterfaces())
+                pending.add(superinterface);
+        }
+
+        while (!pending.isEmpty())
+        {
+            var superinterface = pending.poll();
+            if (!visited.add(superinterface))
+                continue;
+
+            var persistentDataType = registered.get(superinterface);
+            if (persistentDataType != null)
+                return persistentDataType;
+
+            for (var next : superinterface.getInterfaces())
+                pending.add(next);
+        }
+
+        return null;
+    }
+
+    private ClassValue<Optional<PersistentDataType>> createResolved()
+    {
+        return new ClassValue<>()
+        {
+            @Override
+            protected Optional<PersistentDataType> computeValue(Class<?> type)
+            {
+                return Optional.ofNullable(resolve(type));
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package xyz.jame.strongpersistentdata;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * The version of the keys of a wrapped interface, which is stored in each container at {@link #key()}. When a container
+ * of an older version is first used through the interface, the migrations registered with
+ * {@link StrongPersistentData#registerMigration(Class, int, java.util.function.Consumer)} are applied to it in order, one
+ * version at a time. Each container is checked once per wrapped object, so those already migrated only cost a single read.
+ * </p>
+ *
+ * <p>
+ * Containers with keys of the interface but no version are version 0. Those without any are already the current
+ * version, which is written along with their first value, so keys of other plugins don't need a migration. Once a
+ * migration from version 0 is registered, any key of our plugin counts, so keys it renames are still migrated.
+ * </p>
+ */
+@Target(ElementType.TYPE)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface SchemaVersion
+{
+    /**
+     * @return the current version
+     */
+    int value();
+
+    /**
+     * @return the name of the key storing the version, which must not be used by the interface for anything else
+     */
+    String key() default "schema_version";
+}
@@ -0,0 +1,52 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataContainer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A read-only copy of every value of a wrapped interface, created by
+ * {@link StrongPersistentData#snapshot(PersistentDataContainer, Class)}.
+ *
+ * <p>
+ * The getters of {@link #get()} return what was read when the snapshot was created (or last refreshed), without
+ * reading the container again. They can be called from any thread. Its setters and remove methods throw
+ * {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * <p>
+ * Immutable values, such as boxed numbers, strings and optionals, are returned as they were read, so reading them
+ * allocates nothing. Mutable values (arrays, {@link IntList}s, {@link LongList}s and containers) are copied on every
+ * call, so changing one doesn't change the snapshot, and reading one allocates a new copy each time.
+ * </p>
+ *
+ * @param <T> the wrapped interface
+ */
+public final class Snapshot<T>
+{
+    private final SnapshotProxy handler;
+    private final T view;
+
+    Snapshot(SnapshotProxy handler, T view)
+    {
+        this.handler = handler;
+        this.view = view;
+    }
+
+    /**
+     * @return the wrapped interface, which is the same object after every {@link #refresh()}
+     */
+    @NotNull
+    public T get()
+    {
+        return view;
+    }
+
+    /**
+     * Read every value from the container again. Like any other use of the container, this should be called on the
+     * main thread.
+     */
+    public void refresh()
+    {
+        handler.refresh();
+    }
+}
@@ -0,0 +1,212 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Handles a wrapped object that was created by {@link StrongPersistentData#snapshot(PersistentDataContainer, Class)}.
+ *
+ * <p>
+ * Every getter and has method is invoked once by {@link #refresh()}, and the results are kept in an array indexed by
+ * the method. Invoking them afterwards just returns what was kept, which doesn't touch the container. The array is
+ * replaced as a whole, so the results can be read from any thread.
+ * </p>
+ *
+ * <p>
+ * Mutable values (arrays, {@link IntList}s, {@link LongList}s and containers) are copied when they are kept, and again
+ * each time they are returned, so changing one can't change the snapshot, or what another thread reads from it.
+ * </p>
+ */
+final class SnapshotProxy extends PersistentDataContainerProxy
+{
+    private volatile Object[] values;
+
+    SnapshotProxy(PersistentDataContainer container, StrongPersistentData strongPersistentData, InterfacePlan interfacePlan)
+    {
+        // Getters return what was read by refresh, so there is nothing to measure.
+        super(container, strongPersistentData, interfacePlan, null, null);
+    }
+
+    /**
+     * Read every value from the container again. This must be called where the container may be read, which is usually
+     * the main thread. The first time, this also migrates the container, if the interface has a {@link SchemaVersion}.
+     */
+    void refresh()
+    {
+        migrate();
+
+        var plans = interfacePlan.plans();
+        var values = new Object[plans.length];
+
+        for (var plan : plans)
+        {
+            switch (plan.kind)
+            {
+                case HAS:
+                case GET:
+                case GET_OPTIONAL_INT:
+                case GET_OPTIONAL_LONG:
+                case GET_OPTIONAL_DOUBLE:
+                case GET_OPTIONAL:
+                case GET_PACKED:
+                case GET_COMPRESSED:
+                    try
+                    {
+                        values[plan.index] = copyOf(super.invoke(null, plan, null));
+                    }
+                    catch (IllegalStateException e)
+                    {
+                        values[plan.index] = new Failure(e.getMessage());
+                    }
+                    break;
+                case GET_WRAPPED:
+                case GET_OPTIONAL_WRAPPED:
+                {
+                    var value = (PersistentDataContainer) container.get(plan.key, plan.persistentType);
+                    var child = value != null ? snapshotOf(value, plan.wrapType) : null;
+
+                    values[plan.index] = plan.kind == MethodPlan.Kind.GET_OPTIONAL_WRAPPED ? Optional.ofNullable(child) : child;
+                    break;
+                }
+                case GET_WRAPPED_LIST:
+                {
+                    var value = (PersistentDataContainer[]) container.get(plan.key, plan.persistentType);
+                    var children = new Object[value != null ? value.length : 0];
+                    for (var i = 0; i < children.length; i++)
+                        children[i] = snapshotOf(value[i], plan.wrapType);
+
+                    values[plan.index] = List.of(children);
+                    break;
+                }
+                case GET_WRAPPED_MAP:
+                {
+                    var value = (PersistentDataContainer) container.get(plan.key, plan.persistentType);
+                    var children = new HashMap<String, Object>();
+                    if (value != null)
+                    {
+                        for (var key : value.getKeys())
+                        {
+                            var child = key.getNamespace().equals(plan.key.getNamespace()) ? value.get(key, PersistentDataType.TAG_CONTAINER) : null;
+                            if (child != null)
+                                children.put(key.getKey(), snapshotOf(child, plan.wrapType));
+                        }
+                    }
+
+                    values[plan.index] = Map.copyOf(children);
+                    break;
+                }
+            }
+        }
+
+        this.values = values;
+    }
+
+    private Object snapshotOf(PersistentDataContainer container, Class<?> interfaceType)
+    {
+        var handler = new SnapshotProxy(container, strongPersistentData, strongPersistentData.interfacePlan(interfaceType));
+        handler.refresh();
+        return strongPersistentData.wrap(handler);
+    }
+
+    @Override
+    Object invoke(Object self, MethodPlan plan, Object argument)
+    {
+        switch (plan.kind)
+        {
+            case REMOVE:
+            case SET:
+            case SET_WRAPPED:
+            case SET_WRAPPED_LIST:
+            case SET_WRAPPED_MAP:
+            case ADD:
+            case COMPARE_AND_SET:
+            case SET_PACKED:
+            case SET_COMPRESSED:
+                throw new UnsupportedOperationException("Snapshots are read-only");
+            case EQUALS:
+            case HASH_CODE:
+            case TO_STRING:
+            case INVALID:
+                return super.invoke(self, plan, argument);
+            case DEFAULT:
+                // Snapshots may be read from any thread, so nothing is memoized. Their getters are cheap anyway.
+                return invokeBody(self, plan, argument);
+            default:
+                var value = values[plan.index];
+                if (value instanceof Failure)
+                    throw new IllegalStateException(((Failure) value).message);
+
+                return copyOf(value);
+        }
+    }
+
+    /**
+     * @return a copy of {@code value} if it is mutable, or {@code value}
+     */
+    private static Object copyOf(Object value)
+    {
+        if (value instanceof byte[])
+            return ((byte[]) value).clone();
+        if (value instanceof int[])
+            return ((int[]) value).clone();
+        if (value instanceof long[])
+            return ((long[]) value).clone();
+        if (value instanceof IntList)
+            return IntList.wrap(((IntList) value).toIntArray());
+        if (value instanceof LongList)
+            return LongList.wrap(((LongList) value).toLongArray());
+        if (value instanceof PersistentDataContainer)
+            return copyOf((PersistentDataContainer) value);
+
+        if (value instanceof Object[])
+        {
+            var array = ((Object[]) value).clone();
+            if (array instanceof PersistentDataContainer[])
+            {
+                for (var i = 0; i < array.length; i++)
+                    array[i] = copyOf((PersistentDataContainer) array[i]);
+            }
+
+            return array;
+        }
+
+        if (value instanceof Optional && ((Optional<?>) value).isPresent())
+        {
+            var present = ((Optional<?>) value).get();
+            var copy = copyOf(present);
+            return copy != present ? Optional.of(copy) : value;
+        }
+
+        return value;
+    }
+
+    private static PersistentDataContainer copyOf(PersistentDataContainer container)
+    {
+        return PersistentDataContainers.copy(container, container.getAdapterContext());
+    }
+
+    @Override
+    boolean allowsDirect()
+    {
+        // Getters return what refresh read, and setters throw.
+        return false;
+    }
+
+    /**
+     * Kept instead of a value when the getter threw, so it throws again when invoked.
+     */
+    private static final class Failure
+    {
+        final String message;
+
+        Failure(String message)
+        {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class StrongPersistentData
+{
+    final Plugin plugin;
+    final PersistentDataTypeRegistry persistentDataTypes = new PersistentDataTypeRegistry();
+    final Counters counters;
+    final Metrics metrics = new Metrics();
+    final Compression.Codecs codecs = new Compression.Codecs();
+    /**
+     * Resolved plans of every wrapped interface. This is replaced whenever a new type is registered, as the plans may
+     * have been missing it.
+     */
+    private volatile ClassValue<InterfacePlan> interfacePlans = createInterfacePlans();
+    private volatile AccessorEngine accessorEngine = AccessorEngine.PROXY;
+    /**
+     * The migrations of each {@link SchemaVersion} interface, by the version they migrate from. This is replaced
+     * whenever a migration is registered.
+     */
+    private volatile Map<Class<?>, Map<Integer, Consumer<PersistentDataContainer>>> migrations = Map.of();
+    /**
+     * The {@link Index} of each interface that has one. This is replaced whenever an index is created.
+     */
+    private volatile Map<Class<?>, Index<?>> indexes = Map.of();
+    /**
+     * Changed whenever a holder is added to or removed from any index, so wrapped objects know to look up their entry
+     * again. Like the indexes themselves, this is only changed on the main thread, and is read wherever a wrapped
+     * object is used.
+     */
+    final AtomicInteger indexGeneration = new AtomicInteger();
+
+    /**
+     * Constructs a {@link StrongPersistentData}
+     *
+     * @param plugin the constructing plugin, which will own the generated {@link org.bukkit.NamespacedKey}
+     */
+    public StrongPersistentData(Plugin plugin)
+    {
+        this.plugin = plugin;
+        this.counters = new Counters(plugin);
+        // Primitive wrappers
+        persistentDataTypes.register(Byte.class, PersistentDataType.BYTE);
+        persistentDataTypes.register(Short.class, PersistentDataType.SHORT);
+        persistentDataTypes.register(Integer.class, PersistentDataType.INTEGER);
+        persistentDataTypes.register(Long.class, PersistentDataType.LONG);
+        persistentDataTypes.register(Float.class, PersistentDataType.FLOAT);
+        persistentDataTypes.register(Double.class, PersistentDataType.DOUBLE);
+
+        // Primitives
+        persistentDataTypes.register(Byte.TYPE, PersistentDataType.BYTE);
+        persistentDataTypes.register(Short.TYPE, PersistentDataType.SHORT);
+        persistentDataTypes.register(Integer.TYPE, PersistentDataType.INTEGER);
+        persistentDataTypes.register(Long.TYPE, PersistentDataType.LONG);
+        persistentDataTypes.register(Float.TYPE, PersistentDataType.FLOAT);
+        persistentDataTypes.register(Double.TYPE, PersistentDataType.DOUBLE);
+
+        // uhh, String
+        persistentDataTypes.register(String.class, PersistentDataType.STRING);
+
+        // Primitive arrays
+        persistentDataTypes.register(byte[].class, PersistentDataType.BYTE_ARRAY);
+        persistentDataTypes.register(int[].class, PersistentDataType.INTEGER_ARRAY);
+        persistentDataTypes.register(long[].class, PersistentDataType.LONG_ARRAY);
+
+        // Primitive wrapper arrays
+        persistentDataTypes.register(Byte[].class, CollectionPersistentDataTypes.BOXED_BYTE_ARRAY);
+        persistentDataTypes.register(Integer[].class, CollectionPersistentDataTypes.BOXED_INTEGER_ARRAY);
+        persistentDataTypes.register(Long[].class, CollectionPersistentDataTypes.BOXED_LONG_ARRAY);
+
+        // Primitive lists. List<Integer> and List<Long> are resolved from the generic type of the method.
+        persistentDataTypes.register(IntList.class, CollectionPersistentDataTypes.INT_LIST);
+        persistentDataTypes.register(LongList.class, CollectionPersistentDataTypes.LONG_LIST);
+
+        // Common classes, which would otherwise be stored as strings. Enums are resolved by the registry.
+        persistentDataTypes.register(Boolean.class, BuiltInPersistentDataTypes.BOOLEAN);
+        persistentDataTypes.register(Boolean.TYPE, BuiltInPersistentDataTypes.BOOLEAN);
+        persistentDataTypes.register(UUID.class, BuiltInPersistentDataTypes.UUID);
+        persistentDataTypes.register(Instant.class, BuiltInPersistentDataTypes.INSTANT);
+        persistentDataTypes.register(Duration.class, BuiltInPersistentDataTypes.DURATION);
+
+        // Direct containers
+        persistentDataTypes.register(PersistentDataContainer.class, PersistentDataType.TAG_CONTAINER);
+        persistentDataTypes.register(PersistentDataContainer[].class, PersistentDataType.TAG_CONTAINER_ARRAY);
+    }
+
+    /**
+     * Wrap a {@link PersistentDataContainer} to an interface, specified by {@code interfaceType}.
+     * The methods on this interface will directly affect the provided {@link PersistentDataContainer}.
+     *
+     * @param container     the container to modify
+     * @param interfaceType the type that represents this {@code container}
+     * @return an object of type {@code interfaceType}
+     */
+    @NotNull
+    public <T> T wrap(@NotNull PersistentDataContainer container, @NotNull Class<T> interfaceType)
+    {
+        return interfaceType.cast(wrap(new PersistentDataContainerProxy(container, this, interfacePlan(interfaceType))));
+    }
+
+    /**
+     * @return an implementation of the interface of {@code handler}, which calls {@code handler}
+     */
+    Object wrap(PersistentDataContainerProxy handler)
+    {
+        var interfaceType = handler.interfaceType();
+
+        var accessor = AccessorGenerator.createCompiled(interfaceType);
+        if (accessor == null && accessorEngine == AccessorEngine.GENERATED)
+            accessor = AccessorGenerator.create(handler.interfacePlan);
+
+        if (accessor != null)
+        {
+            handler.bind(accessor);
+            return accessor;
+        }
+
+        return Proxy.newProxyInstance(interfaceType.getClassLoader(), new Class[]{interfaceType}, handler);
+    }
+
+    /**
+     * <p>
+     * Wrap a {@link PersistentDataContainer} to an interface, like {@link #wrap(PersistentDataContainer, Class)}, but
+     * buffer every set and remove made by {@code edits}. Once {@code edits} returns, they are applied to
+     * {@code container} in a single pass, with only the last write to each key applied.
+     * </p>
+     *
+     * <p>
+     * Reads made by {@code edits} see its own buffered writes. If {@code edits} throws, nothing is applied. The wrapped
+     * object must not be used after {@code edits} returns.
+     * </p>
+     *
+     * @param container     the container to modify
+     * @param interfaceType the type that represents this {@code container}
+     * @param edits         the changes to make to the wrapped object
+     */
+    public <T> void edit(@NotNull PersistentDataContainer container, @NotNull Class<T> interfaceType, @NotNull Consumer<? super T> edits)
+    {
+        var plan = interfacePlan(interfaceType);
+        var buffered = new BufferedPersistentDataContainer(container, plan);
+
+        edits.accept(interfaceType.cast(wrap(new PersistentDataContainerProxy(buffered, this, plan))));
+        buffered.commit();
+        reindex(container, interfaceType);
+    }
+
+    /**
+     * Read every value of a wrapped interface from a {@link PersistentDataContainer} once, into a read-only
+     * {@link Snapshot}. Its getters don't read the container again, until it is refreshed.
+     *
+     * @param container     the container to read
+     * @param interfaceType the type that represents this {@code container}
+     * @return a snapshot of the values in {@code container}
+     */
+    @NotNull
+    public <T> Snapshot<T> snapshot(@NotNull PersistentDataContainer container, @NotNull Class<T> interfaceType)
+    {
+        var handler = new SnapshotProxy(container, this, interfacePlan(interfaceType));
+        handler.refresh();
+
+        return new Snapshot<>(handler, interfaceType.cast(wrap(handler)));
+    }
+
+    /**
+     * <p>
+     * Copy a {@link PersistentDataContainer} to the heap, and wrap the copy to an interface. The copy can be read and
+     * written from any thread, and its writes are applied to {@code container} with {@link Detached#merge(ConflictPolicy)}.
+     * </p>
+     *
+     * <p>
+     * Like any other use of {@code container}, this should be called on the main thread.
+     * </p>
+     *
+     * @param container     the container to copy
+     * @param interfaceType the type that represents this {@code container}
+     * @return the detached copy of {@code container}
+     */
+    @NotNull
+    public <T> Detached<T> detach(@NotNull PersistentDataContainer container, @NotNull Class<T> interfaceType)
+    {
+        // Migrate the container itself, rather than merging the migration back as if it were a change of the copy.
+        new PersistentDataContainerProxy(container, this, interfacePlan(interfaceType)).migrate();
+
+        var detached = new DetachedPersistentDataContainer(container);
+        var handler = new DetachedProxy(detached, this, interfacePlan(interfaceType), null, detached);
+
+        return new Detached<>(this, interfaceType, container, detached, interfaceType.cast(wrap(handler)));
+    }
+
+    /**
+     * Wrap a {@link PersistentDataContainer} to an interface, like {@link #wrap(PersistentDataContainer, Class)}, but
+     * remember which keys are written, so only they can be sent elsewhere. See {@link Tracked}.
+     *
+     * @param container     the container to modify
+     * @param interfaceType the type that represents this {@code container}
+     * @return the tracked wrapped object
+     */
+    @NotNull
+    public <T> Tracked<T> track(@NotNull PersistentDataContainer container, @NotNull Class<T> interfaceType)
+    {
+        var handler = new TrackedProxy(container, this, interfacePlan(interfaceType));
+        return new Tracked<>(handler, interfaceType.cast(wrap(handler)));
+    }
+
+    /**
+     * <p>
+     * Apply changes drained from a {@link Tracked} object to another container, which is brought up to the
+     * {@link SchemaVersion} of the interface first. Every change is read before anything is written, so if the changes
+     * can't be read, the container is left alone.
+     * </p>
+     *
+     * <p>
+     * Objects already wrapped around {@code container} don't know it has changed, so their {@link Wrap} children and
+     * {@link Compressed#cache()} values should not be used afterwards.
+     * </p>
+     *
+     * @param container     the container to modify
+     * @param interfaceType the interface the changes were tracked with
+     * @param changes       what was returned by {@link Tracked#drain()}
+     * @throws IllegalStateException if the changes were tracked with a different version of the interface, or are
+     *                               corrupt
+     */
+    public void applyChanges(@NotNull PersistentDataContainer container, @NotNull Class<?> interfaceType, @NotNull byte[] changes)
+    {
+        var plan = interfacePlan(interfaceType);
+        var journal = ChangeJournal.read(plan, changes, container.getAdapterContext());
+        new PersistentDataContainerProxy(container, this, plan).migrate();
+
+        var unversioned = plan.versionKey != null && !container.has(plan.versionKey, PersistentDataType.INTEGER);
+        journal.applyTo(container);
+
+        // An empty container would be stamped by its first write, like through a wrapped object.
+        if (unversioned && !container.isEmpty())
+            container.set(plan.versionKey, PersistentDataType.INTEGER, plan.schemaVersion);
+
+        reindex(container, interfaceType);
+    }
+
+    /**
+     * Get the {@link Index} of an interface, which is created the first time. Holders are only in it once they are
+     * added to it.
+     *
+     * @param interfaceType the interface, which must have at least one {@link Indexed} getter
+     * @return the index of {@code interfaceType}
+     * @throws IllegalStateException if the interface has no {@link Indexed} getters, or one of them can't be indexed
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public synchronized <T> Index<T> index(@NotNull Class<T> interfaceType)
+    {
+        var index = indexes.get(interfaceType);
+        if (index == null)
+        {
+            index = new Index<>(this, interfaceType, interfacePlan(interfaceType));
+
+            var copy = new HashMap<>(indexes);
+            copy.put(interfaceType, index);
+            indexes = copy;
+        }
+
+        return (Index<T>) index;
+    }
+
+    /**
+     * @return the entry of {@code container} in the index of {@code interfaceType}, or null if there is no index, or the
+     * container hasn't been added to it
+     */
+    Index.Entry indexEntryOf(Class<?> interfaceType, PersistentDataContainer container)
+    {
+        var index = indexes.get(interfaceType);
+        return index != null ? index.entryOf(container) : null;
+    }
+
+    void indexChanged()
+    {
+        indexGeneration.incrementAndGet();
+    }
+
+    /**
+     * Read every indexed value of {@code container} again, if it is in the index of {@code interfaceType}, after it has
+     * been written to without going through a wrapped object.
+     */
+    void reindex(PersistentDataContainer container, Class<?> interfaceType)
+    {
+        var entry = indexEntryOf(interfaceType, container);
+        if (entry != null)
+            entry.refresh(container);
+    }
+
+    /**
+     * Add what has been added by {@link Counter#coalesce()} methods to their containers now, instead of on the next tick.
+     * This should be called on the main thread, such as when the plugin is disabled.
+     */
+    public void flushCounters()
+    {
+        counters.flush();
+    }
+
+    /**
+     * Flush counters, like {@link #flushCounters()}, and release the native memory kept for {@link Compressed} values.
+     * This should be called on the main thread when the plugin is disabled. Wrapped objects still work afterwards, but
+     * don't keep anything for the next compression.
+     */
+    public void shutdown()
+    {
+        counters.flush();
+        codecs.close();
+    }
+
+    /**
+     * @return the {@link Metrics} of objects wrapped by this, which are disabled until {@link Metrics#enable()} is
+     * called
+     */
+    @NotNull
+    public Metrics metrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Set how {@link #wrap(PersistentDataContainer, Class)} implements interfaces from now on. Objects that have already
+     * been wrapped are not affected. The default is {@link AccessorEngine#PROXY}.
+     *
+     * @param accessorEngine the engine to use
+     */
+    public void setAccessorEngine(@NotNull AccessorEngine accessorEngine)
+    {
+        this.accessorEngine = accessorEngine;
+    }
+
+    /**
+     * <p>
+     * Resolve and validate interfaces ahead of time, such as when your plugin is enabled. Every method must be
+     * understood, and every type it uses must already be registered, otherwise this will throw. Interfaces used by
+     * {@link Wrap} methods are registered as well.
+     * </p>
+     *
+     * <p>
+     * This also generates the implementation of each interface, if the {@link AccessorEngine} needs one. Custom types
+     * should be registered with {@link #registerPersistentDataType(PersistentDataType)} before calling this, as
+     * registering a type has to resolve every interface again.
+     * </p>
+     *
+     * @param interfaceTypes the interfaces that will be wrapped
+     * @throws IllegalStateException if any method of the interfaces could not be understood
+     */
+    public void register(@NotNull Class<?>... interfaceTypes)
+    {
+        var pending = new ArrayDeque<Class<?>>(Arrays.asList(interfaceTypes));
+        var registered = new HashSet<Class<?>>();
+
+        while (!pending.isEmpty())
+        {
+            var interfaceType = pending.poll();
+            if (!registered.add(interfaceType))
+                continue;
+
+            var plan = interfacePlan(interfaceType);
+            plan.validate();
+
+            if (AccessorGenerator.createCompiled(interfaceType) == null && accessorEngine == AccessorEngine.GENERATED)
+                AccessorGenerator.create(plan);
+
+            for (var methodPlan : plan.plans())
+            {
+                if (methodPlan.wrapType != null)
+                    pending.add(methodPlan.wrapType);
+            }
+        }
+    }
+
+    /**
+     * {@link #register(Class[])} interfaces, and then invoke every one of their methods {@code iterations} times
+     * against containers that only live in memory. The first real use of these interfaces will then not have to load
+     * or compile anything. {@link Counter} and default methods are not invoked, and nothing is recorded in
+     * {@link #metrics()}.
+     *
+     * @param iterations     how many times to invoke each method
+     * @param interfaceTypes the interfaces that will be wrapped
+     * @throws IllegalStateException if any method of the interfaces could not be understood
+     */
+    public void registerAndWarmUp(int iterations, @NotNull Class<?>... interfaceTypes)
+    {
+        register(interfaceTypes);
+
+        for (var interfaceType : interfaceTypes)
+            WarmUp.run(this, interfaceType, iterations);
+    }
+
+    /**
+     * <p>
+     * Register how to migrate containers of an interface annotated with {@link SchemaVersion}, from {@code fromVersion}
+     * to the version after it. The migration is given the container, and should move or convert its keys.
+     * </p>
+     *
+     * <p>
+     * Migrations are applied the first time a container is used through the interface, so every migration up to the
+     * current version should be registered before then, such as when your plugin is enabled. A migration that throws is
+     * tried again the next time the container is used.
+     * </p>
+     *
+     * @param interfaceType the interface whose containers are migrated
+     * @param fromVersion   the version this migrates from
+     * @param migration     the migration, which modifies the container it is given
+     */
+    public synchronized void registerMigration(@NotNull Class<?> interfaceType, int fromVersion, @NotNull Consumer<PersistentDataContainer> migration)
+    {
+        var copy = new HashMap<>(migrations);
+        var interfaceMigrations = new HashMap<>(copy.getOrDefault(interfaceType, Map.of()));
+        interfaceMigrations.put(fromVersion, migration);
+        copy.put(interfaceType, Map.copyOf(interfaceMigrations));
+
+        migrations = copy;
+        interfacePlans = createInterfacePlans();
+    }
+
+    /**
+     * @return the migrations of {@code interfaceType}, by the version they migrate from
+     */
+    Map<Integer, Consumer<PersistentDataContainer>> migrationsOf(Class<?> interfaceType)
+    {
+        return migrations.getOrDefault(interfaceType, Map.of());
+    }
+
+    InterfacePlan interfacePlan(Class<?> interfaceType)
+    {
+        return interfacePlans.get(interfaceType);
+    }
+
+    private ClassValue<InterfacePlan> createInterfacePlans()
+    {
+        return new ClassValue<>()
+        {
+            @Override
+            protected InterfacePlan computeValue(Class<?> type)
+            {
+                return InterfacePlan.resolve(type, StrongPersistentData.this);
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * Registers a {@link PersistentDataType} to be used when setting/getting data.
+     * </p>
+     *
+     * <p>
+     * Built-in types (those found within {@link PersistentDataType}) should <b>not</b> be passed to this method --
+     * they are automatically registered. Overwriting them will <b>not</b> have any desired effects.
+     * </p>
+     *
+     * <p>
+     * The type will also be used by setters of subclasses and implementations of its complex type, unless they have a
+     * type of their own. Getters of those can't use it, as what it reads isn't one. This is safe to call from any thread.
+     * </p>
+     *
+     * @param persistentDataType the type to register.
+     */
+    public void registerPersistentDataType(PersistentDataType<?, ?> persistentDataType)
+    {
+        persistentDataTypes.register(persistentDataType.getComplexType(), persistentDataType);
+        interfacePlans = createInterfacePlans();
+    }
+}
@@ -0,0 +1,61 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataContainer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>
+ * A wrapped interface that remembers which keys its setters, remove methods, counters and {@link Wrap} children have
+ * written, created by {@link StrongPersistentData#track(PersistentDataContainer, Class)}.
+ * </p>
+ *
+ * <p>
+ * {@link #drain()} returns just those keys, as a compact {@code byte[]} that
+ * {@link StrongPersistentData#applyChanges(PersistentDataContainer, Class, byte[])} can apply to another container, such
+ * as a copy on another server. Each key is written as a small number rather than its name, so both sides must use the
+ * same version of the interface. Writes made to the container without going through {@link #get()} aren't tracked.
+ * </p>
+ *
+ * @param <T> the wrapped interface
+ */
+public final class Tracked<T>
+{
+    private final TrackedProxy handler;
+    private final T view;
+
+    Tracked(TrackedProxy handler, T view)
+    {
+        this.handler = handler;
+        this.view = view;
+    }
+
+    /**
+     * @return the wrapped interface, which reads and writes the container like any other wrapped object
+     */
+    @NotNull
+    public T get()
+    {
+        return view;
+    }
+
+    /**
+     * @return true if a key has been written since the last {@link #drain()}
+     */
+    public boolean isDirty()
+    {
+        return handler.isDirty();
+    }
+
+    /**
+     * Take the current value of every key written since the last call, and start tracking again from nothing. A key
+     * that was written more than once is only included once, and a key that was removed is included as removed. Like
+     * any other use of the container, this should be called on the main thread.
+     *
+     * @return the changes, which are only a few bytes if nothing has been written
+     */
+    @NotNull
+    public byte[] drain()
+    {
+        return handler.drain();
+    }
+}
@@ -0,0 +1,58 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.util.Arrays;
+
+/**
+ * Handles a wrapped object that was created by {@link StrongPersistentData#track(PersistentDataContainer, Class)}, and
+ * remembers the slot of every key written through it, including by its {@link Wrap} children.
+ */
+final class TrackedProxy extends PersistentDataContainerProxy
+{
+    private final boolean[] dirty;
+    private int dirtyCount;
+
+    TrackedProxy(PersistentDataContainer container, StrongPersistentData strongPersistentData, InterfacePlan interfacePlan)
+    {
+        super(container, strongPersistentData, interfacePlan);
+        this.dirty = new boolean[interfacePlan.keys.length];
+    }
+
+    @Override
+    void written(NamespacedKey key, Child writer)
+    {
+        super.written(key, writer);
+
+        var slot = interfacePlan.slotOf(key);
+        if (slot != -1 && !dirty[slot])
+        {
+            dirty[slot] = true;
+            dirtyCount++;
+        }
+    }
+
+    @Override
+    boolean coalescesCounters()
+    {
+        // A coalesced counter is written when it is flushed, where we wouldn't see it.
+        return false;
+    }
+
+    boolean isDirty()
+    {
+        return dirtyCount != 0;
+    }
+
+    /**
+     * @return the current value of every key written since the last drain, as a {@link ChangeJournal}
+     */
+    byte[] drain()
+    {
+        var changes = ChangeJournal.write(interfacePlan, container, dirty, dirtyCount);
+        Arrays.fill(dirty, false);
+        dirtyCount = 0;
+        return changes;
+    }
+}
@@ -0,0 +1,154 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Invokes every method of a wrapped interface against {@link MemoryPersistentDataContainer}s, so the code behind them
+ * has already been loaded and compiled before it is used for real.
+ *
+ * <p>
+ * The wrapped objects are never measured, so warming up doesn't show in {@link Metrics}. {@link Counter} methods are
+ * left alone, as coalesced ones would queue deltas for containers nobody flushes to, and default methods, as they may
+ * do anything.
+ * </p>
+ */
+final class WarmUp
+{
+    private WarmUp()
+    {
+    }
+
+    static void run(StrongPersistentData strongPersistentData, Class<?> interfaceType, int iterations)
+    {
+        var interfacePlan = strongPersistentData.interfacePlan(interfaceType);
+        var plans = interfacePlan.plans();
+        var setters = new ArrayList<MethodPlan>();
+        var others = new ArrayList<MethodPlan>();
+
+        for (var plan : plans)
+        {
+            if (plan.kind == MethodPlan.Kind.SET || plan.kind == MethodPlan.Kind.SET_WRAPPED || plan.kind == MethodPlan.Kind.SET_WRAPPED_LIST || plan.kind == MethodPlan.Kind.SET_WRAPPED_MAP || plan.kind == MethodPlan.Kind.SET_PACKED || plan.kind == MethodPlan.Kind.SET_COMPRESSED)
+                setters.add(plan);
+            else if (plan.kind != MethodPlan.Kind.INVALID && plan.kind != MethodPlan.Kind.REMOVE && plan.kind != MethodPlan.Kind.DEFAULT && plan.kind != MethodPlan.Kind.ADD && plan.kind != MethodPlan.Kind.COMPARE_AND_SET)
+                others.add(plan);
+        }
+
+        var sampleContainer = new MemoryPersistentDataContainer();
+
+        for (var i = 0; i < iterations; i++)
+        {
+            var wrapped = wrapUnmeasured(strongPersistentData, new MemoryPersistentDataContainer(), interfaceType);
+
+            // Getters before and after setting, so both the missing and existing cases are warmed.
+            for (var plan : others)
+                invoke(wrapped, plan.method, null);
+
+            for (var plan : setters)
+            {
+                Object sample;
+                if (plan.kind == MethodPlan.Kind.SET_WRAPPED)
+                    sample = wrapUnmeasured(strongPersistentData, new MemoryPersistentDataContainer(), plan.wrapType);
+                else if (plan.kind == MethodPlan.Kind.SET_WRAPPED_LIST)
+                    sample = List.of(wrapUnmeasured(strongPersistentData, new MemoryPersistentDataContainer(), plan.wrapType));
+                else if (plan.kind == MethodPlan.Kind.SET_WRAPPED_MAP)
+                    sample = Map.of("sample", wrapUnmeasured(strongPersistentData, new MemoryPersistentDataContainer(), plan.wrapType));
+                else if (plan.kind == MethodPlan.Kind.SET_PACKED)
+                    sample = plan.packing.zero();
+                else if (plan.kind == MethodPlan.Kind.SET_COMPRESSED)
+                    sample = plan.method.getParameterTypes()[0] == String.class ? "" : new byte[0];
+                else
+                    sample = sampleOf(plan, sampleContainer);
+
+                if (sample != null)
+                    invoke(wrapped, plan.method, new Object[]{sample});
+            }
+
+            for (var plan : others)
+                invoke(wrapped, plan.method, null);
+
+            for (var plan : plans)
+            {
+                if (plan.kind == MethodPlan.Kind.REMOVE)
+                    invoke(wrapped, plan.method, null);
+            }
+        }
+    }
+
+    private static Object wrapUnmeasured(StrongPersistentData strongPersistentData, PersistentDataContainer container, Class<?> interfaceType)
+    {
+        return strongPersistentData.wrap(new PersistentDataContainerProxy(container, strongPersistentData, strongPersistentData.interfacePlan(interfaceType), null, null));
+    }
+
+    private static void invoke(Object wrapped, Method method, Object[] args)
+    {
+        try
+        {
+            method.setAccessible(true);
+            method.invoke(wrapped, args);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException("Couldn't warm up " + method, e);
+        }
+        catch (InvocationTargetException e)
+        {
+            // Such as a primitive getter without a default value, which is expected of empty containers. Anything else
+            // is a bug, which shouldn't wait for the first real use.
+            if (!(e.getCause() instanceof IllegalStateException))
+                throw new IllegalStateException("Warming up " + method + " threw", e.getCause());
+        }
+    }
+
+    /**
+     * @return an arbitrary value for the setter, or null if we don't know how to make one
+     */
+    private static Object sampleOf(MethodPlan plan, MemoryPersistentDataContainer context)
+    {
+        var primitiveType = plan.persistentType.getPrimitiveType();
+        Object primitive;
+
+        if (primitiveType == Byte.class)
+            primitive = (byte) 0;
+        else if (primitiveType == Short.class)
+            primitive = (short) 0;
+        else if (primitiveType == Integer.class)
+            primitive = 0;
+        else if (primitiveType == Long.class)
+            primitive = 0L;
+        else if (primitiveType == Float.class)
+            primitive = 0f;
+        else if (primitiveType == Double.class)
+            primitive = 0d;
+        else if (primitiveType == String.class)
+            primitive = "";
+        else if (primitiveType == byte[].class)
+            primitive = new byte[0];
+        else if (primitiveType == int[].class)
+            primitive = new int[0];
+        else if (primitiveType == long[].class)
+            primitive = new long[0];
+        else if (primitiveType == PersistentDataContainer.class)
+            primitive = new MemoryPersistentDataContainer();
+        else if (primitiveType == PersistentDataContainer[].class)
+            primitive = new PersistentDataContainer[0];
+        else
+            return null;
+
+        try
+        {
+            var complex = plan.persistentType.fromPrimitive(primitive, context);
+            return plan.method.getParameterTypes()[0].isPrimitive() || plan.method.getParameterTypes()[0].isInstance(complex) ? complex : null;
+        }
+        catch (RuntimeException e)
+        {
+            // A custom type which doesn't like our arbitrary value.
+            return null;
+        }
+    }
+}
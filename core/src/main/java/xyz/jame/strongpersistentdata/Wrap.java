@@ -0,0 +1,39 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * When used on a getter, this will retrieve a {@link org.bukkit.persistence.PersistentDataType#TAG_CONTAINER} from the
+ * container at the key, and {@link StrongPersistentData#wrap(PersistentDataContainer, Class)} it to the return type.
+ * </p>
+ *
+ * <p>
+ * The wrapped object is cached, so calling the getter again returns the same object, until the key is set or removed
+ * through this wrapped object. Writes to the returned object are committed back to this container.
+ * </p>
+ *
+ * <p>
+ * When used on a setter, this will retrieve a {@link org.bukkit.persistence.PersistentDataType#TAG_CONTAINER} from the
+ * wrapped parameter, and set it on the container.
+ * </p>
+ *
+ * <p>
+ * The type may also be a {@code List} of a wrapped interface, which is stored as a
+ * {@link org.bukkit.persistence.PersistentDataType#TAG_CONTAINER_ARRAY}, or a {@code Map} from {@code String} to a
+ * wrapped interface, which is stored as a nested container with a key of our plugin for each entry. The getters return a
+ * view, whose elements are only wrapped once they are retrieved, and changes to it are committed back to this container.
+ * A container can't set part of a value, so every change to the view (or to one of its elements) sets the whole list or
+ * map again, which costs as much as it holds. Make many changes through {@link StrongPersistentData#edit} to set it once.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface Wrap
+{
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * The value of a {@link MethodPlan.Kind#GET_WRAPPED_LIST} getter, which is a view of a
+ * {@link org.bukkit.persistence.PersistentDataType#TAG_CONTAINER_ARRAY}.
+ * </p>
+ *
+ * <p>
+ * The array is read once, and each element is only wrapped when it is first retrieved. Adding, removing or setting an
+ * element (or writing to one) sets the whole array back to the key once, as a container can't set a single element.
+ * </p>
+ */
+final class WrappedList extends AbstractList<Object> implements RandomAccess, PersistentDataContainerProxy.Child, PersistentDataContainerProxy.Link
+{
+    private final PersistentDataContainerProxy owner;
+    private final MethodPlan plan;
+    private final InterfacePlan elementPlan;
+    private PersistentDataContainer[] containers;
+    /**
+     * The wrapped elements, and their handlers, which are null until they are retrieved.
+     */
+    private Object[] elements;
+    private PersistentDataContainerProxy[] handlers;
+    private int size;
+    private boolean detached;
+
+    WrappedList(PersistentDataContainerProxy owner, MethodPlan plan, PersistentDataContainer[] containers)
+    {
+        this.owner = owner;
+        this.plan = plan;
+        this.elementPlan = owner.strongPersistentData.interfacePlan(plan.wrapType);
+        this.containers = containers != null ? containers : new PersistentDataContainer[0];
+        this.size = this.containers.length;
+        this.elements = new Object[size];
+        this.handlers = new PersistentDataContainerProxy[size];
+    }
+
+    @Override
+    public Object returned()
+    {
+        return this;
+    }
+
+    @Override
+    public void detach()
+    {
+        detached = true;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public Object get(int index)
+    {
+        checkIndex(index, size);
+
+        var element = elements[index];
+        if (element == null)
+        {
+            // The handler's container is the element of our array, so committing it is committing the array.
+            var handler = owner.child(containers[index], elementPlan, this);
+            element = owner.strongPersistentData.wrap(handler);
+            elements[index] = element;
+            handlers[index] = handler;
+        }
+
+        return element;
+    }
+
+    @Override
+    public Object set(int index, Object element)
+    {
+        checkIndex(index, size);
+
+        var previous = get(index);
+        release(index);
+        containers[index] = owner.copyOfWrapped(element);
+        commit();
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Object element)
+    {
+        checkIndex(index, size + 1);
+
+        var container = owner.copyOfWrapped(element);
+        if (size == containers.length)
+        {
+            var capacity = Math.max(size * 2, 10);
+            containers = Arrays.copyOf(containers, capacity);
+            elements = Arrays.copyOf(elements, capacity);
+            handlers = Arrays.copyOf(handlers, capacity);
+        }
+
+        shift(index, index + 1, size - index);
+        containers[index] = container;
+        elements[index] = null;
+        handlers[index] = null;
+        size++;
+        modCount++;
+        commit();
+    }
+
+    @Override
+    public Object remove(int index)
+    {
+        checkIndex(index, size);
+
+        var previous = get(index);
+        release(index);
+        shift(index + 1, index, size - index - 1);
+        size--;
+        containers[size] = null;
+        elements[size] = null;
+        handlers[size] = null;
+        modCount++;
+        commit();
+        return previous;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex)
+    {
+        for (var i = fromIndex; i < toIndex; i++)
+            release(i);
+
+        var removed = toIndex - fromIndex;
+        shift(toIndex, fromIndex, size - toIndex);
+        for (var i = size - removed; i < size; i++)
+        {
+            containers[i] = null;
+            elements[i] = null;
+            handlers[i] = null;
+        }
+
+        size -= removed;
+        modCount++;
+        commit();
+    }
+
+    /**
+     * Move {@code length} elements from {@code from} to {@code to}.
+     */
+    private void shift(int from, int to, int length)
+    {
+        System.arraycopy(containers, from, containers, to, length);
+        System.arraycopy(elements, from, elements, to, length);
+        System.arraycopy(handlers, from, handlers, to, length);
+    }
+
+    /**
+     * Stop the element at {@code index} from committing, as it is being replaced or removed.
+     */
+    private void release(int index)
+    {
+        if (handlers[index] != null)
+        {
+            handlers[index].link = null;
+            handlers[index] = null;
+        }
+
+        elements[index] = null;
+    }
+
+    @Override
+    public void commit(PersistentDataContainerProxy handler)
+    {
+        commit();
+    }
+
+    private void commit()
+    {
+        if (detached)
+            return;
+
+        owner.container.set(plan.key, plan.persistentType, Arrays.copyOf(containers, size));
+        owner.written(plan.key, this);
+    }
+
+    private static void checkIndex(int index, int length)
+    {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+    }
+}
@@ -0,0 +1,304 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * The value of a {@link MethodPlan.Kind#GET_WRAPPED_MAP} getter, which is a view of a nested container. Each entry is a
+ * {@link PersistentDataType#TAG_CONTAINER} at a key of our plugin, named by the entry's key. Other keys of the nested
+ * container are left alone.
+ * </p>
+ *
+ * <p>
+ * The nested container is read once, and each value is only wrapped when it is first retrieved. Putting or removing an
+ * entry (or writing to a value) sets the whole nested container back to the key once. Only we write to the nested
+ * container, so its size is counted once and then kept up to date.
+ * </p>
+ */
+final class WrappedMap extends AbstractMap<String, Object> implements PersistentDataContainerProxy.Child
+{
+    private final PersistentDataContainerProxy owner;
+    private final MethodPlan plan;
+    private final InterfacePlan elementPlan;
+    private final PersistentDataContainer map;
+    private final String namespace;
+    /**
+     * The values that have been retrieved, by their key.
+     */
+    private final HashMap<String, Element> elements = new HashMap<>();
+    /**
+     * The number of entries, or -1 if they haven't been counted yet.
+     */
+    private int size = -1;
+    private boolean detached;
+
+    WrappedMap(PersistentDataContainerProxy owner, MethodPlan plan, PersistentDataContainer map)
+    {
+        this.owner = owner;
+        this.plan = plan;
+        this.elementPlan = owner.strongPersistentData.interfacePlan(plan.wrapType);
+        this.map = map != null ? map : owner.container.getAdapterContext().newPersistentDataContainer();
+        this.namespace = plan.key.getNamespace();
+    }
+
+    @Override
+    public Object returned()
+    {
+        return this;
+    }
+
+    @Override
+    public void detach()
+    {
+        detached = true;
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+        if (!(key instanceof String))
+            return null;
+
+        var element = elements.get(key);
+        if (element != null)
+            return element.wrapped;
+
+        var name = (String) key;
+        var namespacedKey = keyOf(name);
+        var value = map.get(namespacedKey, PersistentDataType.TAG_CONTAINER);
+        if (value == null)
+            return null;
+
+        element = new Element(namespacedKey, value);
+        elements.put(name, element);
+        return element.wrapped;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return key instanceof String && (elements.containsKey(key) || map.has(keyOf((String) key), PersistentDataType.TAG_CONTAINER));
+    }
+
+    @Override
+    public int size()
+    {
+        if (size == -1)
+            size = names().size();
+
+        return size;
+    }
+
+    @Override
+    public Object put(String key, Object value)
+    {
+        var copy = owner.copyOfWrapped(value);
+        var previous = get(key);
+        if (previous == null && size != -1)
+            size++;
+
+        release(key);
+        map.set(keyOf(key), PersistentDataType.TAG_CONTAINER, copy);
+        commit();
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key)
+    {
+        if (!containsKey(key))
+            return null;
+
+        var previous = get(key);
+        if (size != -1)
+            size--;
+
+        release((String) key);
+        map.remove(keyOf((String) key));
+        commit();
+        return previous;
+    }
+
+    @Override
+    public void clear()
+    {
+        for (var element : elements.values())
+            element.handler.link = null;
+
+        elements.clear();
+        for (var key : map.getKeys())
+        {
+            if (key.getNamespace().equals(namespace))
+                map.remove(key);
+        }
+
+        size = 0;
+        commit();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<Entry<String, Object>> iterator()
+            {
+                var names = names().iterator();
+                return new Iterator<>()
+                {
+                    private String current;
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return names.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next()
+                    {
+                        current = names.next();
+                        return new LazyEntry(current);
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        if (current == null)
+                            throw new IllegalStateException();
+
+                        WrappedMap.this.remove(current);
+                        current = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return WrappedMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * @return the names of every entry, as they are now
+     */
+    private ArrayList<String> names()
+    {
+        var names = new ArrayList<String>();
+        for (var key : map.getKeys())
+        {
+            if (key.getNamespace().equals(namespace) && map.has(key, PersistentDataType.TAG_CONTAINER))
+                names.add(key.getKey());
+        }
+
+        return names;
+    }
+
+    private NamespacedKey keyOf(String name)
+    {
+        return new NamespacedKey(owner.strongPersistentData.plugin, name);
+    }
+
+    /**
+     * Stop the value of {@code name} from committing, as it is being replaced or removed.
+     */
+    private void release(String name)
+    {
+        var element = elements.remove(name);
+        if (element != null)
+            element.handler.link = null;
+    }
+
+    private void commit()
+    {
+        if (detached)
+            return;
+
+        owner.container.set(plan.key, plan.persistentType, map);
+        owner.written(plan.key, this);
+    }
+
+    /**
+     * A retrieved value, which commits writes to it into the nested container.
+     */
+    private final class Element implements PersistentDataContainerProxy.Link
+    {
+        final NamespacedKey key;
+        final PersistentDataContainerProxy handler;
+        final Object wrapped;
+
+        Element(NamespacedKey key, PersistentDataContainer value)
+        {
+            this.key = key;
+            this.handler = owner.child(value, elementPlan, this);
+            this.wrapped = owner.strongPersistentData.wrap(handler);
+        }
+
+        @Override
+        public void commit(PersistentDataContainerProxy handler)
+        {
+            map.set(key, PersistentDataType.TAG_CONTAINER, handler.container);
+            WrappedMap.this.commit();
+        }
+    }
+
+    /**
+     * An entry whose value is only wrapped once it is retrieved.
+     */
+    private final class LazyEntry implements Entry<String, Object>
+    {
+        private final String name;
+
+        LazyEntry(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public String getKey()
+        {
+            return name;
+        }
+
+        @Override
+        public Object getValue()
+        {
+            return get(name);
+        }
+
+        @Override
+        public Object setValue(Object value)
+        {
+            return put(name, value);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Map.Entry))
+                return false;
+
+            var other = (Map.Entry<?, ?>) o;
+            return name.equals(other.getKey()) && getValue().equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return name.hashCode() ^ getValue().hashCode();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeJournalTest
+{
+    private final StrongPersistentData strongPersistentData = new StrongPersistentData(TestPlugin.create("Test"));
+    private final Tracked<Profile> tracked = strongPersistentData.track(new MemoryPersistentDataContainer(), Profile.class);
+    private final MemoryPersistentDataContainer mirror = new MemoryPersistentDataContainer();
+
+    @Test
+    void appliesEveryKindOfValue()
+    {
+        var profile = tracked.get();
+        profile.health(-20);
+        profile.score(Long.MIN_VALUE);
+        profile.ratio(0.5);
+        profile.name("first");
+        profile.name("second");
+        profile.ints(new int[]{1, -2, 300});
+        profile.child(strongPersistentData.wrap(new MemoryPersistentDataContainer(), Profile.class));
+        profile.child().health(12);
+        profile.child().name("nested");
+        assertTrue(tracked.isDirty());
+
+        strongPersistentData.applyChanges(mirror, Profile.class, tracked.drain());
+
+        var applied = strongPersistentData.wrap(mirror, Profile.class);
+        assertEquals(-20, applied.health());
+        assertEquals(Long.MIN_VALUE, applied.score());
+        assertEquals(0.5, applied.ratio());
+        assertEquals("second", applied.name());
+        assertArrayEquals(new int[]{1, -2, 300}, applied.ints());
+        assertEquals(12, applied.child().health());
+        assertEquals("nested", applied.child().name());
+    }
+
+    @Test
+    void onlyIncludesKeysWrittenSinceTheLastDrain()
+    {
+        var profile = tracked.get();
+        profile.health(1);
+        profile.name("kept");
+        tracked.drain();
+        assertFalse(tracked.isDirty());
+
+        profile.health(2);
+        var mirrored = strongPersistentData.wrap(mirror, Profile.class);
+        mirrored.name("untouched");
+        strongPersistentData.applyChanges(mirror, Profile.class, tracked.drain());
+
+        assertEquals(2, mirrored.health());
+        assertEquals("untouched", mirrored.name());
+    }
+
+    @Test
+    void appliesRemovedKeys()
+    {
+        strongPersistentData.wrap(mirror, Profile.class).name("gone");
+
+        var profile = tracked.get();
+        profile.name("briefly");
+        profile.removeName();
+        strongPersistentData.applyChanges(mirror, Profile.class, tracked.drain());
+
+        assertFalse(mirror.has(new NamespacedKey("test", "name"), PersistentDataType.STRING));
+        assertNull(strongPersistentData.wrap(mirror, Profile.class).name());
+    }
+
+    @Test
+    void drainsNothingAsOnlyTheHeader()
+    {
+        // The fingerprint of the interface, and no changes.
+        var changes = tracked.drain();
+        assertEquals(5, changes.length);
+        assertEquals(0, changes[4]);
+
+        strongPersistentData.applyChanges(mirror, Profile.class, changes);
+        assertTrue(mirror.isEmpty());
+    }
+
+    @Test
+    void rejectsChangesItCantApply()
+    {
+        tracked.get().name("value");
+        var changes = tracked.drain();
+
+        assertThrows(IllegalStateException.class, () -> strongPersistentData.applyChanges(mirror, Other.class, changes));
+        assertThrows(IllegalStateException.class, () -> strongPersistentData.applyChanges(mirror, Profile.class, Arrays.copyOf(changes, changes.length - 1)));
+        assertThrows(IllegalStateException.class, () -> strongPersistentData.applyChanges(mirror, Profile.class, Arrays.copyOf(changes, changes.length + 1)));
+        assertTrue(mirror.isEmpty());
+    }
+
+    interface Profile
+    {
+        Integer health();
+
+        void health(Integer health);
+
+        Long score();
+
+        void score(Long score);
+
+        Double ratio();
+
+        void ratio(Double ratio);
+
+        String name();
+
+        void name(String name);
+
+        void removeName();
+
+        int[] ints();
+
+        void ints(int[] ints);
+
+        @Wrap
+        Profile child();
+
+        @Wrap
+        void child(Profile child);
+    }
+
+    interface Other
+    {
+        String name();
+
+        void name(String name);
+    }
+}
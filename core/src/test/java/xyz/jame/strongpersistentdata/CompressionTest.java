@@ -0,0 +1,144 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressionTest
+{
+    private final StrongPersistentData strongPersistentData = new StrongPersistentData(TestPlugin.create("Test"));
+    private final MemoryPersistentDataContainer container = new MemoryPersistentDataContainer();
+    private final Book book = strongPersistentData.wrap(container, Book.class);
+    private final NamespacedKey textKey = new NamespacedKey("test", "text");
+    private final NamespacedKey bytesKey = new NamespacedKey("test", "bytes");
+    private final NamespacedKey deflatedKey = new NamespacedKey("test", Compression.DEFLATED);
+
+    @Test
+    void storesCompressedValuesWithTheirLength()
+    {
+        var text = "all work and no play ".repeat(100);
+        book.text(text);
+
+        var compressed = container.get(textKey, PersistentDataType.TAG_CONTAINER);
+        var deflated = compressed.get(deflatedKey, PersistentDataType.BYTE_ARRAY);
+        assertTrue(deflated.length < 100);
+        // 2100 as a variable-length integer, ahead of the compressed bytes.
+        assertEquals((byte) (2100 & 0x7F | 0x80), deflated[0]);
+        assertEquals((byte) (2100 >>> 7), deflated[1]);
+
+        assertTrue(book.hasText());
+        assertEquals(text, book.text());
+        assertEquals(text, strongPersistentData.wrap(container, Book.class).text());
+    }
+
+    @Test
+    void storesShortValuesUncompressed()
+    {
+        book.text("short");
+        book.bytes(new byte[]{1, 2, 3});
+
+        assertEquals("short", container.get(textKey, PersistentDataType.STRING));
+        assertArrayEquals(new byte[]{1, 2, 3}, container.get(bytesKey, PersistentDataType.BYTE_ARRAY));
+        assertEquals("short", book.text());
+        assertArrayEquals(new byte[]{1, 2, 3}, book.bytes());
+    }
+
+    @Test
+    void storesValuesThatDontGetSmallerUncompressed()
+    {
+        var random = new byte[1024];
+        new Random(42).nextBytes(random);
+        book.bytes(random);
+
+        assertArrayEquals(random, container.get(bytesKey, PersistentDataType.BYTE_ARRAY));
+        assertArrayEquals(random, book.bytes());
+    }
+
+    @Test
+    void roundTripsCompressedBytes()
+    {
+        var bytes = new byte[4096];
+        for (var i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) (i % 7);
+
+        book.bytes(bytes);
+
+        assertTrue(container.has(bytesKey, PersistentDataType.TAG_CONTAINER));
+        assertArrayEquals(bytes, book.bytes());
+    }
+
+    @Test
+    void readsBytesWrittenWithoutTheAnnotation()
+    {
+        var text = "written before the value was compressed ".repeat(20);
+        container.set(textKey, PersistentDataType.BYTE_ARRAY, text.getBytes(StandardCharsets.UTF_8));
+        container.set(bytesKey, PersistentDataType.BYTE_ARRAY, new byte[]{9, 8, 7});
+
+        assertEquals(text, book.text());
+        assertArrayEquals(new byte[]{9, 8, 7}, book.bytes());
+    }
+
+    @Test
+    void readsMissingValuesAsNull()
+    {
+        assertFalse(book.hasText());
+        assertNull(book.text());
+        assertNull(book.bytes());
+    }
+
+    @Test
+    void rejectsCorruptValues()
+    {
+        var compressed = container.getAdapterContext().newPersistentDataContainer();
+        container.set(textKey, PersistentDataType.TAG_CONTAINER, compressed);
+        assertThrows(IllegalStateException.class, book::text);
+
+        // A length far longer than the bytes could ever inflate to.
+        compressed.set(deflatedKey, PersistentDataType.BYTE_ARRAY, new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F, 0});
+        container.set(textKey, PersistentDataType.TAG_CONTAINER, compressed);
+        assertThrows(IllegalStateException.class, book::text);
+
+        compressed.set(deflatedKey, PersistentDataType.BYTE_ARRAY, new byte[]{(byte) 0x80});
+        container.set(textKey, PersistentDataType.TAG_CONTAINER, compressed);
+        assertThrows(IllegalStateException.class, book::text);
+    }
+
+    @Test
+    void compressesAfterShutdown()
+    {
+        strongPersistentData.shutdown();
+
+        var text = "still compressed ".repeat(100);
+        book.text(text);
+
+        assertTrue(container.has(textKey, PersistentDataType.TAG_CONTAINER));
+        assertEquals(text, book.text());
+    }
+
+    interface Book
+    {
+        @Compressed(threshold = 64)
+        String text();
+
+        @Compressed(threshold = 64)
+        void text(String text);
+
+        boolean hasText();
+
+        @Compressed(threshold = 16)
+        byte[] bytes();
+
+        @Compressed(threshold = 16)
+        void bytes(byte[] bytes);
+    }
+}
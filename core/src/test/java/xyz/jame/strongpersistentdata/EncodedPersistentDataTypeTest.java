@@ -0,0 +1,187 @@
+package xyz.jame.strongpersistentdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EncodedPersistentDataTypeTest
+{
+    private final MemoryPersistentDataContainer context = new MemoryPersistentDataContainer();
+
+    @Test
+    void roundTripsEveryKindOfField()
+    {
+        var type = EncodedPersistentDataType.of(Everything.class);
+        var value = new Everything();
+        value.flag = true;
+        value.small = -3;
+        value.letter = 'x';
+        value.number = -300;
+        value.big = Long.MIN_VALUE;
+        value.ratio = 0.25f;
+        value.precise = Math.PI;
+        value.boxed = 7;
+        value.text = "h\u00e9llo";
+        value.owner = UUID.randomUUID();
+        value.rank = Rank.HIGH;
+        value.bytes = new byte[]{1, -2};
+        value.ints = new int[]{1, -2, 300};
+        value.longs = new long[]{Long.MAX_VALUE};
+        value.inner = new Everything();
+        value.inner.text = "inner";
+        value.skipped = 9;
+
+        var decoded = type.fromPrimitive(type.toPrimitive(value, context), context);
+
+        assertEquals(true, decoded.flag);
+        assertEquals(-3, decoded.small);
+        assertEquals('x', decoded.letter);
+        assertEquals(-300, decoded.number);
+        assertEquals(Long.MIN_VALUE, decoded.big);
+        assertEquals(0.25f, decoded.ratio);
+        assertEquals(Math.PI, decoded.precise);
+        assertEquals(7, decoded.boxed);
+        assertNull(decoded.missing);
+        assertEquals("h\u00e9llo", decoded.text);
+        assertEquals(value.owner, decoded.owner);
+        assertEquals(Rank.HIGH, decoded.rank);
+        assertArrayEquals(new byte[]{1, -2}, decoded.bytes);
+        assertArrayEquals(new int[]{1, -2, 300}, decoded.ints);
+        assertArrayEquals(new long[]{Long.MAX_VALUE}, decoded.longs);
+        assertEquals("inner", decoded.inner.text);
+        assertNull(decoded.inner.inner);
+        assertEquals(0, decoded.skipped);
+    }
+
+    @Test
+    void encodesListedFieldsInOrderIncludingInheritedOnes()
+    {
+        var type = EncodedPersistentDataType.of(Listed.class);
+        var value = new Listed();
+        value.base = 1;
+        value.second = 2;
+        value.first = 3;
+
+        // The version, the number of fields, and then each zigzag encoded field in the order of @Encoded#fields().
+        assertArrayEquals(new byte[]{1, 3, 2, 6, 4}, type.toPrimitive(value, context));
+
+        var decoded = type.fromPrimitive(new byte[]{1, 3, 2, 6, 4}, context);
+        assertEquals(1, decoded.base);
+        assertEquals(3, decoded.first);
+        assertEquals(2, decoded.second);
+    }
+
+    @Test
+    void encodesUnlistedFieldsInOrderOfTheirNames()
+    {
+        var value = new Unlisted();
+        value.b = 1;
+        value.a = 2;
+
+        assertArrayEquals(new byte[]{0, 2, 4, 2}, EncodedPersistentDataType.of(Unlisted.class).toPrimitive(value, context));
+    }
+
+    @Test
+    void keepsTheConstructedValueOfFieldsAddedSinceEncoding()
+    {
+        // Encoded when Listed only had its first two fields.
+        var decoded = EncodedPersistentDataType.of(Listed.class).fromPrimitive(new byte[]{1, 2, 6, 2}, context);
+
+        assertEquals(3, decoded.base);
+        assertEquals(1, decoded.first);
+        assertEquals(3, decoded.second);
+    }
+
+    @Test
+    void rejectsOtherVersionsAndTrailingBytes()
+    {
+        var type = EncodedPersistentDataType.of(Listed.class);
+
+        assertThrows(IllegalStateException.class, () -> type.fromPrimitive(new byte[]{0, 0}, context));
+        assertThrows(IllegalStateException.class, () -> type.fromPrimitive(new byte[]{1, 0, 0}, context));
+        assertThrows(IllegalStateException.class, () -> type.fromPrimitive(new byte[]{1, 4, 0, 0, 0, 0}, context));
+    }
+
+    @Test
+    void rejectsClassesItCantEncode()
+    {
+        assertThrows(IllegalStateException.class, () -> EncodedPersistentDataType.of(Incomplete.class));
+        assertThrows(IllegalStateException.class, () -> EncodedPersistentDataType.of(Shadowing.class));
+        assertThrows(IllegalStateException.class, () -> EncodedPersistentDataType.of(NoConstructor.class));
+    }
+
+    enum Rank
+    {
+        LOW, HIGH
+    }
+
+    @Encoded
+    static class Everything
+    {
+        boolean flag;
+        byte small;
+        char letter;
+        int number;
+        long big;
+        float ratio;
+        double precise;
+        Integer boxed;
+        Integer missing;
+        String text;
+        UUID owner;
+        Rank rank;
+        byte[] bytes;
+        int[] ints;
+        long[] longs;
+        Everything inner;
+        transient int skipped;
+    }
+
+    static class Base
+    {
+        int base = -1;
+    }
+
+    @Encoded(version = 1, fields = {"base", "first", "second"})
+    static class Listed extends Base
+    {
+        int second = 3;
+        int first;
+    }
+
+    @Encoded
+    static class Unlisted
+    {
+        int b;
+        int a;
+    }
+
+    @Encoded(fields = {"a"})
+    static class Incomplete
+    {
+        int a;
+        int b;
+    }
+
+    @Encoded
+    static class Shadowing extends Base
+    {
+        int base;
+    }
+
+    @Encoded
+    static class NoConstructor
+    {
+        final int a;
+
+        NoConstructor(int a)
+        {
+            this.a = a;
+        }
+    }
+}
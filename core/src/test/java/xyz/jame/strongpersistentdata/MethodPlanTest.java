@@ -0,0 +1,33 @@
+package xyz.jame.strongpersistentdata;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MethodPlanTest
+{
+    private final StrongPersistentData strongPersistentData = new StrongPersistentData(TestPlugin.create("Test"));
+
+    @Test
+    void onlyFailsHasAndRemoveMethodsWithoutAKeyWhenTheyAreCalled()
+    {
+        var unnamed = strongPersistentData.wrap(new MemoryPersistentDataContainer(), Unnamed.class);
+        unnamed.name("x");
+
+        assertEquals("x", unnamed.name());
+        assertThrows(IllegalStateException.class, unnamed::has);
+        assertThrows(IllegalStateException.class, unnamed::remove);
+    }
+
+    interface Unnamed
+    {
+        String name();
+
+        void name(String name);
+
+        boolean has();
+
+        void remove();
+    }
+}
@@ -0,0 +1,91 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackedTest
+{
+    private final StrongPersistentData strongPersistentData = new StrongPersistentData(TestPlugin.create("Test"));
+    private final MemoryPersistentDataContainer container = new MemoryPersistentDataContainer();
+    private final NamespacedKey flagsKey = new NamespacedKey("test", "flags");
+
+    @Test
+    void packsValuesIntoOneWord()
+    {
+        var flags = strongPersistentData.wrap(container, OneWord.class);
+        flags.level(5);
+        flags.flying(true);
+
+        assertEquals(5L | 1L << 8, container.get(flagsKey, PersistentDataType.LONG));
+        assertEquals(5, flags.level());
+        assertTrue(flags.flying());
+    }
+
+    @Test
+    void readsAGroupWrittenBeforeItGrewPastOneWord()
+    {
+        var before = strongPersistentData.wrap(container, OneWord.class);
+        before.level(5);
+        before.flying(true);
+
+        var after = strongPersistentData.wrap(container, TwoWords.class);
+        assertEquals(5, after.level());
+        assertTrue(after.flying());
+        assertEquals(0, after.kills());
+
+        after.kills(7);
+
+        assertArrayEquals(new long[]{5L | 1L << 8, 7}, container.get(flagsKey, PersistentDataType.LONG_ARRAY));
+        assertEquals(5, after.level());
+        assertTrue(after.flying());
+        assertEquals(7, after.kills());
+    }
+
+    @Test
+    void readsAGroupWrittenBeforeItShrankToOneWord()
+    {
+        var before = strongPersistentData.wrap(container, TwoWords.class);
+        before.level(5);
+        before.kills(7);
+
+        var after = strongPersistentData.wrap(container, OneWord.class);
+        assertEquals(5, after.level());
+        assertFalse(after.flying());
+
+        after.flying(true);
+
+        assertEquals(5L | 1L << 8, container.get(flagsKey, PersistentDataType.LONG));
+        assertEquals(5, after.level());
+        assertTrue(after.flying());
+    }
+
+    interface OneWord
+    {
+        @Packed(group = "flags", bits = 8, offset = 0)
+        int level();
+
+        @Packed(group = "flags", bits = 8, offset = 0)
+        void level(int level);
+
+        @Packed(group = "flags", offset = 8)
+        boolean flying();
+
+        @Packed(group = "flags", offset = 8)
+        void flying(boolean flying);
+    }
+
+    interface TwoWords extends OneWord
+    {
+        @Packed(group = "flags", bits = 16, offset = 64)
+        int kills();
+
+        @Packed(group = "flags", bits = 16, offset = 64)
+        void kills(int kills);
+    }
+}
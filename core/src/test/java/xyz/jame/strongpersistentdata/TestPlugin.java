@@ -0,0 +1,35 @@
+package xyz.jame.strongpersistentdata;
+
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * A {@link Plugin} which only has a name, which is all that is needed to create its {@link org.bukkit.NamespacedKey}.
+ */
+final class TestPlugin
+{
+    private TestPlugin()
+    {
+    }
+
+    static Plugin create(String name)
+    {
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class[]{Plugin.class}, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getName":
+                    return name;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return name;
+                default:
+                    throw new UnsupportedOperationException("There is no server to " + method.getName());
+            }
+        });
+    }
+}
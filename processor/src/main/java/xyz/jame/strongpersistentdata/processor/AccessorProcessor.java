@@ -0,0 +1,1038 @@
+package xyz.jame.strongpersistentdata.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Generates an implementation of every interface annotated with {@code @GenerateAccessor}, and reports mistakes in
+ * those interfaces as compile errors.
+ *
+ * <p>
+ * The implementation extends {@code GeneratedAccessor}, and each method calls {@code GeneratedAccessor#invoke} with its
+ * index, when every method of the interface is ordered by name, and then by descriptor. This is the same order that
+ * StrongPersistentData uses at runtime, and the generated {@code SIGNATURES} field lets it check that the order still
+ * matches the interface.
+ * </p>
+ *
+ * <p>
+ * The key, kind and type of plain getters, setters, has and remove methods are deduced here, the same way
+ * StrongPersistentData would at runtime, and generated into the {@code PLANS} field, so they aren't deduced again.
+ * Plain getters, setters and has methods also read and write the container themselves, with the key and type of the
+ * method, whenever StrongPersistentData lets them.
+ * </p>
+ */
+@SupportedAnnotationTypes(AccessorProcessor.GENERATE_ACCESSOR)
+public class AccessorProcessor extends AbstractProcessor
+{
+    static final String GENERATE_ACCESSOR = "xyz.jame.strongpersistentdata.GenerateAccessor";
+    private static final String GENERATED_ACCESSOR = "xyz.jame.strongpersistentdata.GeneratedAccessor";
+    private static final String PLAN = GENERATED_ACCESSOR + ".Plan";
+    private static final String CONTAINER = "org.bukkit.persistence.PersistentDataContainer";
+    private static final String EXPLICIT_NAME = "xyz.jame.strongpersistentdata.ExplicitName";
+    private static final String EXPLICIT_TYPE = "xyz.jame.strongpersistentdata.ExplicitType";
+    private static final String NULL_ACTION = "xyz.jame.strongpersistentdata.NullAction";
+    private static final String WRAP = "xyz.jame.strongpersistentdata.Wrap";
+    private static final String COUNTER = "xyz.jame.strongpersistentdata.Counter";
+    private static final String PACKED = "xyz.jame.strongpersistentdata.Packed";
+    private static final String COMPRESSED = "xyz.jame.strongpersistentdata.Compressed";
+    private static final String INDEXED = "xyz.jame.strongpersistentdata.Indexed";
+    private static final String MEMOIZED = "xyz.jame.strongpersistentdata.Memoized";
+    private static final String DEFAULT_VALUE_NUMERIC = "xyz.jame.strongpersistentdata.DefaultValue.Numeric";
+    private static final String DEFAULT_VALUE_NUMERIC_FLOATING = "xyz.jame.strongpersistentdata.DefaultValue.NumericFloating";
+    private static final String DEFAULT_VALUE_STRING = "xyz.jame.strongpersistentdata.DefaultValue.String";
+    private static final String DEFAULT_VALUE_BOOLEAN = "xyz.jame.strongpersistentdata.DefaultValue.Boolean";
+    /**
+     * Must match the suffix StrongPersistentData looks for at runtime.
+     */
+    private static final String SUFFIX = "_StrongPersistentData";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        for (var annotation : annotations)
+        {
+            for (var element : roundEnv.getElementsAnnotatedWith(annotation))
+            {
+                if (element.getKind() != ElementKind.INTERFACE)
+                {
+                    error(element, "@GenerateAccessor can only be used on interfaces");
+                    continue;
+                }
+
+                var type = (TypeElement) element;
+                if (validateType(type) & validateMethods(type))
+                    generate(type);
+            }
+        }
+
+        return true;
+    }
+
+    private boolean validateType(TypeElement type)
+    {
+        if (!type.getTypeParameters().isEmpty())
+        {
+            error(type, "Wrapped interfaces cannot have type parameters");
+            return false;
+        }
+
+        for (Element enclosing = type; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement())
+        {
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE))
+            {
+                error(type, "Wrapped interfaces with @GenerateAccessor cannot be private, or nested in a private type");
+                return false;
+            }
+
+            if (((TypeElement) enclosing).getNestingKind() == NestingKind.LOCAL)
+            {
+                error(type, "Wrapped interfaces with @GenerateAccessor cannot be local");
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Check every method for the same things that StrongPersistentData would otherwise only complain about once it is
+     * invoked.
+     *
+     * @return false if there are any errors
+     */
+    private boolean validateMethods(TypeElement type)
+    {
+        var valid = true;
+        var methods = methodsOf(type);
+
+        for (var method : methods)
+        {
+            if (method.getModifiers().contains(Modifier.DEFAULT))
+            {
+                if (annotation(method, MEMOIZED) != null)
+                    valid &= validateMemoized(method, methods);
+
+                continue;
+            }
+
+            if (annotation(method, MEMOIZED) != null)
+            {
+                error(method, "@Memoized can only be used on default methods");
+                valid = false;
+                continue;
+            }
+
+            var name = method.getSimpleName().toString();
+            var returnType = method.getReturnType();
+            var parameterCount = method.getParameters().size();
+            var isRemoveMethod = name.startsWith("remove") && returnType.getKind() == TypeKind.VOID && parameterCount == 0;
+            var isHasMethod = name.startsWith("has") && returnType.getKind() == TypeKind.BOOLEAN && parameterCount == 0;
+            var hasExplicitType = annotation(method, EXPLICIT_TYPE) != null;
+            var shouldWrap = annotation(method, WRAP) != null;
+
+            if (annotation(method, INDEXED) != null && !validateIndexed(method, isHasMethod, shouldWrap))
+            {
+                valid = false;
+                continue;
+            }
+
+            if (annotation(method, PACKED) != null)
+            {
+                valid &= validatePacked(method);
+                continue;
+            }
+
+            if (annotation(method, COMPRESSED) != null && !validateCompressed(method))
+            {
+                valid = false;
+                continue;
+            }
+
+            if (isRemoveMethod)
+            {
+                if (name.length() == 6)
+                {
+                    error(method, "Remove method needs the name of its key after \"remove\", such as removeName");
+                    valid = false;
+                }
+
+                continue;
+            }
+
+            var counterPrefix = counterPrefixOf(method);
+            if (counterPrefix != null)
+            {
+                var effectiveName = Character.toLowerCase(name.charAt(counterPrefix.length())) + name.substring(counterPrefix.length() + 1);
+                var setter = findSetter(methods, effectiveName);
+                if (annotation(method, COUNTER) != null || hasExplicitType || setter != null)
+                {
+                    valid &= validateCounter(method, counterPrefix, setter, hasExplicitType);
+                    continue;
+                }
+            }
+
+            if (isHasMethod && name.length() == 3)
+            {
+                error(method, "Has method needs the name of its key after \"has\", such as hasName");
+                valid = false;
+                continue;
+            }
+
+            if (isHasMethod)
+            {
+                var effectiveName = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+                if (!hasExplicitType && !hasSetter(methods, effectiveName))
+                {
+                    error(method, "Couldn't deduce type for has method, as it has no setter. Annotate it with @ExplicitType");
+                    valid = false;
+                }
+
+                continue;
+            }
+
+            if (returnType.getKind() == TypeKind.VOID)
+            {
+                if (parameterCount != 1)
+                {
+                    error(method, "Setter with more than one parameter");
+                    valid = false;
+                }
+                else if (shouldWrap && !isWrappable(method.getParameters().get(0).asType()))
+                {
+                    error(method, "The parameter of a @Wrap setter must be a wrapped interface, or a List or Map<String, ?> of them");
+                    valid = false;
+                }
+
+                continue;
+            }
+
+            if (parameterCount != 0)
+            {
+                error(method, "Getter with more than 0 parameters");
+                valid = false;
+                continue;
+            }
+
+            if (isType(returnType, "java.util.Optional"))
+            {
+                if (!hasExplicitType && !hasSetter(methods, name))
+                {
+                    error(method, "Couldn't deduce parameterized type for Optional getter, as it has no setter. Annotate it with @ExplicitType");
+                    valid = false;
+                }
+
+                continue;
+            }
+
+            if (shouldWrap && !isWrappable(returnType))
+            {
+                error(method, "The return type of a @Wrap getter must be a wrapped interface, or a List or Map<String, ?> of them");
+                valid = false;
+            }
+
+            valid &= validateDefaultValue(method, returnType);
+        }
+
+        return valid;
+    }
+
+    /**
+     * @return false if a {@code Counter} method can't be used with the type of its key
+     */
+    private boolean validateCounter(ExecutableElement method, String prefix, ExecutableElement setter, boolean hasExplicitType)
+    {
+        // An explicit type can only be checked once it has a PersistentDataType, at runtime.
+        if (hasExplicitType || prefix.equals("compareAndSet"))
+            return true;
+
+        TypeMirror type;
+        if (setter != null)
+            type = setter.getParameters().get(0).asType();
+        else if (!method.getParameters().isEmpty())
+            type = method.getParameters().get(0).asType();
+        else if (method.getReturnType().getKind() != TypeKind.VOID)
+            type = method.getReturnType();
+        else
+        {
+            error(method, "Couldn't deduce type for counter method, as it has no setter. Annotate it with @ExplicitType");
+            return false;
+        }
+
+        var kind = type.getKind().isPrimitive() ? type.getKind() : unboxedKindOf(type);
+        if (kind != TypeKind.BYTE && kind != TypeKind.SHORT && kind != TypeKind.INT && kind != TypeKind.LONG && kind != TypeKind.FLOAT && kind != TypeKind.DOUBLE)
+        {
+            error(method, "Counter methods need a numeric type, not " + type);
+            return false;
+        }
+
+        var parameterType = method.getParameters().isEmpty() ? null : method.getParameters().get(0).asType();
+        if (parameterType != null && (parameterType.getKind().isPrimitive() ? parameterType.getKind() : unboxedKindOf(parameterType)) != kind)
+        {
+            error(method, "The parameter of an add method must be " + type);
+            return false;
+        }
+
+        var returnType = method.getReturnType();
+        if (returnType.getKind() != TypeKind.VOID && (returnType.getKind().isPrimitive() ? returnType.getKind() : unboxedKindOf(returnType)) != kind)
+        {
+            error(method, "A counter method must return void or " + type);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return false if a {@code Packed} method isn't a getter or setter of a type that can be packed. The layout of the
+     * group is checked at runtime.
+     */
+    private boolean validatePacked(ExecutableElement method)
+    {
+        TypeMirror type;
+        if (method.getParameters().isEmpty() && method.getReturnType().getKind() != TypeKind.VOID)
+            type = method.getReturnType();
+        else if (method.getParameters().size() == 1 && method.getReturnType().getKind() == TypeKind.VOID)
+            type = method.getParameters().get(0).asType();
+        else
+        {
+            error(method, "@Packed can only be used on getters and setters");
+            return false;
+        }
+
+        var kind = type.getKind();
+        if (kind == TypeKind.BOOLEAN || (kind == TypeKind.DECLARED && ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM))
+            return true;
+
+        if (kind != TypeKind.BYTE && kind != TypeKind.SHORT && kind != TypeKind.INT && kind != TypeKind.LONG)
+        {
+            error(method, "Packed values must be boolean, byte, short, int, long, or an enum, not " + type);
+            return false;
+        }
+
+        for (var entry : annotation(method, PACKED).getElementValues().entrySet())
+        {
+            if (entry.getKey().getSimpleName().contentEquals("bits") && !Integer.valueOf(0).equals(entry.getValue().getValue()))
+                return true;
+        }
+
+        error(method, "Packed integers need their number of bits");
+        return false;
+    }
+
+    /**
+     * @return false if a {@code Memoized} method takes parameters, returns nothing, or depends on a method that doesn't
+     * exist
+     */
+    private boolean validateMemoized(ExecutableElement method, List<ExecutableElement> methods)
+    {
+        if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID)
+        {
+            error(method, "@Memoized can only be used on methods without parameters, which return something");
+            return false;
+        }
+
+        var valid = true;
+        for (var entry : annotation(method, MEMOIZED).getElementValues().entrySet())
+        {
+            if (!entry.getKey().getSimpleName().contentEquals("dependsOn"))
+                continue;
+
+            for (var value : (List<?>) entry.getValue().getValue())
+            {
+                var name = (String) ((AnnotationValue) value).getValue();
+                var found = false;
+                for (var other : methods)
+                {
+                    if (other.getSimpleName().contentEquals(name) && !other.getModifiers().contains(Modifier.DEFAULT))
+                        found = true;
+                }
+
+                if (!found)
+                {
+                    error(method, "@Memoized depends on " + name + ", which is not a method of this interface");
+                    valid = false;
+                }
+            }
+        }
+
+        return valid;
+    }
+
+    /**
+     * @return false if an {@code Indexed} method isn't a plain getter, whose value could be kept in an index
+     */
+    private boolean validateIndexed(ExecutableElement method, boolean isHasMethod, boolean shouldWrap)
+    {
+        if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID || isHasMethod)
+        {
+            error(method, "@Indexed can only be used on getters");
+            return false;
+        }
+
+        if (shouldWrap || annotation(method, COMPRESSED) != null)
+        {
+            error(method, "@Indexed can't be used on @Wrap or @Compressed getters");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return false if a {@code Compressed} method isn't a getter or setter of {@code String} or {@code byte[]}
+     */
+    private boolean validateCompressed(ExecutableElement method)
+    {
+        TypeMirror type;
+        if (method.getParameters().isEmpty() && method.getReturnType().getKind() != TypeKind.VOID)
+            type = method.getReturnType();
+        else if (method.getParameters().size() == 1 && method.getReturnType().getKind() == TypeKind.VOID)
+            type = method.getParameters().get(0).asType();
+        else
+        {
+            error(method, "@Compressed can only be used on getters and setters");
+            return false;
+        }
+
+        var isByteArray = type.getKind() == TypeKind.ARRAY && ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE;
+        if (!isByteArray && !isType(type, "java.lang.String"))
+        {
+            error(method, "@Compressed can only be used on String or byte[]");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the kind of the primitive {@code type} boxes, or {@link TypeKind#NONE} if it isn't a box
+     */
+    private TypeKind unboxedKindOf(TypeMirror type)
+    {
+        try
+        {
+            return processingEnv.getTypeUtils().unboxedType(type).getKind();
+        }
+        catch (IllegalArgumentException e)
+        {
+            return TypeKind.NONE;
+        }
+    }
+
+    /**
+     * @return the prefix of a method shaped like a {@code Counter} method, or null if it isn't one
+     */
+    private String counterPrefixOf(ExecutableElement method)
+    {
+        var name = method.getSimpleName().toString();
+        var returnType = method.getReturnType();
+        var parameters = method.getParameters();
+        var types = processingEnv.getTypeUtils();
+
+        if (parameters.size() == 1 && (returnType.getKind() == TypeKind.VOID || types.isSameType(returnType, parameters.get(0).asType())))
+            return hasPrefix(name, "add") ? "add" : null;
+
+        if (parameters.isEmpty())
+        {
+            if (hasPrefix(name, "increment"))
+                return "increment";
+
+            return hasPrefix(name, "decrement") ? "decrement" : null;
+        }
+
+        if (parameters.size() == 2 && returnType.getKind() == TypeKind.BOOLEAN && types.isSameType(parameters.get(0).asType(), parameters.get(1).asType()))
+            return hasPrefix(name, "compareAndSet") ? "compareAndSet" : null;
+
+        return null;
+    }
+
+    private static boolean hasPrefix(String name, String prefix)
+    {
+        return name.length() > prefix.length() && name.startsWith(prefix) && Character.isUpperCase(name.charAt(prefix.length()));
+    }
+
+    private boolean validateDefaultValue(ExecutableElement method, TypeMirror returnType)
+    {
+        var kind = returnType.getKind();
+        var isNumeric = kind == TypeKind.BYTE || kind == TypeKind.SHORT || kind == TypeKind.INT || kind == TypeKind.LONG;
+        var isNumericFloating = kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE;
+        var isString = isType(returnType, "java.lang.String");
+        var isBoolean = kind == TypeKind.BOOLEAN;
+        var isEnum = kind == TypeKind.DECLARED && ((DeclaredType) returnType).asElement().getKind() == ElementKind.ENUM;
+        var isParsed = isEnum || isType(returnType, "java.util.UUID") || isType(returnType, "java.time.Instant") || isType(returnType, "java.time.Duration");
+        var valid = true;
+
+        if (annotation(method, DEFAULT_VALUE_NUMERIC) != null && !isNumeric)
+        {
+            error(method, "@DefaultValue.Numeric has no effect on a getter returning " + returnType);
+            valid = false;
+        }
+
+        if (annotation(method, DEFAULT_VALUE_NUMERIC_FLOATING) != null && !isNumericFloating)
+        {
+            error(method, "@DefaultValue.NumericFloating has no effect on a getter returning " + returnType);
+            valid = false;
+        }
+
+        if (annotation(method, DEFAULT_VALUE_BOOLEAN) != null && !isBoolean)
+        {
+            error(method, "@DefaultValue.Boolean has no effect on a getter returning " + returnType);
+            valid = false;
+        }
+
+        var stringAnnotation = annotation(method, DEFAULT_VALUE_STRING);
+        if (stringAnnotation != null && !isString && !isParsed)
+        {
+            error(method, "@DefaultValue.String has no effect on a getter returning " + returnType);
+            valid = false;
+        }
+        else if (stringAnnotation != null && isParsed && !isParsable(returnType, isEnum, stringValueOf(stringAnnotation)))
+        {
+            error(method, "@DefaultValue.String is not a valid " + returnType);
+            valid = false;
+        }
+
+        // This is allowed, when used with a has method, but is easy to get wrong.
+        if ((isNumeric && annotation(method, DEFAULT_VALUE_NUMERIC) == null) || (isNumericFloating && annotation(method, DEFAULT_VALUE_NUMERIC_FLOATING) == null) || (isBoolean && annotation(method, DEFAULT_VALUE_BOOLEAN) == null))
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Getter with primitive type has no @DefaultValue, and will throw if the key does not exist", method);
+
+        return valid;
+    }
+
+    private static String stringValueOf(AnnotationMirror annotation)
+    {
+        var value = valueOf(annotation);
+        return value != null ? (String) value : "";
+    }
+
+    /**
+     * @return the {@code value} of {@code annotation}, as returned by {@link AnnotationValue#getValue()}, or null if it
+     * isn't given
+     */
+    private static Object valueOf(AnnotationMirror annotation)
+    {
+        for (var entry : annotation.getElementValues().entrySet())
+        {
+            if (entry.getKey().getSimpleName().contentEquals("value"))
+                return entry.getValue().getValue();
+        }
+
+        return null;
+    }
+
+    /**
+     * @return true if {@code value} is what StrongPersistentData would parse a {@code DefaultValue.String} of
+     * {@code type} from, which is the name of a constant for an enum
+     */
+    private static boolean isParsable(TypeMirror type, boolean isEnum, String value)
+    {
+        if (isEnum)
+        {
+            for (var element : ((DeclaredType) type).asElement().getEnclosedElements())
+            {
+                if (element.getKind() == ElementKind.ENUM_CONSTANT && element.getSimpleName().contentEquals(value))
+                    return true;
+            }
+
+            return false;
+        }
+
+        try
+        {
+            if (isType(type, "java.util.UUID"))
+                UUID.fromString(value);
+            else if (isType(type, "java.time.Instant"))
+                Instant.parse(value);
+            else
+                Duration.parse(value);
+
+            return true;
+        }
+        catch (RuntimeException e)
+        {
+            return false;
+        }
+    }
+
+    private void generate(TypeElement type)
+    {
+        var packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        var simpleName = flatNameOf(type) + SUFFIX;
+        var qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        var declaredType = (DeclaredType) type.asType();
+        var methods = methodsOf(type);
+
+        var plans = new ArrayList<String>();
+        for (var method : methods)
+            plans.add(planOf(method, methods));
+
+        try (var out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()))
+        {
+            if (!packageName.isEmpty())
+            {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+
+            out.println("@javax.annotation.processing.Generated(\"" + AccessorProcessor.class.getName() + "\")");
+            out.println("@SuppressWarnings(\"unchecked\")");
+            out.println("public final class " + simpleName + " extends " + GENERATED_ACCESSOR + " implements " + type.getQualifiedName());
+            out.println("{");
+
+            out.println("    public static final String[] SIGNATURES = {");
+            for (var method : methods)
+                out.println("        \"" + method.getSimpleName() + descriptorOf(method) + "\",");
+            out.println("    };");
+            out.println();
+
+            out.println("    public static final " + PLAN + "[] PLANS = {");
+            for (var plan : plans)
+                out.println("        " + (plan != null ? PLAN + "." + plan : "null") + ",");
+            out.println("    };");
+
+            for (var i = 0; i < methods.size(); i++)
+            {
+                var method = methods.get(i);
+                var methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+                var parameterTypes = methodType.getParameterTypes();
+                var returnType = methodType.getReturnType();
+
+                out.println();
+                out.println("    @Override");
+                out.print("    public " + returnType + " " + method.getSimpleName() + "(");
+                for (var parameter = 0; parameter < parameterTypes.size(); parameter++)
+                {
+                    if (parameter != 0)
+                        out.print(", ");
+
+                    out.print(parameterTypes.get(parameter) + " p" + parameter);
+                }
+                out.println(")");
+                out.println("    {");
+
+                var plan = plans.get(i);
+                if (plan != null && !plan.startsWith("remove("))
+                    writePlain(out, i, plan, returnType, parameterTypes);
+
+                String argument;
+                if (parameterTypes.isEmpty())
+                    argument = "null";
+                else if (parameterTypes.size() == 1)
+                    argument = "p0";
+                else
+                {
+                    var arguments = new StringBuilder("new Object[] { ");
+                    for (var parameter = 0; parameter < parameterTypes.size(); parameter++)
+                        arguments.append(parameter != 0 ? ", p" : "p").append(parameter);
+
+                    argument = arguments.append(" }").toString();
+                }
+
+                var invocation = "invoke(" + i + ", " + argument + ");";
+                if (returnType.getKind() == TypeKind.VOID)
+                    out.println("        " + invocation);
+                else
+                    out.println("        return (" + castTypeOf(returnType) + ") " + invocation);
+
+                out.println("    }");
+            }
+
+            out.println("}");
+        }
+        catch (IOException e)
+        {
+            error(type, "Couldn't write generated accessor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the part of a plain getter, setter or has method which uses the container itself, when it can. Otherwise,
+     * it falls through to {@code invoke}.
+     */
+    private void writePlain(PrintWriter out, int index, String plan, TypeMirror returnType, List<? extends TypeMirror> parameterTypes)
+    {
+        var key = "keys[" + index + "]";
+        var type = "types[" + index + "]";
+
+        out.println("        " + CONTAINER + " container = direct;");
+        if (plan.startsWith("set("))
+        {
+            // Null may remove the key, or throw.
+            out.println("        if (container != null" + (parameterTypes.get(0).getKind().isPrimitive() ? "" : " && p0 != null") + ")");
+            out.println("        {");
+            out.println("            container.set(" + key + ", " + type + ", p0);");
+            out.println("            written(" + key + ");");
+            out.println("            return;");
+            out.println("        }");
+        }
+        else if (plan.startsWith("has("))
+        {
+            out.println("        if (container != null)");
+            out.println("            return container.has(" + key + ", " + type + ");");
+        }
+        else
+        {
+            // Nothing there: invoke returns the default value, or throws.
+            out.println("        if (container != null)");
+            out.println("        {");
+            out.println("            Object value = container.get(" + key + ", " + type + ");");
+            out.println("            if (value != null)");
+            out.println("                return (" + castTypeOf(returnType) + ") value;");
+            out.println("        }");
+        }
+
+        out.println();
+    }
+
+    /**
+     * @return the type to cast what is returned to, which is the box of primitives
+     */
+    private String castTypeOf(TypeMirror type)
+    {
+        if (type.getKind().isPrimitive())
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+
+        return type.toString();
+    }
+
+    /**
+     * Deduce a plain getter, setter, has or remove method, the same way StrongPersistentData would at runtime.
+     *
+     * @return the call to the factory of {@code GeneratedAccessor.Plan} for {@code method}, or null if it isn't plain,
+     * and is left to be deduced at runtime
+     */
+    private String planOf(ExecutableElement method, List<ExecutableElement> methods)
+    {
+        if (method.getModifiers().contains(Modifier.DEFAULT) || annotation(method, MEMOIZED) != null || annotation(method, PACKED) != null)
+            return null;
+
+        var name = method.getSimpleName().toString();
+        var returnType = method.getReturnType();
+        var parameterCount = method.getParameters().size();
+        var explicitName = annotation(method, EXPLICIT_NAME);
+
+        if (name.length() > 6 && name.startsWith("remove") && returnType.getKind() == TypeKind.VOID && parameterCount == 0)
+        {
+            var effectiveName = Character.toLowerCase(name.charAt(6)) + name.substring(7);
+            var setter = findSetter(methods, effectiveName);
+            if (setter != null && annotation(setter, PACKED) != null)
+                return null;
+
+            return "remove(" + keyNameOf(explicitName, effectiveName) + ")";
+        }
+
+        if (counterPrefixOf(method) != null)
+            return null;
+
+        if (name.length() > 3 && name.startsWith("has") && returnType.getKind() == TypeKind.BOOLEAN && parameterCount == 0)
+        {
+            var effectiveName = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+            var explicitType = annotation(method, EXPLICIT_TYPE);
+            TypeMirror type;
+            if (explicitType != null)
+                type = (TypeMirror) valueOf(explicitType);
+            else
+            {
+                var setter = findSetter(methods, effectiveName);
+                if (setter == null || annotation(setter, PACKED) != null || annotation(setter, COMPRESSED) != null)
+                    return null;
+
+                type = setter.getParameters().get(0).asType();
+            }
+
+            if (!isPlain(type))
+                return null;
+
+            return "has(" + keyNameOf(explicitName, effectiveName) + ", " + classLiteralOf(type) + ")";
+        }
+
+        if (annotation(method, COMPRESSED) != null || annotation(method, WRAP) != null)
+            return null;
+
+        if (returnType.getKind() == TypeKind.VOID)
+        {
+            if (parameterCount != 1 || !isPlain(method.getParameters().get(0).asType()))
+                return null;
+
+            var nullAction = annotation(method, NULL_ACTION);
+            var removeOnNull = nullAction != null && ((Element) valueOf(nullAction)).getSimpleName().contentEquals("Remove");
+            return "set(" + keyNameOf(explicitName, name) + ", " + classLiteralOf(method.getParameters().get(0).asType()) + ", " + removeOnNull + ")";
+        }
+
+        if (parameterCount != 0 || !isPlain(returnType) || isType(returnType, "java.util.Optional") || isType(returnType, "java.util.OptionalInt") || isType(returnType, "java.util.OptionalLong") || isType(returnType, "java.util.OptionalDouble"))
+            return null;
+
+        return "get(" + keyNameOf(explicitName, name) + ", " + classLiteralOf(returnType) + ", " + defaultValueOf(method, returnType) + ")";
+    }
+
+    /**
+     * @return true if the persistent type of {@code type} only depends on its class, which is every type but
+     * {@code List}, whose type argument matters
+     */
+    private static boolean isPlain(TypeMirror type)
+    {
+        var kind = type.getKind();
+        return kind.isPrimitive() || kind == TypeKind.ARRAY || (kind == TypeKind.DECLARED && !isType(type, "java.util.List"));
+    }
+
+    /**
+     * @return the literal of the name of a key, which is {@code explicitName}, or {@code effectiveName} in snake case
+     */
+    private String keyNameOf(AnnotationMirror explicitName, String effectiveName)
+    {
+        var name = explicitName != null ? stringValueOf(explicitName) : camelCaseToSnakeCase(effectiveName);
+        return processingEnv.getElementUtils().getConstantExpression(name);
+    }
+
+    /**
+     * @return the literal of the {@code DefaultValue} of a getter, which is the primitive it returns, or otherwise a
+     * {@code String} which is parsed at runtime, or {@code null}
+     */
+    private String defaultValueOf(ExecutableElement method, TypeMirror type)
+    {
+        var elements = processingEnv.getElementUtils();
+        var kind = type.getKind();
+        AnnotationMirror annotation;
+
+        if (kind == TypeKind.BYTE || kind == TypeKind.SHORT || kind == TypeKind.INT || kind == TypeKind.LONG)
+            annotation = annotation(method, DEFAULT_VALUE_NUMERIC);
+        else if (kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE)
+            annotation = annotation(method, DEFAULT_VALUE_NUMERIC_FLOATING);
+        else if (kind == TypeKind.BOOLEAN)
+            annotation = annotation(method, DEFAULT_VALUE_BOOLEAN);
+        else if (!kind.isPrimitive())
+            annotation = annotation(method, DEFAULT_VALUE_STRING);
+        else
+            annotation = null;
+
+        var value = annotation != null ? valueOf(annotation) : null;
+        if (value == null)
+            return "null";
+
+        if (kind.isPrimitive() && kind != TypeKind.BOOLEAN)
+            return "(" + type + ") " + elements.getConstantExpression(value);
+
+        return elements.getConstantExpression(value);
+    }
+
+    /**
+     * @return the class literal of the erasure of {@code type}
+     */
+    private String classLiteralOf(TypeMirror type)
+    {
+        return typeNameOf(processingEnv.getTypeUtils().erasure(type)) + ".class";
+    }
+
+    /**
+     * @return the name of {@code type} in source, without any of its annotations
+     */
+    private static String typeNameOf(TypeMirror type)
+    {
+        if (type.getKind() == TypeKind.ARRAY)
+            return typeNameOf(((ArrayType) type).getComponentType()) + "[]";
+        if (type.getKind() == TypeKind.DECLARED)
+            return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+
+        return type.getKind().name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Must match how StrongPersistentData names the keys of methods at runtime.
+     */
+    private static String camelCaseToSnakeCase(String camelCase)
+    {
+        var builder = new StringBuilder(camelCase.length());
+
+        for (var c : camelCase.toCharArray())
+        {
+            if (Character.isUpperCase(c))
+            {
+                builder.append('_');
+                builder.append(Character.toLowerCase(c));
+            }
+            else
+            {
+                builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return every method StrongPersistentData would implement, in the order it refers to them by
+     */
+    private List<ExecutableElement> methodsOf(TypeElement type)
+    {
+        var methods = new ArrayList<ExecutableElement>();
+        var signatures = new HashSet<String>();
+
+        for (var method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type)))
+        {
+            var modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE))
+                continue;
+
+            // Methods of Object are only implemented if the interface declares them again.
+            if (((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object"))
+                continue;
+
+            if (signatures.add(method.getSimpleName() + descriptorOf(method)))
+                methods.add(method);
+        }
+
+        methods.sort(Comparator.comparing((ExecutableElement method) -> method.getSimpleName().toString()).thenComparing(this::descriptorOf));
+        return methods;
+    }
+
+    private String descriptorOf(ExecutableElement method)
+    {
+        var erased = (ExecutableType) processingEnv.getTypeUtils().erasure(method.asType());
+        var builder = new StringBuilder("(");
+        for (var parameterType : erased.getParameterTypes())
+            builder.append(descriptorOf(parameterType));
+
+        return builder.append(')').append(descriptorOf(erased.getReturnType())).toString();
+    }
+
+    private String descriptorOf(TypeMirror type)
+    {
+        switch (type.getKind())
+        {
+            case VOID:
+                return "V";
+            case BOOLEAN:
+                return "Z";
+            case BYTE:
+                return "B";
+            case SHORT:
+                return "S";
+            case CHAR:
+                return "C";
+            case INT:
+                return "I";
+            case LONG:
+                return "J";
+            case FLOAT:
+                return "F";
+            case DOUBLE:
+                return "D";
+            case ARRAY:
+                return "[" + descriptorOf(((ArrayType) type).getComponentType());
+            case DECLARED:
+                var element = (TypeElement) ((DeclaredType) type).asElement();
+                return "L" + processingEnv.getElementUtils().getBinaryName(element).toString().replace('.', '/') + ";";
+            default:
+                return descriptorOf(processingEnv.getTypeUtils().erasure(type));
+        }
+    }
+
+    /**
+     * @return the names of {@code type} and the types it is nested in, separated by {@code _}
+     */
+    private static String flatNameOf(TypeElement type)
+    {
+        var name = type.getSimpleName().toString();
+        for (var enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement())
+            name = enclosing.getSimpleName() + "_" + name;
+
+        return name;
+    }
+
+    private static boolean hasSetter(List<ExecutableElement> methods, String name)
+    {
+        return findSetter(methods, name) != null;
+    }
+
+    private static ExecutableElement findSetter(List<ExecutableElement> methods, String name)
+    {
+        for (var method : methods)
+        {
+            if (method.getSimpleName().contentEquals(name) && method.getReturnType().getKind() == TypeKind.VOID && method.getParameters().size() == 1)
+                return method;
+        }
+
+        return null;
+    }
+
+    private static boolean isType(TypeMirror type, String qualifiedName)
+    {
+        return type.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(qualifiedName);
+    }
+
+    /**
+     * @return true if {@code type} is a wrapped interface, or a {@code List} or {@code Map<String, ?>} of them
+     */
+    private static boolean isWrappable(TypeMirror type)
+    {
+        if (isType(type, "java.util.List") || isType(type, "java.util.Map"))
+        {
+            var typeArguments = ((DeclaredType) type).getTypeArguments();
+            if (typeArguments.isEmpty())
+                return false;
+
+            if (isType(type, "java.util.Map") && !isType(typeArguments.get(0), "java.lang.String"))
+                return false;
+
+            return isInterface(typeArguments.get(typeArguments.size() - 1));
+        }
+
+        return isInterface(type);
+    }
+
+    private static boolean isInterface(TypeMirror type)
+    {
+        return type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).asElement().getKind() == ElementKind.INTERFACE;
+    }
+
+    private static AnnotationMirror annotation(Element element, String qualifiedName)
+    {
+        for (var mirror : element.getAnnotationMirrors())
+        {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(qualifiedName))
+                return mirror;
+        }
+
+        return null;
+    }
+
+    private void error(Element element, String message)
+    {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}